@@ -0,0 +1,139 @@
+package com.hellsayenci.mrzscanner;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Size-keyed pool of byte buffers for the per-frame pipeline.
+ * <p>
+ * Frames of a scan session all have the same size, so once every stage holds a buffer, scanning allocates no more buffers.
+ * At most {@link #capacity} idle buffers are kept; beyond that released buffers are left to the garbage collector. In debug
+ * builds the pool remembers where every borrowed buffer was acquired, fails on a buffer released twice, and logs the
+ * acquisitions still outstanding when more than {@link #capacity} buffers are borrowed at once, which means a stage does
+ * not return its buffers.
+ * <p>
+ * The pool is thread-safe.
+ */
+public class BufferPool {
+
+    private static final String TAG = "BufferPool";
+
+    /**
+     * Maximum number of idle buffers, and the number of borrowed buffers above which a leak is reported.
+     */
+    public final int capacity;
+
+    private final Map<Integer, ArrayDeque<byte[]>> idle = new HashMap<>();
+    private int idleCount;
+    private int borrowed;
+    private long allocated;
+    // debug builds only: where every borrowed buffer was acquired
+    private final Map<byte[], Throwable> acquiredAt = BuildConfig.DEBUG ? new IdentityHashMap<byte[], Throwable>() : null;
+    private boolean leakReported;
+
+    /**
+     * @param capacity Maximum number of idle buffers.
+     */
+    public BufferPool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Parameter capacity: invalid value " + capacity + ": must be at least 1");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Borrows a buffer; return it by {@link #release(byte[])} once done.
+     *
+     * @param size Exact size of the buffer.
+     * @return A buffer of given size, with undefined content.
+     */
+    public synchronized byte[] acquire(int size) {
+        final ArrayDeque<byte[]> buffers = idle.get(size);
+        byte[] buffer = buffers != null ? buffers.poll() : null;
+        if (buffer != null) {
+            idleCount--;
+        } else {
+            if (idleCount > 0 && idleCount + borrowed >= capacity) {
+                // the idle buffers are of another size, from frames no longer coming
+                dropIdle();
+            }
+            buffer = new byte[size];
+            allocated++;
+        }
+        borrowed++;
+        if (acquiredAt != null) {
+            acquiredAt.put(buffer, new Throwable("Buffer of " + size + " bytes acquired here"));
+            if (borrowed > capacity && !leakReported) {
+                leakReported = true;
+                reportLeaks();
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer acquired from this pool; it must not be used afterwards.
+     */
+    public synchronized void release(byte[] buffer) {
+        if (acquiredAt != null && acquiredAt.remove(buffer) == null) {
+            throw new IllegalStateException("Buffer of " + buffer.length + " bytes released twice or not acquired from this pool");
+        }
+        borrowed--;
+        if (borrowed <= capacity) {
+            leakReported = false;
+        }
+        if (idleCount < capacity) {
+            ArrayDeque<byte[]> buffers = idle.get(buffer.length);
+            if (buffers == null) {
+                buffers = new ArrayDeque<>();
+                idle.put(buffer.length, buffers);
+            }
+            buffers.push(buffer);
+            idleCount++;
+        }
+    }
+
+    /**
+     * @return Number of buffers borrowed and not yet released.
+     */
+    public synchronized int getBorrowed() {
+        return borrowed;
+    }
+
+    /**
+     * @return Number of buffers allocated since the pool was created; constant while the pool keeps up.
+     */
+    public synchronized long getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * Drops all idle buffers.
+     */
+    public synchronized void clear() {
+        dropIdle();
+    }
+
+    private void dropIdle() {
+        idle.clear();
+        idleCount = 0;
+    }
+
+    private void reportLeaks() {
+        Log.w(TAG, borrowed + " buffers borrowed, capacity " + capacity + "; a stage does not release its buffers");
+        final Iterator<Throwable> iterator = acquiredAt.values().iterator();
+        for (int i = 0; i < 3 && iterator.hasNext(); i++) {
+            Log.w(TAG, "Outstanding buffer", iterator.next());
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BufferPool{capacity=" + capacity + ", idle=" + idleCount + ", borrowed=" + borrowed + ", allocated=" + allocated + "}";
+    }
+}
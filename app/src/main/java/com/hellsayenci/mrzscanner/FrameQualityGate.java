@@ -0,0 +1,196 @@
+package com.hellsayenci.mrzscanner;
+
+import java.util.Arrays;
+
+/**
+ * Rejects frames which cannot yield a valid MRZ before they reach OCR: motion-blurred, washed out by glare, or too dark or
+ * flat.
+ * <p>
+ * A region of a grayscale frame is reduced to a grid about {@link #SAMPLE_WIDTH} samples wide, every sample the mean of its
+ * block, which keeps sensor noise from passing for sharpness. Three scores are computed from the samples: the sharpness as
+ * the variance of the Laplacian, the share of saturated samples, and the contrast as the spread between the 5th and 95th
+ * percentile of the histogram. A frame passes if all three are within the thresholds; {@link Quality#score()} ranks the
+ * frames which pass.
+ * <p>
+ * The gate allocates nothing per frame once its grid fits the region; it reuses its buffers and is not thread-safe.
+ */
+public class FrameQualityGate {
+
+    /**
+     * Scores of a frame, filled by {@link #evaluate(LumaImage, int, int, int, int, Quality)}.
+     */
+    public static final class Quality {
+        /**
+         * Variance of the Laplacian of the samples; higher is sharper.
+         */
+        public float sharpness;
+        /**
+         * Share of saturated samples, 0..1.
+         */
+        public float saturated;
+        /**
+         * Spread between the 5th and 95th percentile of the samples, 0..255.
+         */
+        public int contrast;
+        /**
+         * True if all scores are within the thresholds.
+         */
+        public boolean passed;
+
+        /**
+         * Combined score to rank frames by, 0..1: the sharpness relative to a sharp frame, reduced by glare and low contrast.
+         */
+        public float score() {
+            return Math.min(1f, sharpness / (4 * DEFAULT_MIN_SHARPNESS)) * (1f - saturated) * Math.min(1f, contrast / 128f);
+        }
+
+        @Override
+        public String toString() {
+            return "Quality{sharpness=" + sharpness + ", saturated=" + saturated + ", contrast=" + contrast + ", passed=" + passed + "}";
+        }
+    }
+
+    /**
+     * Number of samples per row of the region.
+     */
+    public static final int SAMPLE_WIDTH = 256;
+    /**
+     * Default minimum sharpness; sharp MRZ text on the sample grid scores several times more.
+     */
+    public static final float DEFAULT_MIN_SHARPNESS = 150f;
+    /**
+     * Default maximum share of saturated samples.
+     */
+    public static final float DEFAULT_MAX_SATURATED = 0.15f;
+    /**
+     * Default minimum contrast.
+     */
+    public static final int DEFAULT_MIN_CONTRAST = 48;
+    /**
+     * Samples at least this bright are saturated.
+     */
+    private static final int SATURATION = 250;
+
+    public final float minSharpness;
+    public final float maxSaturated;
+    public final int minContrast;
+
+    private final int[] histogram = new int[256];
+    private int[] grid = new int[0];
+
+    /**
+     * Creates new gate with the default thresholds.
+     */
+    public FrameQualityGate() {
+        this(DEFAULT_MIN_SHARPNESS, DEFAULT_MAX_SATURATED, DEFAULT_MIN_CONTRAST);
+    }
+
+    /**
+     * Creates new gate.
+     *
+     * @param minSharpness Minimum variance of the Laplacian, 0 to accept any.
+     * @param maxSaturated Maximum share of saturated samples, 0..1; 1 to accept any.
+     * @param minContrast  Minimum spread of the histogram, 0..255; 0 to accept any.
+     */
+    public FrameQualityGate(float minSharpness, float maxSaturated, int minContrast) {
+        if (!(minSharpness >= 0)) {
+            throw new IllegalArgumentException("Parameter minSharpness: invalid value " + minSharpness + ": must not be negative");
+        }
+        if (!(maxSaturated >= 0 && maxSaturated <= 1)) {
+            throw new IllegalArgumentException("Parameter maxSaturated: invalid value " + maxSaturated + ": must be 0..1");
+        }
+        if (minContrast < 0 || minContrast > 255) {
+            throw new IllegalArgumentException("Parameter minContrast: invalid value " + minContrast + ": must be 0..255");
+        }
+        this.minSharpness = minSharpness;
+        this.maxSaturated = maxSaturated;
+        this.minContrast = minContrast;
+    }
+
+    /**
+     * Scores a region of a frame.
+     *
+     * @param image  The frame.
+     * @param left   Left edge of the region.
+     * @param top    Top edge of the region.
+     * @param right  Right edge of the region, exclusive.
+     * @param bottom Bottom edge of the region, exclusive.
+     * @param result Receives the scores.
+     * @return True if the frame passes.
+     */
+    public boolean evaluate(LumaImage image, int left, int top, int right, int bottom, Quality result) {
+        final int step = Math.max(1, (right - left) / SAMPLE_WIDTH);
+        final int width = (right - left) / step;
+        final int height = (bottom - top) / step;
+        if (width < 3 || height < 3) {
+            result.sharpness = 0;
+            result.saturated = 0;
+            result.contrast = 0;
+            result.passed = false;
+            return false;
+        }
+        sample(image, left, top, step, width, height);
+        Arrays.fill(histogram, 0);
+        int saturated = 0;
+        for (int i = 0; i < width * height; i++) {
+            histogram[grid[i]]++;
+            if (grid[i] >= SATURATION) {
+                saturated++;
+            }
+        }
+        long sum = 0;
+        long sumOfSquares = 0;
+        // the Laplacian looks at the four neighbours of every sample, so the border of the grid is left out
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1, i = y * width + 1; x < width - 1; x++, i++) {
+                final int laplacian = 4 * grid[i] - grid[i - 1] - grid[i + 1] - grid[i - width] - grid[i + width];
+                sum += laplacian;
+                sumOfSquares += laplacian * laplacian;
+            }
+        }
+        final int count = (width - 2) * (height - 2);
+        final double mean = sum / (double) count;
+        result.sharpness = (float) (sumOfSquares / (double) count - mean * mean);
+        result.saturated = saturated / (float) (width * height);
+        result.contrast = percentile(width * height * 95 / 100) - percentile(width * height * 5 / 100);
+        result.passed = result.sharpness >= minSharpness && result.saturated <= maxSaturated && result.contrast >= minContrast;
+        return result.passed;
+    }
+
+    /**
+     * Averages the blocks of step x step pixels of the region into {@link #grid}.
+     */
+    private void sample(LumaImage image, int left, int top, int step, int width, int height) {
+        if (grid.length < width * height) {
+            grid = new int[width * height];
+        }
+        final byte[] data = image.data;
+        final int area = step * step;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                for (int dy = 0; dy < step; dy++) {
+                    final int row = (top + y * step + dy) * image.width + left + x * step;
+                    for (int dx = 0; dx < step; dx++) {
+                        sum += data[row + dx] & 0xFF;
+                    }
+                }
+                grid[y * width + x] = sum / area;
+            }
+        }
+    }
+
+    /**
+     * @return The value of the sample of given rank in the histogram.
+     */
+    private int percentile(int rank) {
+        int seen = 0;
+        for (int v = 0; v < histogram.length; v++) {
+            seen += histogram[v];
+            if (seen > rank) {
+                return v;
+            }
+        }
+        return histogram.length - 1;
+    }
+}
@@ -0,0 +1,135 @@
+package com.hellsayenci.mrzscanner;
+
+import android.graphics.Bitmap;
+
+/**
+ * 8-bit grayscale image, one byte per pixel, rows without padding.
+ * <p>
+ * Cut straight from the Y plane of an NV21 camera frame: only the region to recognize is copied, rotated upright on the way
+ * by index remapping, so that no full-frame JPEG, bitmap or rotation is needed before OCR.
+ */
+public class LumaImage {
+
+    /**
+     * The pixels, row by row.
+     */
+    public final byte[] data;
+    public final int width;
+    public final int height;
+
+    public LumaImage(byte[] data, int width, int height) {
+        if (data.length < width * height) {
+            throw new IllegalArgumentException("Parameter data: invalid length " + data.length + ": must be at least " + width * height);
+        }
+        this.data = data;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Width of a frame rotated upright.
+     *
+     * @param rotation Clockwise rotation which makes the frame upright: 0, 90, 180 or 270.
+     */
+    public static int uprightWidth(int width, int height, int rotation) {
+        return rotation == 90 || rotation == 270 ? height : width;
+    }
+
+    /**
+     * Height of a frame rotated upright.
+     *
+     * @param rotation Clockwise rotation which makes the frame upright: 0, 90, 180 or 270.
+     */
+    public static int uprightHeight(int width, int height, int rotation) {
+        return rotation == 90 || rotation == 270 ? width : height;
+    }
+
+    /**
+     * Cuts a region of an NV21 frame as it appears rotated upright. Only the luma of the region is read.
+     *
+     * @param nv21     The frame, its Y plane first.
+     * @param width    Width of the frame, as delivered by the camera.
+     * @param height   Height of the frame, as delivered by the camera.
+     * @param rotation Clockwise rotation which makes the frame upright: 0, 90, 180 or 270.
+     * @param left     Left edge of the region in the upright frame.
+     * @param top      Top edge of the region in the upright frame.
+     * @param cropWidth  Width of the region.
+     * @param cropHeight Height of the region.
+     * @return The upright region.
+     */
+    public static LumaImage fromNv21(byte[] nv21, int width, int height, int rotation,
+                                     int left, int top, int cropWidth, int cropHeight) {
+        final byte[] data = new byte[cropWidth * cropHeight];
+        cropNv21(nv21, width, height, rotation, left, top, cropWidth, cropHeight, data);
+        return new LumaImage(data, cropWidth, cropHeight);
+    }
+
+    /**
+     * Copies a region of an NV21 frame as it appears rotated upright into given buffer, see
+     * {@link #fromNv21(byte[], int, int, int, int, int, int, int)}.
+     *
+     * @param out Receives the region row by row, at least cropWidth * cropHeight bytes.
+     */
+    public static void cropNv21(byte[] nv21, int width, int height, int rotation,
+                                int left, int top, int cropWidth, int cropHeight, byte[] out) {
+        final int uprightWidth = uprightWidth(width, height, rotation);
+        final int uprightHeight = uprightHeight(width, height, rotation);
+        if (left < 0 || top < 0 || cropWidth <= 0 || cropHeight <= 0
+                || left + cropWidth > uprightWidth || top + cropHeight > uprightHeight) {
+            throw new IllegalArgumentException("Parameter region: invalid value " + left + "," + top + " " + cropWidth + "x" + cropHeight
+                    + ": must lie within " + uprightWidth + "x" + uprightHeight);
+        }
+        // the luma index of upright pixel (x, y) is base + x * dx + y * dy
+        final int base;
+        final int dx;
+        final int dy;
+        switch (rotation) {
+            case 0:
+                base = 0;
+                dx = 1;
+                dy = width;
+                break;
+            case 90:
+                base = (height - 1) * width;
+                dx = -width;
+                dy = 1;
+                break;
+            case 180:
+                base = height * width - 1;
+                dx = -1;
+                dy = -width;
+                break;
+            case 270:
+                base = width - 1;
+                dx = width;
+                dy = -1;
+                break;
+            default:
+                throw new IllegalArgumentException("Parameter rotation: invalid value " + rotation + ": must be 0, 90, 180 or 270");
+        }
+        int o = 0;
+        for (int y = top; y < top + cropHeight; y++) {
+            final int row = base + left * dx + y * dy;
+            if (dx == 1) {
+                System.arraycopy(nv21, row, out, o, cropWidth);
+                o += cropWidth;
+            } else {
+                for (int x = 0, i = row; x < cropWidth; x++, i += dx) {
+                    out[o++] = nv21[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts the image into an opaque bitmap, e.g. to save it for debugging.
+     */
+    public Bitmap toBitmap() {
+        final int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            final int gray = data[i] & 0xFF;
+            pixels[i] = 0xFF000000 | gray << 16 | gray << 8 | gray;
+        }
+        return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -6,12 +6,7 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import android.content.DialogInterface;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.ImageFormat;
-import android.graphics.Matrix;
 import android.graphics.Rect;
-import android.graphics.YuvImage;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.Menu;
@@ -26,9 +21,6 @@ import com.otaliastudios.cameraview.controls.Mode;
 import com.otaliastudios.cameraview.frame.Frame;
 import com.otaliastudios.cameraview.frame.FrameProcessor;
 
-import java.io.ByteArrayOutputStream;
-import java.io.FileOutputStream;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -40,12 +32,10 @@ public class MainActivity extends AppCompatActivity {
 
     private TextRecognitionHelper textRecognitionHelper;
 
-    private AtomicBoolean processing = new AtomicBoolean(false);
+    private OcrEnginePool ocrEnginePool;
 
-    private ProcessOCR processOCR;
-
-    private Bitmap originalBitmap = null;
-    private Bitmap scannable = null;
+    // set while the scanned MRZ is shown; results of frames still in the pool are ignored
+    private boolean scanned = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -67,22 +57,11 @@ public class MainActivity extends AppCompatActivity {
         textRecognitionHelper = new TextRecognitionHelper(this, new TextRecognitionHelper.OnMRZScanned() {
             @Override
             public void onScanned(String mrzText) {
-                try {
-                    FileOutputStream fos = new FileOutputStream(getFilesDir().getAbsolutePath() + "/" + "mrzimage.png");
-                    originalBitmap.compress(Bitmap.CompressFormat.PNG, 100, fos);
-                    fos.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-
-
-                try {
-                    FileOutputStream fos = new FileOutputStream(getFilesDir().getAbsolutePath() + "/" + "scannable.png");
-                    scannable.compress(Bitmap.CompressFormat.PNG, 100, fos);
-                    fos.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
+                if (scanned) {
+                    return;
                 }
+                scanned = true;
+                ocrEnginePool.pause();
                 Log.e("Found MRZ", mrzText);
                 camera.removeFrameProcessor(frameProcessor);
 
@@ -91,96 +70,81 @@ public class MainActivity extends AppCompatActivity {
                         .setMessage(mrzText)
                         .setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
                             public void onClick(DialogInterface dialog, int which) {
-                                processing.set(false);
+                                scanned = false;
+                                ocrEnginePool.resume();
                                 camera.addFrameProcessor(frameProcessor);
                             }
                         })
                         .show();
             }
         });
-    }
 
-    private FrameProcessor frameProcessor = new FrameProcessor() {
-        @Override
-        public void process(@NonNull Frame frame) {
-            if (frame.getData() != null && !processing.get()) {
-                processing.set(true);
-
-                YuvImage yuvImage = new YuvImage(frame.getData(), ImageFormat.NV21, frame.getSize().getWidth(), frame.getSize().getHeight(), null);
-                ByteArrayOutputStream os = new ByteArrayOutputStream();
-                yuvImage.compressToJpeg(new Rect(0, 0, frame.getSize().getWidth(), frame.getSize().getHeight()), 100, os);
-                byte[] jpegByteArray = os.toByteArray();
-
-                Bitmap bitmap = BitmapFactory.decodeByteArray(jpegByteArray, 0, jpegByteArray.length);
-
-                if(bitmap != null) {
-                    bitmap = rotateImage(bitmap, frame.getRotation());
+        ocrEnginePool = new OcrEnginePool(textRecognitionHelper, OcrEnginePool.defaultSize(this));
+    }
 
-                    bitmap = getViewFinderArea(bitmap);
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (!scanned) {
+            ocrEnginePool.resume();
+        }
+    }
 
-                    originalBitmap = bitmap;
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // frames being recognized are stale by the time the scanner is back
+        ocrEnginePool.pause();
+    }
 
-                    scannable = getScannableArea(bitmap);
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        ocrEnginePool.shutdown();
+    }
 
-                    processOCR = new ProcessOCR();
-                    processOCR.setBitmap(scannable);
-                    runOnUiThread(new Runnable() {
-                        @Override
-                        public void run() {
-                            processOCR.execute();
-                        }
-                    });
-                }
+    private FrameProcessor frameProcessor = new FrameProcessor() {
+        @Override
+        public void process(@NonNull Frame frame) {
+            // runs on the camera thread; a frame still waiting for an engine is replaced by this one
+            if (frame.getData() != null) {
+                int width = frame.getSize().getWidth();
+                int height = frame.getSize().getHeight();
+                int rotation = frame.getRotation();
+
+                // crop the scannable area from the luma plane, rotated upright on the way
+                Rect viewFinder = getViewFinderArea(LumaImage.uprightWidth(width, height, rotation),
+                        LumaImage.uprightHeight(width, height, rotation));
+                Rect area = getScannableArea(viewFinder);
+
+                // the buffer is returned to the pool once the frame is recognized or dropped
+                byte[] buffer = ocrEnginePool.getBufferPool().acquire(area.width() * area.height());
+                LumaImage.cropNv21(frame.getData(), width, height, rotation,
+                        area.left, area.top, area.width(), area.height(), buffer);
+
+                ocrEnginePool.submit(new LumaImage(buffer, area.width(), area.height()), frame.getTime());
             }
         }
     };
 
-    private Bitmap getViewFinderArea(Bitmap bitmap) {
+    private Rect getViewFinderArea(int imageWidth, int imageHeight) {
         int sizeInPixel = getResources().getDimensionPixelSize(R.dimen.frame_margin);
-        int center = bitmap.getHeight() / 2;
+        int center = imageHeight / 2;
 
         int left = sizeInPixel;
-        int right = bitmap.getWidth() - sizeInPixel;
+        int right = imageWidth - sizeInPixel;
         int width = right - left;
         int frameHeight = (int) (width / 1.42f); // Passport's size (ISO/IEC 7810 ID-3) is 125mm × 88mm
 
-        int top = center - (frameHeight / 2);
-
-        bitmap = Bitmap.createBitmap(bitmap, left, top,
-                width, frameHeight);
+        int top = Math.max(0, center - (frameHeight / 2));
 
-        return bitmap;
+        return new Rect(left, top, right, Math.min(imageHeight, top + frameHeight));
     }
 
-    private Bitmap getScannableArea(Bitmap bitmap){
-        int top = bitmap.getHeight() * 4 / 10;
-
-        bitmap = Bitmap.createBitmap(bitmap, 0, top,
-                bitmap.getWidth(), bitmap.getHeight() - top);
+    private Rect getScannableArea(Rect viewFinder){
+        int top = viewFinder.top + viewFinder.height() * 4 / 10;
 
-        return bitmap;
-    }
-
-    private Bitmap rotateImage(Bitmap bitmap, int rotate){
-        Log.v(TAG, "Rotation: " + rotate);
-
-        if (rotate != 0) {
-
-            // Getting width & height of the given image.
-            int w = bitmap.getWidth();
-            int h = bitmap.getHeight();
-
-            // Setting pre rotate
-            Matrix mtx = new Matrix();
-            mtx.preRotate(rotate);
-
-            // Rotating Bitmap
-            bitmap = Bitmap.createBitmap(bitmap, 0, 0, w, h, mtx, false);
-        }
-
-        // Convert to ARGB_8888, required by tess
-        bitmap = bitmap.copy(Bitmap.Config.ARGB_8888, true);
-        return bitmap;
+        return new Rect(viewFinder.left, top, viewFinder.right, viewFinder.bottom);
     }
 
     /**
@@ -204,34 +168,6 @@ public class MainActivity extends AppCompatActivity {
         return Bitmap.createScaledBitmap(image, width, height, true);
     }
 
-    private class ProcessOCR extends AsyncTask {
-
-        Bitmap bitmap = null;
-
-        @Override
-        protected Object doInBackground(Object[] objects) {
-            if (bitmap != null) {
-
-                textRecognitionHelper.setBitmap(bitmap);
-
-                textRecognitionHelper.doOCR();
-
-                textRecognitionHelper.stop();
-
-            }
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Object o) {
-            processing.set(false);
-        }
-
-        public void setBitmap(Bitmap bitmap) {
-            this.bitmap = bitmap;
-        }
-    }
-
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
         return true;
@@ -0,0 +1,301 @@
+package com.hellsayenci.mrzscanner;
+
+/**
+ * Finds the MRZ in a grayscale frame before OCR, so that frames without an MRZ cost a few milliseconds instead of a full
+ * OCR pass, and the OCR reads only the MRZ itself.
+ * <p>
+ * The frame is downsampled to about {@link #TARGET_WIDTH} pixels wide. Pixels with a strong horizontal gradient, the
+ * vertical strokes of characters, form the text map. Every row of the map is reduced to its longest run of text pixels
+ * with small gaps; rows with a run of at least {@link #MIN_LINE_WIDTH} of the width are grouped into bands, the candidate
+ * text lines. An MRZ is two or three consecutive bands of about the same height and the same width and extent, evenly
+ * spaced, each much wider than tall. Three lines beat two, then the lowest group wins, as the MRZ is at the bottom of the
+ * document.
+ * <p>
+ * The locator reuses its buffers and is not thread-safe.
+ */
+public class MrzLocator {
+
+    /**
+     * A located MRZ, in pixels of the original frame, the right and bottom edges exclusive.
+     */
+    public static final class Region {
+        public final int left;
+        public final int top;
+        public final int right;
+        public final int bottom;
+        /**
+         * Number of text lines found, 2 or 3.
+         */
+        public final int lines;
+
+        Region(int left, int top, int right, int bottom, int lines) {
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+            this.lines = lines;
+        }
+
+        public int width() {
+            return right - left;
+        }
+
+        public int height() {
+            return bottom - top;
+        }
+
+        @Override
+        public String toString() {
+            return "Region{" + left + "," + top + "," + right + "," + bottom + ", lines=" + lines + "}";
+        }
+    }
+
+    /**
+     * Width the frame is downsampled to.
+     */
+    public static final int TARGET_WIDTH = 256;
+    /**
+     * Minimum width of a text line, relative to the frame width.
+     */
+    public static final float MIN_LINE_WIDTH = 0.35f;
+    /**
+     * Minimum gradient of a text pixel, 0..255; the actual threshold also adapts to the contrast of the frame.
+     */
+    private static final int MIN_GRADIENT = 16;
+    /**
+     * Minimum ratio of the width of a text line to its height: about 25 for the 30 characters of an ID card line, 37 for the
+     * 44 characters of a passport line, less once blurred.
+     */
+    private static final float MIN_ASPECT = 16f;
+    /**
+     * Range of the ratio of the line pitch to the line height.
+     */
+    private static final float MIN_PITCH = 1.2f;
+    private static final float MAX_PITCH = 3.5f;
+
+    private byte[] small = new byte[0];
+    private int[] runLeft = new int[0];
+    private int[] runRight = new int[0];
+    // bands found in the current frame: first row, last row (inclusive), left and right column
+    private int[] bandTop = new int[8];
+    private int[] bandBottom = new int[8];
+    private int[] bandLeft = new int[8];
+    private int[] bandRight = new int[8];
+    private int bands;
+
+    /**
+     * Locates the MRZ in given frame.
+     *
+     * @param image The frame.
+     * @return The MRZ with a margin of about a line height, or null if the frame shows no MRZ.
+     */
+    public Region locate(LumaImage image) {
+        final int factor = Math.max(1, Math.round(image.width / (float) TARGET_WIDTH));
+        final int width = image.width / factor;
+        final int height = image.height / factor;
+        if (width < 16 || height < 4) {
+            return null;
+        }
+        downsample(image, factor, width, height);
+        findRuns(width, height);
+        findBands(width, height);
+        return match(image, factor);
+    }
+
+    /**
+     * Averages blocks of factor x factor pixels into {@link #small}.
+     */
+    private void downsample(LumaImage image, int factor, int width, int height) {
+        if (small.length < width * height) {
+            small = new byte[width * height];
+        }
+        final byte[] data = image.data;
+        final int area = factor * factor;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                for (int dy = 0; dy < factor; dy++) {
+                    final int row = (y * factor + dy) * image.width + x * factor;
+                    for (int dx = 0; dx < factor; dx++) {
+                        sum += data[row + dx] & 0xFF;
+                    }
+                }
+                small[y * width + x] = (byte) (sum / area);
+            }
+        }
+    }
+
+    /**
+     * Finds the longest run of text pixels of every row; runLeft &gt; runRight for rows without text.
+     */
+    private void findRuns(int width, int height) {
+        if (runLeft.length < height) {
+            runLeft = new int[height];
+            runRight = new int[height];
+        }
+        // the threshold follows the contrast, so that the texture of an empty background does not count as text
+        long total = 0;
+        for (int y = 0; y < height; y++) {
+            final int row = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                total += Math.abs((small[row + x + 1] & 0xFF) - (small[row + x - 1] & 0xFF));
+            }
+        }
+        final int threshold = Math.max(MIN_GRADIENT, (int) (2 * total / (height * (width - 2))));
+        // about the width of a character, so that the gaps between characters and words do not split a line
+        final int maxGap = Math.max(2, width / 32);
+        for (int y = 0; y < height; y++) {
+            final int row = y * width;
+            int bestLeft = 1;
+            int bestRight = 0;
+            int left = -1;
+            int last = -1;
+            for (int x = 1; x < width - 1; x++) {
+                final int gradient = Math.abs((small[row + x + 1] & 0xFF) - (small[row + x - 1] & 0xFF));
+                if (gradient < threshold) {
+                    continue;
+                }
+                if (left < 0 || x - last > maxGap) {
+                    left = x;
+                }
+                last = x;
+                if (last - left > bestRight - bestLeft) {
+                    bestLeft = left;
+                    bestRight = last;
+                }
+            }
+            runLeft[y] = bestLeft;
+            runRight[y] = bestRight;
+        }
+    }
+
+    /**
+     * Groups consecutive rows with a wide run into bands, bridging single rows without one.
+     */
+    private void findBands(int width, int height) {
+        final int minWidth = (int) (MIN_LINE_WIDTH * width);
+        bands = 0;
+        int top = -1;
+        int gap = 0;
+        for (int y = 0; y <= height; y++) {
+            final boolean text = y < height && runRight[y] - runLeft[y] >= minWidth;
+            if (text) {
+                if (top < 0) {
+                    top = y;
+                }
+                gap = 0;
+            } else if (top >= 0 && (++gap > 1 || y == height)) {
+                addBand(top, y - gap);
+                top = -1;
+                gap = 0;
+            }
+        }
+    }
+
+    private void addBand(int top, int bottom) {
+        if (bands == bandTop.length) {
+            bandTop = grow(bandTop);
+            bandBottom = grow(bandBottom);
+            bandLeft = grow(bandLeft);
+            bandRight = grow(bandRight);
+        }
+        int left = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        for (int y = top; y <= bottom; y++) {
+            if (runRight[y] >= runLeft[y]) {
+                left = Math.min(left, runLeft[y]);
+                right = Math.max(right, runRight[y]);
+            }
+        }
+        bandTop[bands] = top;
+        bandBottom[bands] = bottom;
+        bandLeft[bands] = left;
+        bandRight[bands] = right;
+        bands++;
+    }
+
+    private static int[] grow(int[] array) {
+        final int[] result = new int[array.length * 2];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    /**
+     * Finds the best group of bands which looks like an MRZ.
+     */
+    private Region match(LumaImage image, int factor) {
+        int bestFirst = -1;
+        int bestLines = 0;
+        for (int lines = 3; lines >= 2 && bestFirst < 0; lines--) {
+            // the lowest group first
+            for (int first = bands - lines; first >= 0 && bestFirst < 0; first--) {
+                if (isMrz(first, lines)) {
+                    bestFirst = first;
+                    bestLines = lines;
+                }
+            }
+        }
+        if (bestFirst < 0) {
+            return null;
+        }
+        final int last = bestFirst + bestLines - 1;
+        int left = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int lineHeight = 0;
+        for (int b = bestFirst; b <= last; b++) {
+            left = Math.min(left, bandLeft[b]);
+            right = Math.max(right, bandRight[b]);
+            lineHeight = Math.max(lineHeight, bandBottom[b] - bandTop[b] + 1);
+        }
+        final int margin = lineHeight * factor;
+        return new Region(Math.max(0, left * factor - margin),
+                Math.max(0, bandTop[bestFirst] * factor - margin),
+                Math.min(image.width, (right + 1) * factor + margin),
+                Math.min(image.height, (bandBottom[last] + 1) * factor + margin),
+                bestLines);
+    }
+
+    private boolean isMrz(int first, int lines) {
+        int minHeight = Integer.MAX_VALUE;
+        int maxHeight = 0;
+        int left = Integer.MIN_VALUE;
+        int right = Integer.MAX_VALUE;
+        int minWidth = Integer.MAX_VALUE;
+        int maxWidth = 0;
+        for (int b = first; b < first + lines; b++) {
+            final int h = bandBottom[b] - bandTop[b] + 1;
+            minHeight = Math.min(minHeight, h);
+            maxHeight = Math.max(maxHeight, h);
+            left = Math.max(left, bandLeft[b]);
+            right = Math.min(right, bandRight[b]);
+            minWidth = Math.min(minWidth, bandRight[b] - bandLeft[b] + 1);
+            maxWidth = Math.max(maxWidth, bandRight[b] - bandLeft[b] + 1);
+        }
+        // uniformly tall lines, one row of tolerance for the downsampling; only the middle of a chevron is text, so a line
+        // of mostly filler measures shorter, which three evenly spaced lines of the same extent can afford
+        final int tolerance = lines == 3 ? maxHeight / 2 : maxHeight * 2 / 5;
+        if (maxHeight - minHeight > Math.max(1, tolerance)) {
+            return false;
+        }
+        // all lines of about the same extent: MRZ lines are filled up to their full length
+        if (minWidth < maxWidth * 3 / 4 || right - left + 1 < minWidth * 7 / 10) {
+            return false;
+        }
+        if (minWidth < MIN_ASPECT * maxHeight) {
+            return false;
+        }
+        // evenly spaced at a pitch fitting the line height
+        int minPitch = Integer.MAX_VALUE;
+        int maxPitch = 0;
+        for (int b = first + 1; b < first + lines; b++) {
+            final int pitch = (bandTop[b] + bandBottom[b]) - (bandTop[b - 1] + bandBottom[b - 1]);
+            minPitch = Math.min(minPitch, pitch);
+            maxPitch = Math.max(maxPitch, pitch);
+        }
+        // pitches are in half rows here
+        if (minPitch < MIN_PITCH * 2 * maxHeight - 2 || maxPitch > MAX_PITCH * 2 * maxHeight + 2) {
+            return false;
+        }
+        return maxPitch - minPitch <= Math.max(2, maxPitch / 4);
+    }
+}
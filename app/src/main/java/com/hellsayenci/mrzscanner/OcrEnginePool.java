@@ -0,0 +1,329 @@
+package com.hellsayenci.mrzscanner;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.googlecode.tesseract.android.TessBaseAPI;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size pool of tesseract engines recognizing frames in parallel.
+ * <p>
+ * Every worker thread owns one engine and takes frames from a single-slot mailbox: a newer frame replaces the pending one,
+ * as a newer frame is worth more, so an engine which becomes free always starts on the latest frame. Frames are submitted
+ * straight from the camera thread, without a hop through the main thread. While paused, frames are dropped and the
+ * recognitions in progress are cancelled, their results ignored. The OCR output of every frame is checked by the shared
+ * {@link TextRecognitionHelper}, tagged with the frame timestamp, so that the newest frame with a valid MRZ wins even when
+ * the workers finish out of order.
+ * <p>
+ * Grayscale frames are expected in buffers borrowed from {@link #getBufferPool()}; the pool returns them once they are
+ * recognized or dropped. Before OCR, every grayscale frame goes through a {@link MrzLocator}: frames without an MRZ are
+ * skipped, and only the located MRZ is recognized. As the locator may miss an MRZ it has not seen the like of, every
+ * {@link #FULL_FRAME_INTERVAL}th frame skipped in a row is recognized whole anyway. Frames which then fail the
+ * {@link FrameQualityGate}, blurred, glared or too dark, are rejected without OCR.
+ */
+public class OcrEnginePool {
+
+    private static final String TAG = "OcrEnginePool";
+
+    /**
+     * Memory class, in megabytes, needed per engine: tesseract with the trained data takes tens of megabytes of native memory
+     * per engine, and the memory class is the best hint of the device memory there is.
+     */
+    private static final int MEMORY_CLASS_PER_ENGINE = 64;
+
+    /**
+     * Every this many frames without a located MRZ, a worker recognizes the whole frame anyway.
+     */
+    public static final int FULL_FRAME_INTERVAL = 8;
+
+    /**
+     * A frame to recognize, either a bitmap or a grayscale image.
+     */
+    private static final class Job {
+        final Bitmap bitmap;
+        final LumaImage luma;
+        final long timestamp;
+        /**
+         * The {@link #epoch} the frame was submitted in.
+         */
+        int epoch;
+
+        Job(Bitmap bitmap, LumaImage luma, long timestamp) {
+            this.bitmap = bitmap;
+            this.luma = luma;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private final TextRecognitionHelper helper;
+    private final BufferPool bufferPool;
+    private final Thread[] workers;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    // guards the fields below
+    private final Object lock = new Object();
+    // the frame waiting for an engine, null if none
+    private Job pending;
+    // the engine of every worker, and the frame it recognizes, null while idle
+    private final TessBaseAPI[] engines;
+    private final Job[] running;
+    // incremented on pause, so that results of frames submitted before are ignored
+    private int epoch;
+    private boolean paused;
+    private boolean stopped;
+
+    /**
+     * Creates the pool and starts its workers; the engines are initialized by the workers.
+     *
+     * @param helper Checks the OCR output of every frame.
+     * @param size   Number of engines, see {@link #defaultSize(Context)}.
+     */
+    public OcrEnginePool(TextRecognitionHelper helper, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Parameter size: invalid value " + size + ": must be at least 1");
+        }
+        this.helper = helper;
+        // the pending frame, one being recognized by every engine and one being filled
+        this.bufferPool = new BufferPool(size + 2);
+        this.engines = new TessBaseAPI[size];
+        this.running = new Job[size];
+        this.workers = new Thread[size];
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work(index);
+                }
+            }, TAG + "-" + i);
+            workers[i].start();
+        }
+        Log.i(TAG, "Started " + size + " engines");
+    }
+
+    /**
+     * Number of engines worth running on this device: one per core, one core left to the camera and the UI, and no more than
+     * the memory allows.
+     *
+     * @param context Any context.
+     * @return The pool size, at least 1.
+     */
+    public static int defaultSize(Context context) {
+        final int cores = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        final ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) {
+            return 1;
+        }
+        if (activityManager.isLowRamDevice()) {
+            return 1;
+        }
+        final int memory = Math.max(1, activityManager.getMemoryClass() / MEMORY_CLASS_PER_ENGINE);
+        return Math.min(cores, memory);
+    }
+
+    /**
+     * @return Number of engines.
+     */
+    public int size() {
+        return workers.length;
+    }
+
+    /**
+     * @return The pool the buffers of grayscale frames are to be borrowed from.
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Submits a frame for recognition, replacing the pending frame if there is one.
+     *
+     * @param bitmap    The image to recognize, not modified afterwards.
+     * @param timestamp Time the frame was taken.
+     * @return False if the pool is paused or shut down; the frame is dropped.
+     */
+    public boolean submit(Bitmap bitmap, long timestamp) {
+        return submit(new Job(bitmap, null, timestamp));
+    }
+
+    /**
+     * Submits a grayscale frame for recognition, replacing the pending frame if there is one.
+     *
+     * @param image     The image to recognize, its data borrowed from {@link #getBufferPool()} and owned by the pool from now on.
+     * @param timestamp Time the frame was taken.
+     * @return False if the pool is paused or shut down; the frame is dropped.
+     */
+    public boolean submit(LumaImage image, long timestamp) {
+        return submit(new Job(null, image, timestamp));
+    }
+
+    private boolean submit(Job job) {
+        final Job replaced;
+        synchronized (lock) {
+            if (paused || stopped) {
+                replaced = job;
+            } else {
+                replaced = pending;
+                job.epoch = epoch;
+                pending = job;
+                lock.notify();
+            }
+        }
+        recycle(replaced);
+        return replaced != job;
+    }
+
+    /**
+     * Stops scanning, e.g. while the activity is paused or once an MRZ was found: drops the pending frame and all frames
+     * submitted until {@link #resume()}, and cancels the recognitions in progress.
+     */
+    public void pause() {
+        final Job dropped;
+        synchronized (lock) {
+            paused = true;
+            epoch++;
+            dropped = pending;
+            pending = null;
+            for (int i = 0; i < running.length; i++) {
+                if (running[i] != null) {
+                    engines[i].stop();
+                }
+            }
+        }
+        recycle(dropped);
+    }
+
+    /**
+     * Accepts frames again after {@link #pause()}.
+     */
+    public void resume() {
+        synchronized (lock) {
+            paused = false;
+        }
+    }
+
+    private void recycle(Job job) {
+        if (job != null && job.luma != null) {
+            bufferPool.release(job.luma.data);
+        }
+    }
+
+    /**
+     * @return Number of frames recognized so far, to measure the throughput.
+     */
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * @return Number of frames skipped so far as the locator found no MRZ in them.
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * @return Number of frames rejected so far by the quality gate.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Stops the workers. The pending frame is dropped and the recognitions in progress are cancelled; the engines are
+     * released by the workers.
+     */
+    public void shutdown() {
+        pause();
+        synchronized (lock) {
+            stopped = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void work(int index) {
+        final TessBaseAPI engine = helper.createEngine();
+        final MrzLocator locator = new MrzLocator();
+        final FrameQualityGate gate = new FrameQualityGate();
+        final FrameQualityGate.Quality quality = new FrameQualityGate.Quality();
+        int missed = 0;
+        synchronized (lock) {
+            engines[index] = engine;
+        }
+        try {
+            while (true) {
+                final Job job;
+                synchronized (lock) {
+                    while (pending == null && !stopped) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (stopped) {
+                        return;
+                    }
+                    job = pending;
+                    pending = null;
+                    running[index] = job;
+                }
+                try {
+                    if (job.luma != null) {
+                        final MrzLocator.Region region = locator.locate(job.luma);
+                        if (region == null && ++missed < FULL_FRAME_INTERVAL) {
+                            skipped.incrementAndGet();
+                            continue;
+                        }
+                        missed = 0;
+                        final boolean passed = region != null
+                                ? gate.evaluate(job.luma, region.left, region.top, region.right, region.bottom, quality)
+                                : gate.evaluate(job.luma, 0, 0, job.luma.width, job.luma.height, quality);
+                        if (!passed) {
+                            Log.v(TAG, "Rejected " + quality);
+                            rejected.incrementAndGet();
+                            continue;
+                        }
+                        engine.setImage(job.luma.data, job.luma.width, job.luma.height, 1, job.luma.width);
+                        if (region != null) {
+                            engine.setRectangle(region.left, region.top, region.width(), region.height());
+                        }
+                    } else {
+                        engine.setImage(job.bitmap);
+                    }
+                    final String text = engine.getUTF8Text();
+                    Log.v(TAG, "OCRED TEXT: " + text);
+                    final boolean stale;
+                    synchronized (lock) {
+                        running[index] = null;
+                        stale = job.epoch != epoch;
+                    }
+                    // a cancelled recognition returns what it found so far
+                    if (!stale) {
+                        helper.checkMRZ(job.timestamp, TextRecognitionHelper.readResult(engine), text);
+                    }
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Recognition failed: " + e.getMessage());
+                } finally {
+                    synchronized (lock) {
+                        running[index] = null;
+                    }
+                    engine.clear();
+                    recycle(job);
+                }
+                completed.incrementAndGet();
+            }
+        } finally {
+            synchronized (lock) {
+                engines[index] = null;
+            }
+            engine.end();
+        }
+    }
+}
@@ -13,17 +13,25 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import android.content.Context;
 
+import android.util.Pair;
+
 import com.googlecode.leptonica.android.Pixa;
+import com.googlecode.tesseract.android.ResultIterator;
 import com.googlecode.tesseract.android.TessBaseAPI;
+import com.hellsayenci.mrzscanner.mrz.MrzCandidateExtractor;
+import com.hellsayenci.mrzscanner.mrz.MrzConsensus;
+import com.hellsayenci.mrzscanner.mrz.MrzCorrector;
+import com.hellsayenci.mrzscanner.mrz.MrzOcrResult;
+import com.hellsayenci.mrzscanner.mrz.MrzParseCache;
 import com.hellsayenci.mrzscanner.mrz.MrzParser;
 import com.hellsayenci.mrzscanner.mrz.MrzRecord;
+import com.hellsayenci.mrzscanner.mrz.MrzValidationResult;
 import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
 
 /**
@@ -37,10 +45,9 @@ public class TextRecognitionHelper {
 	private static String TESSERACT_PATH = null;
 
 	private final Context applicationContext;
-	private final TessBaseAPI tessBaseApi;
-
-	Pattern passportLine1Pattern = Pattern.compile("[A-Z0-9<]{2}[A-Z<]{3}[A-Z0-9<]{39}");
-	Pattern passportLine2Pattern = Pattern.compile("[A-Z0-9<]{9}[0-9]{1}[A-Z<]{3}[0-9]{6}[0-9]{1}[FM<]{1}[0-9]{6}[0-9]{1}[A-Z0-9<]{14}[0-9]{1}[0-9]{1}");
+	// created on first use; frames recognized by an OcrEnginePool never need it
+	private TessBaseAPI tessBaseApi;
+	private String language;
 
 	private List<MrzFormat> mrzFormats = new ArrayList<>();
 
@@ -48,6 +55,35 @@ public class TextRecognitionHelper {
 
 	private OnMRZScanned listener;
 
+	/**
+	 * Corrected candidates with a lower confidence are ignored.
+	 */
+	private static final float MIN_CORRECTION_CONFIDENCE = 0.5f;
+
+	private final MrzCorrector mrzCorrector = new MrzCorrector();
+	// reused for every frame; the OcrEnginePool workers share it, one at a time through the synchronized checkMRZ
+	private final MrzValidationResult mrzValidation = new MrzValidationResult();
+	// a document held still yields the same text frame after frame
+	private final MrzParseCache parseCache = new MrzParseCache(16);
+
+	/**
+	 * At most this many of the best candidates of a frame are checked.
+	 */
+	private static final int MAX_CANDIDATES = 3;
+
+	/**
+	 * At most this many alternative readings are kept per symbol.
+	 */
+	private static final int MAX_ALTERNATIVES = 3;
+
+	private final MrzCandidateExtractor candidateExtractor;
+	// fuses the readings of successive frames of the same document
+	private final MrzConsensus consensus = new MrzConsensus();
+	// timestamp of the newest frame reported to the listener
+	private volatile long reportedTimestamp = Long.MIN_VALUE;
+	// timestamp of the frame being checked
+	private long frameTimestamp;
+
 	/**
 	 * Constructor.
 	 *
@@ -56,9 +92,9 @@ public class TextRecognitionHelper {
 	public TextRecognitionHelper(final Context context, final OnMRZScanned listener) {
 		this.applicationContext = context.getApplicationContext();
 		this.listener = listener;
-		this.tessBaseApi = new TessBaseAPI();
 		this.TESSERACT_PATH = context.getFilesDir().getAbsolutePath() + "/";
-		prepareTesseract("ocrb");
+		this.language = "ocrb";
+		prepareTessData();
 
 		mrzFormats.add(MrzFormat.PASSPORT);
 		mrzFormats.add(MrzFormat.MRTD_TD2);
@@ -70,6 +106,8 @@ public class TextRecognitionHelper {
 		supportedFormats.add(MrzFormat.MRTD_TD2);
 		supportedFormats.add(MrzFormat.FRENCH_ID);
 		supportedFormats.add(MrzFormat.MRTD_TD1);
+
+		candidateExtractor = new MrzCandidateExtractor(mrzFormats);
 	}
 
 	/**
@@ -78,6 +116,28 @@ public class TextRecognitionHelper {
 	 * @param language Language code in ISO-639-3 format.
 	 */
 	public void prepareTesseract(final String language) {
+		this.language = language;
+		prepareTessData();
+		if (tessBaseApi != null)
+			tessBaseApi.end();
+		tessBaseApi = createEngine();
+	}
+
+	/**
+	 * Create a new tesseract engine for the current language.
+	 * Every engine holds its own copy of the trained data, and is to be used by one thread at a time.
+	 *
+	 * @return The initialized engine.
+	 */
+	TessBaseAPI createEngine() {
+		final TessBaseAPI engine = new TessBaseAPI();
+		engine.init(TESSERACT_PATH, language);
+		// keep the alternative readings of every symbol for the result iterator
+		engine.setVariable("save_blob_choices", "T");
+		return engine;
+	}
+
+	private void prepareTessData() {
 		try {
 			prepareDirectory(TESSERACT_PATH + TESSERACT_TRAINED_DATA_FOLDER);
 		} catch (Exception e) {
@@ -85,7 +145,6 @@ public class TextRecognitionHelper {
 		}
 
 		copyTessDataFiles(TESSERACT_TRAINED_DATA_FOLDER);
-		tessBaseApi.init(TESSERACT_PATH, language);
 	}
 
 	private void prepareDirectory(String path) {
@@ -132,92 +191,186 @@ public class TextRecognitionHelper {
 	 */
 	public void setBitmap(final Bitmap bitmap) {
 		//tessBaseApi.setPageSegMode(TessBaseAPI.PageSegMode.PSM_SINGLE_BLOCK_VERT_TEXT);
+		if (tessBaseApi == null)
+			tessBaseApi = createEngine();
 		tessBaseApi.setImage(bitmap);
 	}
 
 	/**
-	 * Get recognized text for image.
+	 * Set grayscale image for recognition.
 	 *
-	 * @return Recognized text string.
+	 * @param image Image data, one byte per pixel.
+	 */
+	public void setImage(final LumaImage image) {
+		if (tessBaseApi == null)
+			tessBaseApi = createEngine();
+		tessBaseApi.setImage(image.data, image.width, image.height, 1, image.width);
+	}
+
+	/**
+	 * Recognize the image and check it for an MRZ.
 	 */
 	public void doOCR() {
 		String text = tessBaseApi.getUTF8Text();
 		Log.v(TAG, "OCRED TEXT: " + text);
-		checkMRZ(text);
+		checkMRZ(System.currentTimeMillis(), readResult(tessBaseApi), text);
 	}
 
-	public void checkMRZ(String txt){
-		final String mrzText = preProcessText(txt);
-
-		if(mrzText != null) {
-			Log.i("Found possible MRZ", mrzText);
-			try {
-				MrzRecord mrzRecord = MrzParser.parse(mrzText);
-				if(mrzRecord != null) {
-					if(supportedFormats.contains(mrzRecord.format)) {
-						boolean additionalPassportCheckOK = true;
-						if(mrzRecord.format == MrzFormat.PASSPORT){
-							if(!passportLine1Pattern.matcher(mrzText).find()
-							|| !passportLine2Pattern.matcher(mrzText).find())
-								additionalPassportCheckOK = false;
-						}
-
-						if(additionalPassportCheckOK) {
-							new Handler(Looper.getMainLooper()).post(new Runnable() {
-								@Override
-								public void run() {
-									listener.onScanned(mrzText);
-								}
-							});
-							return;
+	/**
+	 * Collects the lines and symbols of the last recognition of an engine, with their boxes, confidences and alternatives.
+	 *
+	 * @return The result, null if tesseract did not recognize anything.
+	 */
+	static MrzOcrResult readResult(final TessBaseAPI engine) {
+		final ResultIterator iterator = engine.getResultIterator();
+		if(iterator == null)
+			return null;
+		final List<MrzOcrResult.Line> lines = new ArrayList<>();
+		final List<MrzOcrResult.Symbol> symbols = new ArrayList<>();
+		try {
+			iterator.begin();
+			do {
+				if(iterator.isAtBeginningOf(TessBaseAPI.PageIteratorLevel.RIL_TEXTLINE) && !symbols.isEmpty()) {
+					lines.add(new MrzOcrResult.Line(symbols));
+					symbols.clear();
+				}
+				final String text = iterator.getUTF8Text(TessBaseAPI.PageIteratorLevel.RIL_SYMBOL);
+				if(text == null || text.isEmpty())
+					continue;
+				final int[] box = iterator.getBoundingBox(TessBaseAPI.PageIteratorLevel.RIL_SYMBOL);
+				final float confidence = iterator.confidence(TessBaseAPI.PageIteratorLevel.RIL_SYMBOL) / 100f;
+				// choices come most confident first and include the reading itself
+				final List<Pair<String, Double>> choices = iterator.getChoicesAndConfidence(TessBaseAPI.PageIteratorLevel.RIL_SYMBOL);
+				final String[] alternatives = new String[MAX_ALTERNATIVES];
+				final float[] alternativeConfidences = new float[MAX_ALTERNATIVES];
+				int count = 0;
+				if(choices != null) {
+					for(int i = 0; i < choices.size() && count < MAX_ALTERNATIVES; i++) {
+						final Pair<String, Double> choice = choices.get(i);
+						if(choice.first != null && !choice.first.equals(text)) {
+							alternatives[count] = choice.first;
+							alternativeConfidences[count++] = (float) (choice.second / 100);
 						}
 					}
 				}
-			} catch (Exception e){
-				Log.i("MRZ Parser", "Failed");
-			}
+				symbols.add(new MrzOcrResult.Symbol(text, box[0], box[1], box[2], box[3], confidence,
+						Arrays.copyOf(alternatives, count), Arrays.copyOf(alternativeConfidences, count)));
+			} while(iterator.next(TessBaseAPI.PageIteratorLevel.RIL_SYMBOL));
+		} finally {
+			iterator.delete();
 		}
+		if(!symbols.isEmpty())
+			lines.add(new MrzOcrResult.Line(symbols));
+		return lines.isEmpty() ? null : new MrzOcrResult(lines);
 	}
 
-	private String preProcessText(String txt) {
-		String[] lines = txt.split("\n");
-		if(lines == null || lines.length < 1)
-			return null;
-		for(MrzFormat mrzFormat : mrzFormats) {
-			for (int i = lines.length - 1; i >= 0; i--) {
-				String line2 = lines[i].replace(" ", "");
-				if(line2.length() >= mrzFormat.columns){
-					if(i == 0)
-						break;
-					String line1 = lines[i - 1].replace(" ", "");
-					if(line1.length() >= mrzFormat.columns)
-						if(mrzFormat.rows == 2)
-							return line1.substring(0, mrzFormat.columns) + "\n" +
-									line2.substring(0, mrzFormat.columns);
-						else if(mrzFormat.rows == 3){
-							if(lines.length < 2 || i < 1)
-								break;
-							String line0 = lines[i - 2].replace(" ", "");
-							if(line0.length() >= mrzFormat.columns)
-								return line0.substring(0, mrzFormat.columns) + "\n" +
-										line1.substring(0, mrzFormat.columns) + "\n" +
-										line2.substring(0, mrzFormat.columns);
-							else
-								break;
+	public void checkMRZ(String txt){
+		checkMRZ(System.currentTimeMillis(), null, txt);
+	}
+
+	/**
+	 * Checks a structured OCR result, so that characters read with a low confidence can be repaired by their alternatives.
+	 */
+	public void checkMRZ(MrzOcrResult result){
+		checkMRZ(System.currentTimeMillis(), result, null);
+	}
+
+	/**
+	 * Checks the OCR output of a frame. May be called from several threads; when frames are checked out of order, only the
+	 * newest frame with a valid MRZ is reported.
+	 *
+	 * @param timestamp Time the frame was taken.
+	 * @param result Structured OCR result, null if not available.
+	 * @param text Plain OCR text, used when there is no structured result.
+	 */
+	public synchronized void checkMRZ(long timestamp, MrzOcrResult result, String text){
+		frameTimestamp = timestamp;
+		if(result != null)
+			checkCandidates(candidateExtractor.extract(result));
+		else if(text != null)
+			checkCandidates(candidateExtractor.extract(text));
+	}
+
+	private void checkCandidates(final List<MrzCandidateExtractor.Candidate> candidates){
+		// best candidates first; stop at the first one which makes it through
+		if(candidates.isEmpty())
+			return;
+		for(int i = 0; i < candidates.size() && i < MAX_CANDIDATES; i++) {
+			if(checkCandidate(candidates.get(i).mrz, candidates.get(i).symbols))
+				return;
+		}
+		// no single reading passed every check, but the readings of the last frames together may
+		final String fused = consensus.offer(candidates.get(0).mrz);
+		if(fused != null) {
+			Log.i("MRZ consensus", consensus + " " + fused);
+			checkCandidate(fused, null);
+		}
+	}
+
+	/**
+	 * Corrects, validates and parses a single MRZ candidate and reports it when it passes every check digit and is a supported
+	 * document.
+	 *
+	 * @param symbols The OCR symbols of the candidate characters, null if not known.
+	 * @return true if the candidate was reported.
+	 */
+	private boolean checkCandidate(final String candidate, final MrzOcrResult.Symbol[] symbols) {
+		Log.i("Found possible MRZ", candidate);
+		// repair OCR misreads guided by the check digits instead of waiting for a cleaner frame
+		final MrzCorrector.Result correction = mrzCorrector.correct(candidate, symbols);
+		final String mrzText;
+		if(correction != null && correction.valid && correction.corrections > 0
+				&& correction.confidence >= MIN_CORRECTION_CONFIDENCE) {
+			Log.i("Corrected MRZ", correction + " " + correction.mrz);
+			mrzText = correction.mrz;
+		} else {
+			mrzText = candidate;
+		}
+		// reject misplaced characters of any format before looking at the fields
+		final MrzFormat format = MrzFormat.find(mrzText);
+		if(format == null || !format.isStructurallyValid(mrzText)) {
+			Log.i("MRZ Parser", "Failed: misplaced characters");
+			return false;
+		}
+		// most frames fail; find out without paying for a parse exception, and never report a misread check digit
+		if(!MrzParser.validate(mrzText, mrzValidation)) {
+			Log.i("MRZ Parser", "Failed: " + mrzValidation.getError());
+			return false;
+		}
+		try {
+			MrzRecord mrzRecord = parseCache.parse(mrzText);
+			if(mrzRecord != null) {
+				if(supportedFormats.contains(mrzRecord.format)) {
+					if(frameTimestamp < reportedTimestamp) {
+						// a newer frame already made it
+						Log.i("MRZ Parser", "Superseded frame " + frameTimestamp);
+						return true;
+					}
+					final long timestamp = frameTimestamp;
+					reportedTimestamp = timestamp;
+					new Handler(Looper.getMainLooper()).post(new Runnable() {
+						@Override
+						public void run() {
+							// skip it if a newer frame was reported meanwhile
+							if(timestamp == reportedTimestamp)
+								listener.onScanned(mrzText);
 						}
-					else
-						break;
+					});
+					return true;
 				}
 			}
+		} catch (Exception e){
+			Log.i("MRZ Parser", "Failed");
 		}
-		return null;
+		return false;
 	}
 
 	/**
 	 * Clear tesseract data.
 	 */
 	public void stop() {
-		tessBaseApi.clear();
+		if (tessBaseApi != null)
+			tessBaseApi.clear();
 	}
 
 	public interface OnMRZScanned{
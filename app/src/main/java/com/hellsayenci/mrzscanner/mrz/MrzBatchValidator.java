@@ -0,0 +1,256 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+/**
+ * Verifies the check digits of many MRZ records of a single format, packed one after another in a contiguous buffer.
+ * <p/>
+ * The positions and weights of every check digit of the format are flattened once, when the validator is created, into
+ * offsets relative to the start of a record. Validating a record is then a plain walk over these offsets with a table
+ * lookup per character and the 7-3-1 weights unrolled, without any per-record setup and without allocation.
+ * <p/>
+ * The validator is immutable and may be shared between threads.
+ */
+public final class MrzBatchValidator {
+
+    /**
+     * The format of all records.
+     */
+    public final MrzFormat format;
+    /**
+     * Offset between the first characters of two consecutive rows, in characters.
+     */
+    public final int rowStride;
+    /**
+     * Offset between the first characters of two consecutive records, in characters.
+     */
+    public final int recordStride;
+    /**
+     * Check digit positions, in the order of the {@link MrzLayout} entries, the composite check digit last.
+     */
+    private final MrzRange[] checkDigits;
+    /**
+     * Offset of every check digit in a record.
+     */
+    private final int[] checkOffsets;
+    /**
+     * Offsets of the characters covered by check digit <code>i</code> are stored at
+     * <code>offsets[starts[i]]</code> .. <code>offsets[starts[i + 1] - 1]</code>.
+     */
+    private final int[] starts;
+    private final int[] offsets;
+
+    /**
+     * Creates new validator for records with rows separated by a single character and records separated by a single character,
+     * e.g. <code>"ROW1\nROW2\nROW1\nROW2\n"</code>.
+     * @param format the format of all records.
+     */
+    public MrzBatchValidator(MrzFormat format) {
+        this(format, format.columns + 1, format.rows * (format.columns + 1));
+    }
+
+    /**
+     * Creates new validator.
+     * @param format the format of all records.
+     * @param rowStride offset between the first characters of two consecutive rows, at least {@link MrzFormat#columns}.
+     * @param recordStride offset between the first characters of two consecutive records.
+     */
+    public MrzBatchValidator(MrzFormat format, int rowStride, int recordStride) {
+        if (rowStride < format.columns) {
+            throw new IllegalArgumentException("Parameter rowStride: invalid value " + rowStride + ": must be at least " + format.columns);
+        }
+        if (recordStride < (format.rows - 1) * rowStride + format.columns) {
+            throw new IllegalArgumentException("Parameter recordStride: invalid value " + recordStride + ": records overlap");
+        }
+        this.format = format;
+        this.rowStride = rowStride;
+        this.recordStride = recordStride;
+        final MrzLayout layout = format.layout;
+        int checks = layout.compositeCheckDigit == null ? 0 : 1;
+        int covered = 0;
+        for (int i = 0; i < layout.size(); i++) {
+            if (layout.get(i).checkDigit != null) {
+                checks++;
+                covered += layout.get(i).range.length();
+            }
+        }
+        for (int i = 0; i < layout.compositeSize(); i++) {
+            covered += layout.getComposite(i).length();
+        }
+        checkDigits = new MrzRange[checks];
+        checkOffsets = new int[checks];
+        starts = new int[checks + 1];
+        offsets = new int[covered];
+        int check = 0;
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            if (e.checkDigit != null) {
+                add(check++, e.checkDigit, e.range);
+            }
+        }
+        if (layout.compositeCheckDigit != null) {
+            final MrzRange[] composite = new MrzRange[layout.compositeSize()];
+            for (int i = 0; i < composite.length; i++) {
+                composite[i] = layout.getComposite(i);
+            }
+            add(check, layout.compositeCheckDigit, composite);
+        }
+    }
+
+    private void add(int check, MrzRange checkDigit, MrzRange... ranges) {
+        checkDigits[check] = checkDigit;
+        checkOffsets[check] = checkDigit.row * rowStride + checkDigit.column;
+        int o = starts[check];
+        for (MrzRange r : ranges) {
+            for (int i = r.column; i < r.columnTo; i++) {
+                offsets[o++] = r.row * rowStride + i;
+            }
+        }
+        starts[check + 1] = o;
+    }
+
+    /**
+     * Returns number of check digits verified per record. Bit <code>i</code> of a result refers to check digit <code>i</code>.
+     * @return number of check digits, at most 32.
+     */
+    public int getCheckCount() {
+        return checkDigits.length;
+    }
+
+    /**
+     * Returns position of given check digit.
+     * @param check 0-based index of the check digit, in the order of the {@link MrzLayout} entries, the composite check digit last.
+     * @return the position within a record, not null.
+     */
+    public MrzRange getCheckDigit(int check) {
+        return checkDigits[check];
+    }
+
+    /**
+     * Verifies records held as characters.
+     * @param buffer the buffer holding the records.
+     * @param offset index of the first character of the first record.
+     * @param count number of records.
+     * @param results receives, for every record, a bit mask of failed check digits; 0 if all check digits are valid.
+     * A check digit also fails when a character it covers is not a valid MRZ character.
+     * @return number of records with all check digits valid.
+     */
+    public int validate(char[] buffer, int offset, int count, int[] results) {
+        checkBounds(buffer.length, offset, count, results);
+        final int[] values = MrzParser.CHARACTER_VALUES;
+        int valid = 0;
+        for (int r = 0; r < count; r++) {
+            final int base = offset + r * recordStride;
+            int failed = 0;
+            for (int c = 0; c < checkOffsets.length; c++) {
+                final int to = starts[c + 1];
+                int sum = 0;
+                int i = starts[c];
+                for (; i + 2 < to; i += 3) {
+                    sum += 7 * value(values, buffer[base + offsets[i]])
+                            + 3 * value(values, buffer[base + offsets[i + 1]])
+                            + value(values, buffer[base + offsets[i + 2]]);
+                }
+                if (i < to) {
+                    sum += 7 * value(values, buffer[base + offsets[i]]);
+                }
+                if (i + 1 < to) {
+                    sum += 3 * value(values, buffer[base + offsets[i + 1]]);
+                }
+                if (!matches(buffer[base + checkOffsets[c]], sum)) {
+                    failed |= 1 << c;
+                }
+            }
+            results[r] = failed;
+            if (failed == 0) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Verifies records held as ASCII bytes, e.g. read directly from a file.
+     * @param buffer the buffer holding the records.
+     * @param offset index of the first byte of the first record.
+     * @param count number of records.
+     * @param results receives, for every record, a bit mask of failed check digits; 0 if all check digits are valid.
+     * A check digit also fails when a character it covers is not a valid MRZ character.
+     * @return number of records with all check digits valid.
+     */
+    public int validate(byte[] buffer, int offset, int count, int[] results) {
+        checkBounds(buffer.length, offset, count, results);
+        final int[] values = MrzParser.CHARACTER_VALUES;
+        int valid = 0;
+        for (int r = 0; r < count; r++) {
+            final int base = offset + r * recordStride;
+            int failed = 0;
+            for (int c = 0; c < checkOffsets.length; c++) {
+                final int to = starts[c + 1];
+                int sum = 0;
+                int i = starts[c];
+                for (; i + 2 < to; i += 3) {
+                    sum += 7 * values[buffer[base + offsets[i]] & 0xFF]
+                            + 3 * values[buffer[base + offsets[i + 1]] & 0xFF]
+                            + values[buffer[base + offsets[i + 2]] & 0xFF];
+                }
+                if (i < to) {
+                    sum += 7 * values[buffer[base + offsets[i]] & 0xFF];
+                }
+                if (i + 1 < to) {
+                    sum += 3 * values[buffer[base + offsets[i + 1]] & 0xFF];
+                }
+                if (!matches((char) (buffer[base + checkOffsets[c]] & 0xFF), sum)) {
+                    failed |= 1 << c;
+                }
+            }
+            results[r] = failed;
+            if (failed == 0) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    private static int value(int[] values, char c) {
+        return c < values.length ? values[c] : MrzParser.INVALID_VALUE;
+    }
+
+    /**
+     * Checks the check digit character against the weighted sum. A filler is accepted in place of '0'.
+     */
+    private static boolean matches(char checkDigit, int sum) {
+        if (sum >= MrzParser.INVALID_VALUE) {
+            return false;
+        }
+        final int digit = sum % 10;
+        return checkDigit == '0' + digit || (digit == 0 && checkDigit == MrzParser.FILLER);
+    }
+
+    private void checkBounds(int length, int offset, int count, int[] results) {
+        if (offset < 0 || count < 0 || (count > 0 && offset + (long) (count - 1) * recordStride + (format.rows - 1) * rowStride + format.columns > length)) {
+            throw new IndexOutOfBoundsException("Buffer of " + length + " characters does not hold " + count + " records at " + offset);
+        }
+        if (results.length < count) {
+            throw new IllegalArgumentException("Parameter results: invalid length " + results.length + ": must be at least " + count);
+        }
+    }
+}
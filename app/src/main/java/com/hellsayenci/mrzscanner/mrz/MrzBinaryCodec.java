@@ -0,0 +1,519 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzDate;
+import com.hellsayenci.mrzscanner.mrz.types.MrzDocumentCode;
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+import com.hellsayenci.mrzscanner.mrz.types.MrzSex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact binary encoding of {@link MrzRecord}s, independent of the class layout unlike {@link java.io.Serializable}.
+ * <p/>
+ * A record is encoded as:
+ * <ol>
+ * <li>the {@link MrzFormat} ordinal and the {@link MrzDocumentCode} ordinal, one byte each;</li>
+ * <li><code>code1</code>, <code>code2</code> and the sex, as 6-bit characters;</li>
+ * <li>the check digit results as a bitset, one bit per checked field of the {@link MrzLayout} and the composite last;</li>
+ * <li>the fields in the order of the layout: strings as a length byte followed by 6-bit characters, dates as a packed
+ * <code>yyyymmdd</code> int.</li>
+ * </ol>
+ * The fields are stored as the record holds them, not as MRZ text, so the 6-bit alphabet is A-Z, 0-9 and &lt; plus the space
+ * and comma the parser puts into names. Every record returned by {@link MrzParser#parse(String)} fits it; a record built by
+ * hand must hold upper-case fields, e.g. names converted by {@link MrzParser#toMrz(String, int)}, or {@link #write(MrzRecord, ByteBuffer)}
+ * rejects it before writing anything.
+ * <p/>
+ * Only the fields described by the layout of the format are stored. A stream starts with a header holding the encoding version;
+ * new formats and document codes must be appended to their enums to keep the ordinals stable.
+ * <p/>
+ * The codec reads and writes {@link ByteBuffer}s in place; {@link Reader} and {@link Writer} stream records through channels
+ * with a constant amount of memory.
+ */
+public final class MrzBinaryCodec {
+
+    private MrzBinaryCodec() {
+    }
+
+    /**
+     * The stream header magic, "MRZB".
+     */
+    public static final int MAGIC = 0x4D525A42;
+    /**
+     * The current version of the encoding.
+     */
+    public static final byte VERSION = 1;
+    /**
+     * Upper bound of the size of an encoded record, in bytes.
+     */
+    public static final int MAX_RECORD_SIZE = 4096;
+
+    /**
+     * The 6-bit characters: MRZ characters plus the space and comma the parser puts into names.
+     */
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ<, ";
+    private static final byte[] CODES = new byte[128];
+    private static final byte NULL = (byte) 0xFF;
+    private static final int NULL_DATE = Integer.MIN_VALUE;
+    private static final int RAW_DATE = -1;
+
+    static {
+        for (int i = 0; i < CODES.length; i++) {
+            CODES[i] = -1;
+        }
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            CODES[ALPHABET.charAt(i)] = (byte) i;
+        }
+    }
+
+    /**
+     * Writes the stream header.
+     * @param buffer the target buffer, with at least 5 bytes remaining.
+     */
+    public static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+    }
+
+    /**
+     * Reads and checks the stream header.
+     * @param buffer the source buffer.
+     * @return the version of the stream.
+     * @throws IllegalArgumentException if the buffer does not start with a header of a supported version.
+     */
+    public static int readHeader(ByteBuffer buffer) {
+        final int magic = buffer.getInt();
+        if (magic != MAGIC) {
+            throw new IllegalArgumentException("Not a MRZ record stream: invalid magic " + Integer.toHexString(magic));
+        }
+        final int version = buffer.get();
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported MRZ record stream version " + version + ", at most " + VERSION + " is supported");
+        }
+        return version;
+    }
+
+    /**
+     * Encodes a record at the current position of the buffer.
+     * @param record the record, not null.
+     * @param buffer the target buffer, with at least {@link #MAX_RECORD_SIZE} bytes remaining.
+     * @throws IllegalArgumentException if a field holds characters other than A-Z, 0-9, &lt;, space and comma, or more than 254
+     * characters; nothing is written then.
+     */
+    public static void write(MrzRecord record, ByteBuffer buffer) {
+        check(record);
+        final MrzLayout layout = record.format.layout;
+        buffer.put((byte) record.format.ordinal());
+        buffer.put(record.code == null ? NULL : (byte) record.code.ordinal());
+        final int chars = (encode(record.code1) << 12) | (encode(record.code2) << 6) | encode(record.sex == null ? ' ' : record.sex.mrz);
+        buffer.put((byte) (chars >>> 16));
+        buffer.putShort((short) chars);
+        int valid = 0;
+        int bit = 0;
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            if (e.checkDigit != null) {
+                if (record.isValid(e.field)) {
+                    valid |= 1 << bit;
+                }
+                bit++;
+            }
+        }
+        if (record.validComposite) {
+            valid |= 1 << bit;
+        }
+        buffer.put((byte) valid);
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            switch (e.field.type) {
+                case NAME:
+                    writeString(record.surname, buffer);
+                    writeString(record.givenNames, buffer);
+                    break;
+                case DATE:
+                    writeDate(e.field == MrzField.DATE_OF_BIRTH ? record.dateOfBirth : record.expirationDate, buffer);
+                    break;
+                case SEX:
+                    break;
+                default:
+                    writeString(record.getField(e.field), buffer);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Decodes a record at the current position of the buffer.
+     * @param buffer the source buffer.
+     * @return the record, never null.
+     * @throws IllegalArgumentException if the data is not a valid record.
+     * @throws BufferUnderflowException if the record is truncated.
+     */
+    public static MrzRecord read(ByteBuffer buffer) {
+        final int formatOrdinal = buffer.get() & 0xFF;
+        final MrzFormat[] formats = MrzFormat.values();
+        if (formatOrdinal >= formats.length) {
+            throw new IllegalArgumentException("Invalid format " + formatOrdinal);
+        }
+        final MrzFormat format = formats[formatOrdinal];
+        final MrzRecord record = format.newRecord();
+        final byte code = buffer.get();
+        if (code != NULL) {
+            final MrzDocumentCode[] codes = MrzDocumentCode.values();
+            if ((code & 0xFF) >= codes.length) {
+                throw new IllegalArgumentException("Invalid document code " + (code & 0xFF));
+            }
+            record.code = codes[code & 0xFF];
+        }
+        final int chars = ((buffer.get() & 0xFF) << 16) | (buffer.getShort() & 0xFFFF);
+        record.code1 = decode(chars >>> 12);
+        record.code2 = decode(chars >>> 6);
+        final char sex = decode(chars);
+        record.sex = sex == ' ' ? null : MrzSex.fromMrz(sex);
+        final int valid = buffer.get() & 0xFF;
+        final MrzLayout layout = format.layout;
+        int bit = 0;
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            if (e.checkDigit != null) {
+                record.setValid(e.field, (valid & (1 << bit)) != 0);
+                bit++;
+            }
+            switch (e.field.type) {
+                case NAME:
+                    record.surname = readString(buffer);
+                    record.givenNames = readString(buffer);
+                    break;
+                case DATE:
+                    if (e.field == MrzField.DATE_OF_BIRTH) {
+                        record.dateOfBirth = readDate(buffer);
+                    } else {
+                        record.expirationDate = readDate(buffer);
+                    }
+                    break;
+                case SEX:
+                    break;
+                default:
+                    record.setField(e.field, readString(buffer));
+                    break;
+            }
+        }
+        record.validComposite = (valid & (1 << bit)) != 0;
+        return record;
+    }
+
+    /**
+     * Checks that every field written by {@link #write(MrzRecord, ByteBuffer)} can be encoded.
+     */
+    private static void check(MrzRecord record) {
+        check("code1", record.code1);
+        check("code2", record.code2);
+        if (record.sex != null) {
+            check("sex", record.sex.mrz);
+        }
+        final MrzLayout layout = record.format.layout;
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            switch (e.field.type) {
+                case NAME:
+                    check("surname", record.surname);
+                    check("givenNames", record.givenNames);
+                    break;
+                case DATE:
+                    final MrzDate date = e.field == MrzField.DATE_OF_BIRTH ? record.dateOfBirth : record.expirationDate;
+                    if (date != null && !isPackable(date)) {
+                        check(e.field.name(), date.toMrz());
+                    }
+                    break;
+                case SEX:
+                    break;
+                default:
+                    check(e.field.name(), record.getField(e.field));
+                    break;
+            }
+        }
+    }
+
+    private static void check(String field, String value) {
+        if (value == null) {
+            return;
+        }
+        if (value.length() >= 0xFF) {
+            throw new IllegalArgumentException("Field " + field + ": value too long: " + value.length() + " characters, at most 254 are allowed");
+        }
+        for (int i = 0; i < value.length(); i++) {
+            check(field, value.charAt(i));
+        }
+    }
+
+    private static void check(String field, char c) {
+        if (c >= CODES.length || CODES[c] < 0) {
+            throw new IllegalArgumentException("Field " + field + ": character '" + c + "' cannot be encoded: only A-Z, 0-9, <, space and comma are allowed");
+        }
+    }
+
+    private static boolean isPackable(MrzDate date) {
+        return date.fullYear >= 0 && date.month >= 0 && date.month <= 99 && date.day >= 0 && date.day <= 99;
+    }
+
+    private static int encode(char c) {
+        // checked by check(MrzRecord)
+        return CODES[c];
+    }
+
+    private static char decode(int code) {
+        final int i = code & 0x3F;
+        if (i >= ALPHABET.length()) {
+            throw new IllegalArgumentException("Invalid character code " + i);
+        }
+        return ALPHABET.charAt(i);
+    }
+
+    private static void writeString(String value, ByteBuffer buffer) {
+        if (value == null) {
+            buffer.put(NULL);
+            return;
+        }
+        buffer.put((byte) value.length());
+        int bits = 0;
+        int acc = 0;
+        for (int i = 0; i < value.length(); i++) {
+            acc = (acc << 6) | encode(value.charAt(i));
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                buffer.put((byte) (acc >>> bits));
+            }
+        }
+        if (bits > 0) {
+            buffer.put((byte) (acc << (8 - bits)));
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final byte length = buffer.get();
+        if (length == NULL) {
+            return null;
+        }
+        final char[] value = new char[length & 0xFF];
+        int bits = 0;
+        int acc = 0;
+        for (int i = 0; i < value.length; i++) {
+            if (bits < 6) {
+                acc = (acc << 8) | (buffer.get() & 0xFF);
+                bits += 8;
+            }
+            bits -= 6;
+            value[i] = decode(acc >>> bits);
+        }
+        return new String(value);
+    }
+
+    private static void writeDate(MrzDate date, ByteBuffer buffer) {
+        if (date == null) {
+            buffer.putInt(NULL_DATE);
+        } else if (isPackable(date)) {
+            buffer.putInt(date.toPacked());
+        } else {
+            // not even digits, keep the characters as they were read
+            buffer.putInt(RAW_DATE);
+            writeString(date.toMrz(), buffer);
+        }
+    }
+
+    private static MrzDate readDate(ByteBuffer buffer) {
+        final int packed = buffer.getInt();
+        if (packed == NULL_DATE) {
+            return null;
+        }
+        if (packed != RAW_DATE) {
+            return MrzDate.fromPacked(packed);
+        }
+        final String raw = readString(buffer);
+        if (raw == null || raw.length() != 6) {
+            throw new IllegalArgumentException("Invalid raw date " + raw);
+        }
+        final int year = parseTwoDigits(raw, 0);
+        return new MrzDate(year, parseTwoDigits(raw, 2), parseTwoDigits(raw, 4), raw, -1);
+    }
+
+    private static int parseTwoDigits(String raw, int offset) {
+        final int tens = raw.charAt(offset) - '0';
+        final int ones = raw.charAt(offset + 1) - '0';
+        if (tens < 0 || tens > 9 || ones < 0 || ones > 9) {
+            return -1;
+        }
+        return tens * 10 + ones;
+    }
+
+    /**
+     * Reads records from a channel, e.g. a file holding millions of records, through a fixed-size buffer.
+     */
+    public static final class Reader implements Closeable {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer;
+        private boolean eof;
+        /**
+         * The version of the stream.
+         */
+        public final int version;
+
+        /**
+         * Creates new reader and reads the stream header.
+         * @param channel the source channel, not null.
+         * @param bufferSize the buffer size, at least {@link #MAX_RECORD_SIZE}.
+         * @throws IOException if the header cannot be read.
+         */
+        public Reader(ReadableByteChannel channel, int bufferSize) throws IOException {
+            if (bufferSize < MAX_RECORD_SIZE) {
+                throw new IllegalArgumentException("Parameter bufferSize: invalid value " + bufferSize + ": must be at least " + MAX_RECORD_SIZE);
+            }
+            this.channel = channel;
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+            buffer.flip();
+            fill();
+            try {
+                version = readHeader(buffer);
+            } catch (BufferUnderflowException ex) {
+                throw new IOException("Not a MRZ record stream: missing header", ex);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException(ex.getMessage(), ex);
+            }
+        }
+
+        public Reader(ReadableByteChannel channel) throws IOException {
+            this(channel, 64 * 1024);
+        }
+
+        /**
+         * Reads more data when less than a whole record is buffered.
+         */
+        private void fill() throws IOException {
+            if (eof || buffer.remaining() >= MAX_RECORD_SIZE) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    eof = true;
+                    break;
+                }
+            }
+            buffer.flip();
+        }
+
+        /**
+         * @return true if there is another record.
+         * @throws IOException if reading fails.
+         */
+        public boolean hasNext() throws IOException {
+            fill();
+            return buffer.hasRemaining();
+        }
+
+        /**
+         * @return the next record, never null.
+         * @throws IOException if reading fails or the record is truncated or invalid.
+         * @throws NoSuchElementException if there are no more records.
+         */
+        public MrzRecord next() throws IOException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                return read(buffer);
+            } catch (BufferUnderflowException ex) {
+                throw new IOException("Truncated MRZ record", ex);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Invalid MRZ record: " + ex.getMessage(), ex);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes records to a channel through a fixed-size buffer.
+     */
+    public static final class Writer implements Closeable {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer;
+
+        /**
+         * Creates new writer and writes the stream header.
+         * @param channel the target channel, not null.
+         * @param bufferSize the buffer size, at least {@link #MAX_RECORD_SIZE}.
+         */
+        public Writer(WritableByteChannel channel, int bufferSize) {
+            if (bufferSize < MAX_RECORD_SIZE) {
+                throw new IllegalArgumentException("Parameter bufferSize: invalid value " + bufferSize + ": must be at least " + MAX_RECORD_SIZE);
+            }
+            this.channel = channel;
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+            writeHeader(buffer);
+        }
+
+        public Writer(WritableByteChannel channel) {
+            this(channel, 64 * 1024);
+        }
+
+        /**
+         * Writes given record.
+         * @param record the record, not null.
+         * @throws IOException if writing fails.
+         */
+        public void write(MrzRecord record) throws IOException {
+            if (buffer.remaining() < MAX_RECORD_SIZE) {
+                flush();
+            }
+            MrzBinaryCodec.write(record, buffer);
+        }
+
+        /**
+         * Writes all buffered records to the channel.
+         * @throws IOException if writing fails.
+         */
+        public void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
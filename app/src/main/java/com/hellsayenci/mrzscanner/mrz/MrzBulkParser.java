@@ -0,0 +1,201 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses large amounts of MRZ records in parallel.
+ * <p/>
+ * The input is split into contiguous slices which are parsed by the workers of a {@link ForkJoinPool}; each slice writes
+ * its results directly into its part of a shared result array, so the results come back in input order without any merging.
+ * A failure of one record never aborts the others: it is reported in the {@link Result} of that record instead of being thrown.
+ * <p/>
+ * The parser is thread-safe; {@link #shutdown()} it when done if it owns its pool.
+ */
+public final class MrzBulkParser {
+
+    /**
+     * Outcome of parsing a single MRZ record.
+     */
+    public static final class Result {
+        /**
+         * Index of the record in the input.
+         */
+        public final int index;
+        /**
+         * The parsed record, null if the parse failed.
+         */
+        public final MrzRecord record;
+        /**
+         * The failure, null if the record was parsed.
+         */
+        public final RuntimeException error;
+
+        Result(int index, MrzRecord record, RuntimeException error) {
+            this.index = index;
+            this.record = record;
+            this.error = error;
+        }
+
+        /**
+         * @return true if the record was parsed. Note that a parsed record may still fail its check digits.
+         */
+        public boolean isParsed() {
+            return record != null;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" + index + ": " + (record != null ? record : error) + "}";
+        }
+    }
+
+    /**
+     * Slices smaller than this are parsed sequentially by a single worker.
+     */
+    private static final int DEFAULT_SLICE_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int sliceSize;
+
+    /**
+     * Creates new parser with its own pool using all available processors.
+     */
+    public MrzBulkParser() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates new parser with its own pool.
+     * @param parallelism the number of worker threads, positive.
+     */
+    public MrzBulkParser(int parallelism) {
+        this(new ForkJoinPool(parallelism), true, DEFAULT_SLICE_SIZE);
+    }
+
+    /**
+     * Creates new parser running on given pool. The pool is not shut down by {@link #shutdown()}.
+     * @param pool the pool, not null.
+     * @param sliceSize the number of records parsed sequentially by one task, positive.
+     */
+    public MrzBulkParser(ForkJoinPool pool, int sliceSize) {
+        this(pool, false, sliceSize);
+    }
+
+    private MrzBulkParser(ForkJoinPool pool, boolean ownsPool, int sliceSize) {
+        if (sliceSize < 1) {
+            throw new IllegalArgumentException("Parameter sliceSize: invalid value " + sliceSize + ": must be positive");
+        }
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.sliceSize = sliceSize;
+    }
+
+    /**
+     * Parses all given MRZ records.
+     * @param mrz the MRZ records, rows separated by \n. Null elements are reported as failures.
+     * @return the results in input order, one for every record, never null.
+     */
+    public List<Result> parse(Iterable<? extends CharSequence> mrz) {
+        final CharSequence[] input;
+        if (mrz instanceof Collection) {
+            input = ((Collection<? extends CharSequence>) mrz).toArray(new CharSequence[0]);
+        } else {
+            final List<CharSequence> list = new ArrayList<CharSequence>();
+            for (CharSequence m : mrz) {
+                list.add(m);
+            }
+            input = list.toArray(new CharSequence[list.size()]);
+        }
+        return parse(input);
+    }
+
+    /**
+     * Parses all given MRZ records. The array is not modified.
+     * @param mrz the MRZ records, rows separated by \n. Null elements are reported as failures.
+     * @return the results in input order, one for every record, never null.
+     */
+    public List<Result> parse(CharSequence[] mrz) {
+        final Result[] results = new Result[mrz.length];
+        if (mrz.length > 0) {
+            pool.invoke(new Slice(mrz, results, 0, mrz.length));
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Parses a single record, never throws.
+     */
+    static Result parse(int index, CharSequence mrz) {
+        if (mrz == null) {
+            return new Result(index, null, new IllegalArgumentException("Parameter mrz: invalid value null"));
+        }
+        try {
+            return new Result(index, MrzParser.parse(mrz), null);
+        } catch (RuntimeException ex) {
+            return new Result(index, null, ex);
+        }
+    }
+
+    /**
+     * Shuts down the pool, if it was created by this parser.
+     */
+    public void shutdown() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Parses the records <code>from</code> .. <code>to - 1</code>, splitting in halves until the slice is small enough.
+     */
+    private final class Slice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final CharSequence[] input;
+        private final Result[] results;
+        private final int from;
+        private final int to;
+
+        Slice(CharSequence[] input, Result[] results, int from, int to) {
+            this.input = input;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= sliceSize) {
+                for (int i = from; i < to; i++) {
+                    results[i] = parse(i, input[i]);
+                }
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new Slice(input, results, from, mid), new Slice(input, results, mid, to));
+        }
+    }
+}
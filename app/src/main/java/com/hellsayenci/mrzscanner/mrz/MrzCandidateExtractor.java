@@ -0,0 +1,321 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzDocumentCode;
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Finds MRZ candidates in raw OCR text.
+ * <p/>
+ * The text is normalized in a single pass: spaces and other whitespace are removed, lowercase letters are upper-cased and
+ * characters OCR commonly reads instead of fillers, such as &laquo; and &lsaquo;, become '&lt;'; empty lines are dropped. Then
+ * every window of consecutive lines is tried for every row/column geometry of the requested formats, the lines aligned both
+ * left and right when they are longer than the format. Each window is scored by cheap structural checks, see
+ * {@link MrzFormat#countClassMismatches(char[], int)}, and by its check digits, and all candidates are returned best first,
+ * so that a good candidate is not hidden behind a worse one found earlier.
+ * <p/>
+ * Given a structured {@link MrzOcrResult}, every candidate also tells which OCR symbol each of its characters was read from.
+ * <p/>
+ * The extractor reuses its buffers and is not thread-safe.
+ */
+public final class MrzCandidateExtractor {
+
+    /**
+     * A possible MRZ found in the OCR text.
+     */
+    public static final class Candidate {
+        /**
+         * The MRZ, rows separated by \n, not null.
+         */
+        public final String mrz;
+        /**
+         * The format detected for the candidate, not null.
+         */
+        public final MrzFormat format;
+        /**
+         * The score, 0..1; 1 when all characters fit the classes of their positions, all rows have the exact length and all check digits match.
+         */
+        public final float score;
+        /**
+         * Bit mask of failed check digits, see {@link MrzBatchValidator#validate(char[], int, int, int[])}; 0 if all match.
+         */
+        public final int failedChecks;
+        /**
+         * 0-based index of the first row of the candidate among the non-empty lines of the OCR text.
+         */
+        public final int line;
+        /**
+         * The OCR symbol every character of {@link #mrz} was read from, null at the row separators; null if the candidate was
+         * extracted from plain text.
+         */
+        public final MrzOcrResult.Symbol[] symbols;
+
+        Candidate(String mrz, MrzFormat format, float score, int failedChecks, int line, MrzOcrResult.Symbol[] symbols) {
+            this.mrz = mrz;
+            this.format = format;
+            this.score = score;
+            this.failedChecks = failedChecks;
+            this.line = line;
+            this.symbols = symbols;
+        }
+
+        /**
+         * @return true if all check digits match.
+         */
+        public boolean isValid() {
+            return failedChecks == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Candidate{" + format + ", score=" + score + ", failedChecks=" + Integer.toHexString(failedChecks) + ", line=" + line + "}";
+        }
+    }
+
+    /**
+     * Best first; on equal scores the lower candidate wins, as the MRZ is at the bottom of the document.
+     */
+    private static final Comparator<Candidate> BEST_FIRST = new Comparator<Candidate>() {
+        @Override
+        public int compare(Candidate o1, Candidate o2) {
+            final int result = Float.compare(o2.score, o1.score);
+            return result != 0 ? result : o2.line - o1.line;
+        }
+    };
+
+    private static final float CHECK_WEIGHT = 0.5f;
+    private static final float CHARACTER_WEIGHT = 0.25f;
+    private static final float DOCUMENT_CODE_WEIGHT = 0.15f;
+    private static final float LENGTH_WEIGHT = 0.1f;
+
+    /**
+     * The distinct geometries of the requested formats, as rows &lt;&lt; 16 | columns.
+     */
+    private final int[] geometries;
+    /**
+     * Check digit validators by format ordinal.
+     */
+    private final MrzBatchValidator[] validators = new MrzBatchValidator[MrzFormat.values().length];
+    private final int[] failed = new int[1];
+    /**
+     * The normalized text, lines concatenated.
+     */
+    private char[] text = new char[256];
+    /**
+     * The symbol every character of {@link #text} was read from, null when extracting from plain text.
+     */
+    private MrzOcrResult.Symbol[] textSymbols;
+    /**
+     * Start and end of every non-empty line in {@link #text}.
+     */
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int lines;
+    /**
+     * A window being scored, rows separated by \n.
+     */
+    private final char[] window = new char[3 * 45];
+    private final MrzOcrResult.Symbol[] windowSymbols = new MrzOcrResult.Symbol[3 * 45];
+
+    /**
+     * Creates new extractor which looks for all formats.
+     */
+    public MrzCandidateExtractor() {
+        this(EnumSet.allOf(MrzFormat.class));
+    }
+
+    /**
+     * Creates new extractor.
+     * @param formats the formats to look for, not empty. Formats of the same geometry are told apart by the content, so a
+     * candidate may be of a format of the same number of rows and columns as a requested one.
+     */
+    public MrzCandidateExtractor(Collection<MrzFormat> formats) {
+        if (formats.isEmpty()) {
+            throw new IllegalArgumentException("Parameter formats: invalid value " + formats + ": must not be empty");
+        }
+        final int[] result = new int[formats.size()];
+        int count = 0;
+        for (MrzFormat f : formats) {
+            final int geometry = f.rows << 16 | f.columns;
+            boolean known = false;
+            for (int i = 0; i < count; i++) {
+                known |= result[i] == geometry;
+            }
+            if (!known) {
+                result[count++] = geometry;
+            }
+        }
+        geometries = Arrays.copyOf(result, count);
+        for (MrzFormat f : MrzFormat.values()) {
+            validators[f.ordinal()] = new MrzBatchValidator(f);
+        }
+    }
+
+    /**
+     * Lists all MRZ candidates in given OCR text.
+     * @param ocr the OCR text, lines separated by \n, not null.
+     * @return the candidates, best first; empty if there are none.
+     */
+    public List<Candidate> extract(CharSequence ocr) {
+        return extract(ocr, null);
+    }
+
+    /**
+     * Lists all MRZ candidates in given OCR result.
+     * @param ocr the OCR result, not null.
+     * @return the candidates, best first, with their symbols; empty if there are none.
+     */
+    public List<Candidate> extract(MrzOcrResult ocr) {
+        return extract(ocr.getText(), ocr.getTextSymbols());
+    }
+
+    private List<Candidate> extract(CharSequence ocr, MrzOcrResult.Symbol[] symbols) {
+        normalize(ocr, symbols);
+        final List<Candidate> result = new ArrayList<Candidate>();
+        for (int geometry : geometries) {
+            final int rows = geometry >>> 16;
+            final int columns = geometry & 0xFFFF;
+            for (int line = 0; line + rows <= lines; line++) {
+                boolean fits = true;
+                boolean longer = false;
+                for (int r = 0; r < rows && fits; r++) {
+                    final int length = ends[line + r] - starts[line + r];
+                    fits = length >= columns;
+                    longer |= length > columns;
+                }
+                if (!fits) {
+                    continue;
+                }
+                score(line, rows, columns, false, result);
+                if (longer) {
+                    score(line, rows, columns, true, result);
+                }
+            }
+        }
+        Collections.sort(result, BEST_FIRST);
+        return result;
+    }
+
+    /**
+     * Normalizes the OCR text into {@link #text} and finds the lines.
+     */
+    private void normalize(CharSequence ocr, MrzOcrResult.Symbol[] symbols) {
+        if (text.length < 2 * ocr.length()) {
+            text = new char[2 * ocr.length()];
+        }
+        if (symbols == null) {
+            textSymbols = null;
+        } else if (textSymbols == null || textSymbols.length < text.length) {
+            textSymbols = new MrzOcrResult.Symbol[text.length];
+        }
+        lines = 0;
+        int pos = 0;
+        int start = 0;
+        for (int i = 0; i <= ocr.length(); i++) {
+            final char c = i < ocr.length() ? ocr.charAt(i) : '\n';
+            final int from = pos;
+            switch (c) {
+                case '\n':
+                    if (pos > start) {
+                        addLine(start, pos);
+                    }
+                    start = pos;
+                    break;
+                case '\u00AB': // double angle quotation mark
+                case '\u226A': // much less-than
+                    text[pos++] = MrzParser.FILLER;
+                    text[pos++] = MrzParser.FILLER;
+                    break;
+                case '\u2039': // single angle quotation mark
+                case '\u2264': // less-than or equal to
+                case '\u2329': // left-pointing angle bracket
+                case '\u27E8': // mathematical left angle bracket
+                case '\u3008': // left angle bracket
+                case '\uFF1C': // fullwidth less-than
+                    text[pos++] = MrzParser.FILLER;
+                    break;
+                default:
+                    if (c >= 'a' && c <= 'z') {
+                        text[pos++] = (char) (c - 'a' + 'A');
+                    } else if (c > ' ' && !Character.isWhitespace(c) && !Character.isSpaceChar(c)) {
+                        text[pos++] = c;
+                    }
+                    break;
+            }
+            if (textSymbols != null) {
+                Arrays.fill(textSymbols, from, pos, i < ocr.length() ? symbols[i] : null);
+            }
+        }
+    }
+
+    private void addLine(int start, int end) {
+        if (lines == starts.length) {
+            starts = Arrays.copyOf(starts, lines * 2);
+            ends = Arrays.copyOf(ends, lines * 2);
+        }
+        starts[lines] = start;
+        ends[lines] = end;
+        lines++;
+    }
+
+    /**
+     * Copies a window of lines and scores it.
+     * @param right if true, the last characters of longer lines are taken, otherwise the first ones.
+     */
+    private void score(int line, int rows, int columns, boolean right, List<Candidate> result) {
+        final int stride = columns + 1;
+        int exactRows = 0;
+        for (int r = 0; r < rows; r++) {
+            final int start = right ? ends[line + r] - columns : starts[line + r];
+            System.arraycopy(text, start, window, r * stride, columns);
+            window[r * stride + columns] = '\n';
+            if (textSymbols != null) {
+                System.arraycopy(textSymbols, start, windowSymbols, r * stride, columns);
+                windowSymbols[r * stride + columns] = null;
+            }
+            if (ends[line + r] - starts[line + r] == columns) {
+                exactRows++;
+            }
+        }
+        final int length = rows * stride - 1;
+        final MrzFormat format = MrzFormat.find(CharBuffer.wrap(window, 0, length));
+        if (format == null) {
+            return;
+        }
+        final MrzBatchValidator validator = validators[format.ordinal()];
+        validator.validate(window, 0, 1, failed);
+        final int checks = validator.getCheckCount();
+        final float score = CHECK_WEIGHT * (checks - Integer.bitCount(failed[0])) / checks
+                + CHARACTER_WEIGHT * (rows * columns - format.countClassMismatches(window, 0)) / (rows * columns)
+                + (MrzDocumentCode.isValid(window[0], window[1]) ? DOCUMENT_CODE_WEIGHT : 0f)
+                + LENGTH_WEIGHT * exactRows / rows;
+        final MrzOcrResult.Symbol[] symbols = textSymbols == null ? null : Arrays.copyOf(windowSymbols, length);
+        result.add(new Candidate(new String(window, 0, length), format, score, failed[0], line, symbols));
+    }
+}
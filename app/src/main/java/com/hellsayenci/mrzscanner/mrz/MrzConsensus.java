@@ -0,0 +1,353 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Fuses successive OCR readings of the same document into a consensus MRZ.
+ * <p/>
+ * Every reading votes for a character at every position; the consensus takes the most voted character of each position. A
+ * reading is aligned to the consensus row by row first, shifted by up to {@link #MAX_SHIFT} columns, so that a row read with a
+ * leading or missing character still votes in the right places; when most readings of a row are shifted the same way, it is
+ * the consensus row which is moved instead. As soon as every character of the consensus won at least {@link #MIN_VOTES} votes
+ * and more than any other character, the consensus passes all check digits and every character fits its position, it is
+ * returned, even if no single reading was correct. A reading of another size or one which
+ * differs too much from the consensus starts over with a new document. Older votes fade out: when more than {@link #history}
+ * readings were counted, all votes are halved.
+ * <p/>
+ * The consensus is not thread-safe.
+ */
+public final class MrzConsensus {
+
+    /**
+     * Default number of readings after which older votes fade out.
+     */
+    public static final int DEFAULT_HISTORY = 8;
+    /**
+     * Default share of differing positions above which a reading is considered another document.
+     */
+    public static final float DEFAULT_MAX_DIFFERENCE = 0.3f;
+    /**
+     * Maximum number of columns a row is shifted by when aligned to the consensus.
+     */
+    public static final int MAX_SHIFT = 2;
+    /**
+     * Minimum number of votes of every consensus character. Check digits do not cover the name and the filler, so a single
+     * reading never decides.
+     */
+    public static final int MIN_VOTES = 2;
+
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ<";
+    private static final int SYMBOLS = ALPHABET.length();
+    /**
+     * Index of every character in {@link #ALPHABET}, -1 for characters which do not vote.
+     */
+    private static final byte[] INDEX = new byte[128];
+
+    static {
+        Arrays.fill(INDEX, (byte) -1);
+        for (int i = 0; i < SYMBOLS; i++) {
+            INDEX[ALPHABET.charAt(i)] = (byte) i;
+        }
+    }
+
+    /**
+     * Number of readings after which older votes fade out.
+     */
+    public final int history;
+    /**
+     * Share of differing positions above which a reading is considered another document.
+     */
+    public final float maxDifference;
+
+    private final MrzBatchValidator[] validators = new MrzBatchValidator[MrzFormat.values().length];
+    private final int[] failed = new int[1];
+    private int rows;
+    private int columns;
+    private int readings;
+    /**
+     * Votes of every symbol at every position, indexed by (row * columns + column) * SYMBOLS + symbol.
+     */
+    private int[] votes = new int[0];
+    /**
+     * The consensus, rows separated by \n.
+     */
+    private char[] consensus = new char[0];
+    private final int[] shifts = new int[3];
+    /**
+     * Number of readings of every row aligned with every shift, indexed by row * (2 * MAX_SHIFT + 1) + shift + MAX_SHIFT.
+     */
+    private final int[] shiftCounts = new int[3 * (2 * MAX_SHIFT + 1)];
+
+    /**
+     * Creates new consensus with the default history and difference.
+     */
+    public MrzConsensus() {
+        this(DEFAULT_HISTORY, DEFAULT_MAX_DIFFERENCE);
+    }
+
+    /**
+     * Creates new consensus.
+     * @param history number of readings after which older votes fade out, at least 2.
+     * @param maxDifference share of differing positions above which a reading is considered another document, 0..1.
+     */
+    public MrzConsensus(int history, float maxDifference) {
+        if (history < 2) {
+            throw new IllegalArgumentException("Parameter history: invalid value " + history + ": must be at least 2");
+        }
+        if (!(maxDifference >= 0f && maxDifference <= 1f)) {
+            throw new IllegalArgumentException("Parameter maxDifference: invalid value " + maxDifference + ": must be 0..1");
+        }
+        this.history = history;
+        this.maxDifference = maxDifference;
+        for (MrzFormat f : MrzFormat.values()) {
+            validators[f.ordinal()] = new MrzBatchValidator(f);
+        }
+    }
+
+    /**
+     * Adds a reading and returns the consensus once it is valid.
+     * @param reading a candidate MRZ read from one frame, rows separated by \n, not null.
+     * @return the consensus MRZ, rows separated by \n, if it passes all check digits and every character fits its position;
+     * null otherwise, also when the reading is not of any known size.
+     */
+    public String offer(CharSequence reading) {
+        final MrzFormat format = MrzFormat.find(reading);
+        if (format == null) {
+            return null;
+        }
+        if (format.rows != rows || format.columns != columns) {
+            reset(format.rows, format.columns);
+        } else if (readings > 0) {
+            if (align(reading) > maxDifference * rows * columns) {
+                reset(rows, columns);
+            } else {
+                reanchor();
+            }
+        }
+        vote(reading);
+        readings++;
+        if (readings > history) {
+            fade();
+        }
+        return evaluate();
+    }
+
+    /**
+     * @return number of readings counted for the current document, after fading.
+     */
+    public int getReadings() {
+        return readings;
+    }
+
+    /**
+     * Forgets the current document.
+     */
+    public void reset() {
+        reset(0, 0);
+    }
+
+    private void reset(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        readings = 0;
+        final int positions = rows * columns;
+        if (votes.length < positions * SYMBOLS) {
+            votes = new int[positions * SYMBOLS];
+        } else {
+            Arrays.fill(votes, 0);
+        }
+        final int length = rows * (columns + 1);
+        if (consensus.length < length) {
+            consensus = new char[length];
+        }
+        for (int row = 0; row < rows; row++) {
+            Arrays.fill(consensus, row * (columns + 1), row * (columns + 1) + columns, MrzParser.FILLER);
+            consensus[row * (columns + 1) + columns] = '\n';
+        }
+        Arrays.fill(shifts, 0);
+        Arrays.fill(shiftCounts, 0);
+    }
+
+    /**
+     * Finds the best shift of every row of the reading against the consensus.
+     * @return number of positions which differ from the consensus with the best shifts.
+     */
+    private int align(CharSequence reading) {
+        int differences = 0;
+        for (int row = 0; row < rows; row++) {
+            int best = 0;
+            int bestMatches = matches(reading, row, 0);
+            for (int s = 1; s <= MAX_SHIFT; s++) {
+                final int left = matches(reading, row, -s);
+                if (left > bestMatches) {
+                    best = -s;
+                    bestMatches = left;
+                }
+                final int right = matches(reading, row, s);
+                if (right > bestMatches) {
+                    best = s;
+                    bestMatches = right;
+                }
+            }
+            shifts[row] = best;
+            shiftCounts[row * (2 * MAX_SHIFT + 1) + best + MAX_SHIFT]++;
+            differences += columns - bestMatches;
+        }
+        return differences;
+    }
+
+    /**
+     * Counts the consensus characters matched by a row of the reading whose column <code>col + shift</code> is aligned to
+     * column <code>col</code> of the consensus.
+     */
+    private int matches(CharSequence reading, int row, int shift) {
+        final int offset = row * (columns + 1);
+        final int from = Math.max(0, -shift);
+        final int to = Math.min(columns, columns - shift);
+        int result = 0;
+        for (int col = from; col < to; col++) {
+            if (reading.charAt(offset + col + shift) == consensus[offset + col]) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Moves every consensus row most readings are shifted against, so that the first reading does not fix the columns for good.
+     */
+    private void reanchor() {
+        final int width = 2 * MAX_SHIFT + 1;
+        for (int row = 0; row < rows; row++) {
+            final int s = shifts[row];
+            final int base = row * width + MAX_SHIFT;
+            if (s == 0 || shiftCounts[base + s] <= shiftCounts[base]) {
+                continue;
+            }
+            // consensus column col holds what the readings have in column col + s
+            final int first = row * columns * SYMBOLS;
+            if (s > 0) {
+                System.arraycopy(votes, first, votes, first + s * SYMBOLS, (columns - s) * SYMBOLS);
+                Arrays.fill(votes, first, first + s * SYMBOLS, 0);
+            } else {
+                System.arraycopy(votes, first - s * SYMBOLS, votes, first, (columns + s) * SYMBOLS);
+                Arrays.fill(votes, first + (columns + s) * SYMBOLS, first + columns * SYMBOLS, 0);
+            }
+            final int offset = row * (columns + 1);
+            if (s > 0) {
+                System.arraycopy(consensus, offset, consensus, offset + s, columns - s);
+                Arrays.fill(consensus, offset, offset + s, MrzParser.FILLER);
+            } else {
+                System.arraycopy(consensus, offset - s, consensus, offset, columns + s);
+                Arrays.fill(consensus, offset + columns + s, offset + columns, MrzParser.FILLER);
+            }
+            // the readings are now shifted by s less against the consensus
+            final int[] counts = new int[width];
+            for (int t = -MAX_SHIFT; t <= MAX_SHIFT; t++) {
+                final int moved = t - s;
+                if (moved >= -MAX_SHIFT && moved <= MAX_SHIFT) {
+                    counts[moved + MAX_SHIFT] = shiftCounts[base + t];
+                }
+            }
+            System.arraycopy(counts, 0, shiftCounts, row * width, width);
+            shifts[row] = 0;
+        }
+    }
+
+    private void vote(CharSequence reading) {
+        for (int row = 0; row < rows; row++) {
+            final int offset = row * (columns + 1);
+            final int shift = readings > 0 ? shifts[row] : 0;
+            final int from = Math.max(0, -shift);
+            final int to = Math.min(columns, columns - shift);
+            for (int col = from; col < to; col++) {
+                final char c = reading.charAt(offset + col + shift);
+                final int symbol = c < INDEX.length ? INDEX[c] : -1;
+                if (symbol >= 0) {
+                    votes[(row * columns + col) * SYMBOLS + symbol]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Halves all votes, so that newer readings outweigh older ones.
+     */
+    private void fade() {
+        final int length = rows * columns * SYMBOLS;
+        for (int i = 0; i < length; i++) {
+            votes[i] >>= 1;
+        }
+        for (int i = 0; i < shiftCounts.length; i++) {
+            shiftCounts[i] >>= 1;
+        }
+        readings >>= 1;
+    }
+
+    /**
+     * Rebuilds the consensus from the votes and checks it.
+     */
+    private String evaluate() {
+        boolean decided = true;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                final int base = (row * columns + col) * SYMBOLS;
+                final int index = row * (columns + 1) + col;
+                // on a tie the current character stays
+                int best = INDEX[consensus[index]];
+                int bestVotes = votes[base + best];
+                int runnerUp = 0;
+                for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+                    if (symbol == best) {
+                        continue;
+                    }
+                    final int v = votes[base + symbol];
+                    if (v > bestVotes) {
+                        runnerUp = bestVotes;
+                        best = symbol;
+                        bestVotes = v;
+                    } else if (v > runnerUp) {
+                        runnerUp = v;
+                    }
+                }
+                consensus[index] = ALPHABET.charAt(best);
+                decided &= bestVotes >= MIN_VOTES && bestVotes > runnerUp;
+            }
+        }
+        if (!decided) {
+            return null;
+        }
+        final int length = rows * (columns + 1) - 1;
+        final MrzFormat format = MrzFormat.find(CharBuffer.wrap(consensus, 0, length));
+        if (format == null || format.countClassMismatches(consensus, 0) != 0 || validators[format.ordinal()].validate(consensus, 0, 1, failed) != 1) {
+            return null;
+        }
+        return new String(consensus, 0, length);
+    }
+
+    @Override
+    public String toString() {
+        return "MrzConsensus{" + rows + "x" + columns + ", readings=" + readings + "}";
+    }
+}
@@ -0,0 +1,589 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+/**
+ * Repairs OCR misreads in a candidate MRZ, guided by the expected character class of every position and by the check digits.
+ * <p/>
+ * OCR-B misreads are predictable: O/0, I/1, B/8, S/5, Z/2, G/6, and the filler read as K or C. The correction runs in two steps:
+ * <ol>
+ * <li>Characters which do not fit the class of their position are mapped to their look-alike, e.g. an O in a date becomes 0 and
+ * a 0 in a country code becomes O.</li>
+ * <li>For every check digit which still fails, a bounded search substitutes look-alikes at the positions where both readings are
+ * allowed, such as document numbers and optional data, until the check digit passes. The composite check digit is repaired last.</li>
+ * </ol>
+ * When the OCR symbols of the candidate are known, see {@link MrzOcrResult}, the search also tries the most confident alternative
+ * reading of every symbol read with a confidence below {@link #LOW_CONFIDENCE}, at any position whose class allows it. This
+ * fixes misreads no look-alike covers, such as a 3 read instead of an 8 in a date.
+ * The corrector is immutable and may be shared between threads.
+ */
+public class MrzCorrector {
+
+    /**
+     * Any MRZ character is allowed.
+     */
+    static final byte ANY = 0;
+    /**
+     * A digit, or a filler when the position is a check digit.
+     */
+    static final byte DIGIT = 1;
+    /**
+     * A letter or a filler.
+     */
+    static final byte ALPHA = 2;
+    /**
+     * A sex: M, F, X or a filler.
+     */
+    static final byte SEX = 3;
+    /**
+     * A letter or a filler, part of a name.
+     */
+    static final byte NAME = 4;
+
+    /**
+     * Confidence lost for every character mapped to the class of its position.
+     */
+    private static final float COERCION_PENALTY = 0.95f;
+    /**
+     * Confidence lost for every character substituted by the search.
+     */
+    private static final float SUBSTITUTION_PENALTY = 0.7f;
+    /**
+     * Symbols read with a lower confidence may be replaced by their OCR alternatives.
+     */
+    public static final float LOW_CONFIDENCE = 0.8f;
+
+    private static final String DIGITS = "0123456789<";
+    private static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ<";
+    private static final String SEXES = "MFX<";
+    private static final String ALL = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ<";
+
+    /**
+     * Result of a correction.
+     */
+    public static final class Result {
+        /**
+         * The corrected MRZ, rows separated by \n, not null.
+         */
+        public final String mrz;
+        /**
+         * The detected format, not null.
+         */
+        public final MrzFormat format;
+        /**
+         * True if all check digits of the corrected MRZ are valid.
+         */
+        public final boolean valid;
+        /**
+         * Number of characters changed.
+         */
+        public final int corrections;
+        /**
+         * Confidence in the corrected MRZ, from 0 (no confidence, the check digits still fail) to 1 (nothing had to be corrected).
+         */
+        public final float confidence;
+
+        Result(String mrz, MrzFormat format, boolean valid, int corrections, float confidence) {
+            this.mrz = mrz;
+            this.format = format;
+            this.valid = valid;
+            this.corrections = corrections;
+            this.confidence = confidence;
+        }
+
+        @Override
+        public String toString() {
+            return "MrzCorrector.Result{" + format + ", valid=" + valid + ", corrections=" + corrections + ", confidence=" + confidence + "}";
+        }
+    }
+
+    /**
+     * Maximum number of characters substituted for a single check digit.
+     */
+    public final int maxSubstitutions;
+    /**
+     * Per format: the class of every position, indexed by row * (columns + 1) + column.
+     */
+    private final byte[][] classes = new byte[MrzFormat.values().length][];
+    private final MrzBatchValidator[] validators = new MrzBatchValidator[MrzFormat.values().length];
+
+    /**
+     * Creates new corrector, which substitutes at most two characters per check digit.
+     */
+    public MrzCorrector() {
+        this(2);
+    }
+
+    /**
+     * Creates new corrector.
+     * @param maxSubstitutions maximum number of characters substituted for a single check digit, 0 to only map characters to the class of their position.
+     */
+    public MrzCorrector(int maxSubstitutions) {
+        if (maxSubstitutions < 0) {
+            throw new IllegalArgumentException("Parameter maxSubstitutions: invalid value " + maxSubstitutions + ": must not be negative");
+        }
+        this.maxSubstitutions = maxSubstitutions;
+        for (MrzFormat f : MrzFormat.values()) {
+            classes[f.ordinal()] = classesOf(f);
+            validators[f.ordinal()] = new MrzBatchValidator(f);
+        }
+    }
+
+    private static byte[] classesOf(MrzFormat format) {
+        final int stride = format.columns + 1;
+        final byte[] result = new byte[format.rows * stride];
+        // document code
+        result[0] = ALPHA;
+        result[1] = ALPHA;
+        final MrzLayout layout = format.layout;
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            final byte c;
+            switch (e.field) {
+                case ISSUING_COUNTRY:
+                case NATIONALITY:
+                    c = ALPHA;
+                    break;
+                case NAME:
+                case SURNAME:
+                case GIVEN_NAMES:
+                    c = NAME;
+                    break;
+                case DATE_OF_BIRTH:
+                case EXPIRATION_DATE:
+                    c = DIGIT;
+                    break;
+                case SEX:
+                    c = SEX;
+                    break;
+                default:
+                    c = ANY;
+                    break;
+            }
+            fill(result, stride, e.range, c);
+            if (e.checkDigit != null) {
+                fill(result, stride, e.checkDigit, DIGIT);
+            }
+        }
+        if (layout.compositeCheckDigit != null) {
+            fill(result, stride, layout.compositeCheckDigit, DIGIT);
+        }
+        return result;
+    }
+
+    private static void fill(byte[] classes, int stride, MrzRange range, byte c) {
+        for (int i = range.column; i < range.columnTo; i++) {
+            classes[range.row * stride + i] = c;
+        }
+    }
+
+    /**
+     * Corrects given candidate.
+     * @param candidate the candidate MRZ, rows separated by \n.
+     * @return the correction result, null if the candidate does not match any MRZ format.
+     */
+    public Result correct(CharSequence candidate) {
+        return correct(candidate, null);
+    }
+
+    /**
+     * Corrects given candidate, trying the alternatives of the symbols read with a low confidence.
+     * @param candidate the candidate MRZ, rows separated by \n.
+     * @param symbols the OCR symbol every character of the candidate was read from, null elements where unknown; null if not known at all.
+     * @return the correction result, null if the candidate does not match any MRZ format.
+     */
+    public Result correct(CharSequence candidate, MrzOcrResult.Symbol[] symbols) {
+        final MrzFormat format = MrzFormat.find(candidate);
+        if (format == null) {
+            return null;
+        }
+        final int stride = format.columns + 1;
+        final char[] mrz = new char[format.rows * stride];
+        for (int i = 0; i < mrz.length; i++) {
+            // the candidate may lack the trailing \n
+            mrz[i] = i < candidate.length() ? Character.toUpperCase(candidate.charAt(i)) : '\n';
+        }
+        final byte[] cls = classes[format.ordinal()];
+        int corrections = 0;
+        float confidence = 1f;
+        for (int i = 0; i < mrz.length; i++) {
+            final char c = coerce(mrz, i, cls);
+            if (c != mrz[i]) {
+                mrz[i] = c;
+                corrections++;
+                confidence *= COERCION_PENALTY;
+            }
+        }
+        final MrzBatchValidator validator = validators[format.ordinal()];
+        final int[] failed = new int[1];
+        validator.validate(mrz, 0, 1, failed);
+        if (failed[0] != 0 && maxSubstitutions > 0) {
+            final char[] alternatives = alternativesOf(mrz, cls, symbols);
+            final boolean[] searchable = searchablePositions(format, cls, alternatives, failed[0]);
+            for (int check = 0; check < validator.getCheckCount() && failed[0] != 0; check++) {
+                if ((failed[0] & (1 << check)) == 0) {
+                    continue;
+                }
+                final int[] positions = positionsOf(format, check, searchable, alternatives);
+                final int found = search(mrz, alternatives, positions, validator, check, failed);
+                final int count = found & 0xFFFF;
+                if (count > 0) {
+                    corrections += count;
+                    for (int i = 0; i < count; i++) {
+                        confidence *= SUBSTITUTION_PENALTY;
+                    }
+                    // several equally good substitutions: any of them may be the wrong one
+                    confidence /= found >>> 16;
+                }
+            }
+        }
+        final boolean valid = failed[0] == 0;
+        return new Result(new String(mrz, 0, mrz.length - 1), format, valid, corrections, valid ? confidence : 0f);
+    }
+
+    /**
+     * Maps the character at given position to the class of the position.
+     */
+    private static char coerce(char[] mrz, int index, byte[] cls) {
+        final char c = mrz[index];
+        switch (cls[index]) {
+            case DIGIT:
+                return toDigit(c);
+            case ALPHA:
+                return toLetter(c);
+            case SEX:
+                return c == 'K' || c == 'C' ? MrzParser.FILLER : c;
+            case NAME:
+                return isTrailingFiller(mrz, index, cls) ? MrzParser.FILLER : toLetter(c);
+            default:
+                return isTrailingFiller(mrz, index, cls) ? MrzParser.FILLER : c;
+        }
+    }
+
+    /**
+     * Checks whether a K or C is a misread filler: it must lie in the trailing filler run of its field, so everything up to the
+     * end of the field are fillers. K is worth 20 and thus invisible to check digits, so this is the only way to catch it.
+     * <p/>
+     * Within a name the filler run must also follow the surname separator and be at least two fillers long, which keeps
+     * single-letter names, such as SMITH&lt;&lt;K or SMITH&lt;&lt;JOHN&lt;K, intact.
+     */
+    private static boolean isTrailingFiller(char[] mrz, int index, byte[] cls) {
+        if (mrz[index] != 'K' && mrz[index] != 'C') {
+            return false;
+        }
+        final byte c = cls[index];
+        for (int i = index + 1; i < mrz.length && cls[i] == c && mrz[i] != '\n'; i++) {
+            if (mrz[i] != MrzParser.FILLER && mrz[i] != 'K' && mrz[i] != 'C') {
+                return false;
+            }
+        }
+        int run = index;
+        while (run > 0 && cls[run - 1] == c && mrz[run - 1] == MrzParser.FILLER) {
+            run--;
+        }
+        if (c != NAME) {
+            return index - run >= 1;
+        }
+        if (index - run < 2) {
+            return false;
+        }
+        for (int i = run - 1; i > 0 && cls[i - 1] == NAME; i--) {
+            if (mrz[i] == MrzParser.FILLER && mrz[i - 1] == MrzParser.FILLER) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static char toDigit(char c) {
+        switch (c) {
+            case 'O':
+                return '0';
+            case 'I':
+                return '1';
+            case 'Z':
+                return '2';
+            case 'S':
+                return '5';
+            case 'G':
+                return '6';
+            case 'B':
+                return '8';
+            default:
+                return c;
+        }
+    }
+
+    private static char toLetter(char c) {
+        switch (c) {
+            case '0':
+                return 'O';
+            case '1':
+                return 'I';
+            case '2':
+                return 'Z';
+            case '5':
+                return 'S';
+            case '6':
+                return 'G';
+            case '8':
+                return 'B';
+            default:
+                return c;
+        }
+    }
+
+    /**
+     * Returns the look-alike of given character, used by the search at positions allowing both letters and digits.
+     * @return the look-alike, or 0 if the character has none.
+     */
+    private static char lookAlike(char c) {
+        switch (c) {
+            case '0':
+                return 'O';
+            case 'O':
+                return '0';
+            case '1':
+                return 'I';
+            case 'I':
+                return '1';
+            case '2':
+                return 'Z';
+            case 'Z':
+                return '2';
+            case '5':
+                return 'S';
+            case 'S':
+                return '5';
+            case '6':
+                return 'G';
+            case 'G':
+                return '6';
+            case '8':
+                return 'B';
+            case 'B':
+                return '8';
+            case 'K':
+            case 'C':
+                return MrzParser.FILLER;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Finds the character the search may substitute at every position: the most confident OCR alternative fitting the class of
+     * a position read with a low confidence, otherwise the look-alike at positions allowing both letters and digits.
+     * @return the substitutes, 0 where there is none.
+     */
+    private static char[] alternativesOf(char[] mrz, byte[] cls, MrzOcrResult.Symbol[] symbols) {
+        final char[] result = new char[mrz.length];
+        for (int i = 0; i < mrz.length; i++) {
+            if (mrz[i] == '\n') {
+                continue;
+            }
+            final MrzOcrResult.Symbol symbol = symbols != null && i < symbols.length ? symbols[i] : null;
+            if (symbol != null && symbol.confidence < LOW_CONFIDENCE) {
+                final char c = symbol.getAlternative(acceptedBy(cls[i]));
+                if (c != 0 && c != mrz[i]) {
+                    result[i] = c;
+                    continue;
+                }
+            }
+            if (cls[i] == ANY) {
+                result[i] = lookAlike(mrz[i]);
+            }
+        }
+        return result;
+    }
+
+    private static String acceptedBy(byte cls) {
+        switch (cls) {
+            case DIGIT:
+                return DIGITS;
+            case ALPHA:
+            case NAME:
+                return LETTERS;
+            case SEX:
+                return SEXES;
+            default:
+                return ALL;
+        }
+    }
+
+    /**
+     * Positions where the search may substitute characters: positions allowing both letters and digits and positions with an
+     * OCR alternative. Positions covered by a field check digit which already passes are excluded, so that the composite
+     * search does not break a valid field.
+     */
+    private boolean[] searchablePositions(MrzFormat format, byte[] cls, char[] alternatives, int failed) {
+        final boolean[] result = new boolean[cls.length];
+        for (int i = 0; i < cls.length; i++) {
+            result[i] = cls[i] == ANY || alternatives[i] != 0;
+        }
+        final int stride = format.columns + 1;
+        final MrzLayout layout = format.layout;
+        int check = 0;
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            if (e.checkDigit == null) {
+                continue;
+            }
+            if ((failed & (1 << check)) == 0) {
+                for (int c = e.range.column; c < e.range.columnTo; c++) {
+                    result[e.range.row * stride + c] = false;
+                }
+            }
+            check++;
+        }
+        return result;
+    }
+
+    /**
+     * Lists the searchable positions covered by given check digit, which have a substitute.
+     */
+    private int[] positionsOf(MrzFormat format, int check, boolean[] searchable, char[] alternatives) {
+        final int stride = format.columns + 1;
+        final MrzLayout layout = format.layout;
+        MrzRange[] ranges = null;
+        int index = 0;
+        for (int i = 0; i < layout.size() && ranges == null; i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            if (e.checkDigit != null && index++ == check) {
+                ranges = new MrzRange[]{e.range};
+            }
+        }
+        if (ranges == null) {
+            // the composite check digit is the last one
+            ranges = new MrzRange[layout.compositeSize()];
+            for (int i = 0; i < ranges.length; i++) {
+                ranges[i] = layout.getComposite(i);
+            }
+        }
+        int count = 0;
+        final int[] positions = new int[alternatives.length];
+        for (MrzRange r : ranges) {
+            for (int c = r.column; c < r.columnTo; c++) {
+                final int p = r.row * stride + c;
+                if (searchable[p] && alternatives[p] != 0) {
+                    positions[count++] = p;
+                }
+            }
+        }
+        final int[] result = new int[count];
+        System.arraycopy(positions, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * State of the search for a single check digit.
+     */
+    private static final class Search {
+        final char[] mrz;
+        final char[] alternatives;
+        final int[] positions;
+        final MrzBatchValidator validator;
+        final int check;
+        final int before;
+        final int[] failed = new int[1];
+        /**
+         * Indices into positions of the current substitutions.
+         */
+        final int[] current;
+        /**
+         * The best substitutions found so far, indices into positions.
+         */
+        final int[] best;
+        int bestFailures = Integer.MAX_VALUE;
+        int bestFailed;
+        /**
+         * Number of substitutions as good as the best one.
+         */
+        int ties;
+
+        Search(char[] mrz, char[] alternatives, int[] positions, MrzBatchValidator validator, int check, int before, int size) {
+            this.mrz = mrz;
+            this.alternatives = alternatives;
+            this.positions = positions;
+            this.validator = validator;
+            this.check = check;
+            this.before = before;
+            this.current = new int[size];
+            this.best = new int[size];
+        }
+    }
+
+    /**
+     * Substitutes the alternatives at given positions, fewest substitutions first, until the check digit passes. Among the
+     * substitutions of the same size, the one which leaves the fewest failing check digits wins, so that the composite check
+     * digit tells apart substitutions which all fix the field.
+     * @return number of substituted characters and the number of equally good substitutions, packed as <code>ties &lt;&lt; 16 | count</code>;
+     * 0 if no substitution makes the check digit pass, the buffer is then unchanged. A substituted character becomes the
+     * alternative of its position, so that a later search may undo it.
+     */
+    private int search(char[] mrz, char[] alternatives, int[] positions, MrzBatchValidator validator, int check, int[] failed) {
+        final int max = Math.min(maxSubstitutions, positions.length);
+        for (int n = 1; n <= max; n++) {
+            final Search search = new Search(mrz, alternatives, positions, validator, check, failed[0], n);
+            search(search, 0, 0);
+            if (search.bestFailures != Integer.MAX_VALUE) {
+                for (int i = 0; i < n; i++) {
+                    final int p = positions[search.best[i]];
+                    final char c = mrz[p];
+                    mrz[p] = alternatives[p];
+                    alternatives[p] = c;
+                }
+                failed[0] = search.bestFailed;
+                return Math.min(search.ties, 0x7FFF) << 16 | n;
+            }
+        }
+        return 0;
+    }
+
+    private static void search(Search search, int depth, int from) {
+        final char[] mrz = search.mrz;
+        for (int i = from; i <= search.positions.length - (search.current.length - depth); i++) {
+            final int p = search.positions[i];
+            final char original = mrz[p];
+            mrz[p] = search.alternatives[p];
+            search.current[depth] = i;
+            if (depth + 1 < search.current.length) {
+                search(search, depth + 1, i + 1);
+            } else {
+                search.validator.validate(mrz, 0, 1, search.failed);
+                final int failed = search.failed[0];
+                // the check must pass without breaking a check which passed before
+                if ((failed & (1 << search.check)) == 0 && (failed & ~search.before) == 0) {
+                    final int failures = Integer.bitCount(failed);
+                    if (failures < search.bestFailures) {
+                        search.bestFailures = failures;
+                        search.bestFailed = failed;
+                        search.ties = 1;
+                        System.arraycopy(search.current, 0, search.best, 0, search.current.length);
+                    } else if (failures == search.bestFailures) {
+                        search.ties++;
+                    }
+                }
+            }
+            mrz[p] = original;
+        }
+    }
+}
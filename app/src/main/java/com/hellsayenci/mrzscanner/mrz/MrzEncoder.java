@@ -0,0 +1,312 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzDate;
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes complete MRZ records of any {@link MrzFormat} into caller-supplied buffers.
+ * <p/>
+ * The fields are written in place at the positions given by the {@link MrzLayout} of the format; every check digit is then
+ * computed once over the characters already in the buffer, the composite one included. Names are shortened as per Doc 9303
+ * in a single pass over the name parts. Apart from growing its scratch space, encoding allocates nothing.
+ * <p/>
+ * The output is the same as {@link MrzRecord#toMrz()}: rows of the format, each followed by \n. An encoder may be reused for
+ * any number of records but is not thread-safe; use one encoder per thread.
+ */
+public final class MrzEncoder {
+
+    /**
+     * Transliterated name parts, concatenated.
+     */
+    private char[] parts = new char[64];
+    /**
+     * Start of every name part in {@link #parts}, surname parts first.
+     */
+    private int[] starts = new int[8];
+    /**
+     * Length of every name part.
+     */
+    private int[] lengths = new int[8];
+    private int count;
+    /**
+     * Scratch buffer of {@link #encode(MrzRecord, ByteBuffer)}.
+     */
+    private char[] chars;
+
+    /**
+     * Returns the number of characters of an encoded record of given format.
+     * @param format the format, not null.
+     * @return number of characters, including the \n after every row.
+     */
+    public static int length(MrzFormat format) {
+        return format.rows * (format.columns + 1);
+    }
+
+    /**
+     * Encodes given record into the buffer.
+     * @param record the record, not null. The names must not be blank, the dates and the sex must be set.
+     * @param buffer the target buffer, with at least {@link #length(MrzFormat)} characters from the offset.
+     * @param offset where to write the first character.
+     * @return number of characters written.
+     * @throws IllegalArgumentException if a mandatory field is missing or the names cannot be shortened enough.
+     */
+    public int encode(MrzRecord record, char[] buffer, int offset) {
+        final MrzFormat format = record.format;
+        final int stride = format.columns + 1;
+        final int size = length(format);
+        if (offset < 0 || offset + size > buffer.length) {
+            throw new IllegalArgumentException("Parameter buffer: invalid value: " + size + " characters from " + offset + " do not fit into " + buffer.length);
+        }
+        for (int row = 0; row < format.rows; row++) {
+            final int start = offset + row * stride;
+            Arrays.fill(buffer, start, start + format.columns, MrzParser.FILLER);
+            buffer[start + format.columns] = '\n';
+        }
+        buffer[offset] = record.code1;
+        buffer[offset + 1] = record.code2;
+        final MrzLayout layout = format.layout;
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            final int pos = offset + e.range.row * stride + e.range.column;
+            final int length = e.range.length();
+            switch (e.field.type) {
+                case NAME:
+                    writeName(record.surname, record.givenNames, buffer, pos, length);
+                    break;
+                case DATE:
+                    final MrzDate date = e.field == MrzField.DATE_OF_BIRTH ? record.dateOfBirth : record.expirationDate;
+                    if (date == null) {
+                        throw new IllegalArgumentException("Parameter record: invalid value: " + e.field + " is null");
+                    }
+                    date.toMrz(buffer, pos);
+                    break;
+                case SEX:
+                    if (record.sex == null) {
+                        throw new IllegalArgumentException("Parameter record: invalid value: " + e.field + " is null");
+                    }
+                    buffer[pos] = record.sex.mrz;
+                    break;
+                default:
+                    final String value = record.getField(e.field);
+                    if (value != null) {
+                        MrzTransliterator.transliterate(value, buffer, pos, length);
+                    }
+                    break;
+            }
+        }
+        // these formats have always been written with a fixed document code
+        switch (format) {
+            case MRV_VISA_A:
+            case MRV_VISA_B:
+                buffer[offset] = 'V';
+                buffer[offset + 1] = MrzParser.FILLER;
+                break;
+            case FRENCH_ID:
+                "IDFRA".getChars(0, 5, buffer, offset);
+                break;
+            default:
+                break;
+        }
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            final MrzRange c = e.checkDigit;
+            if (c != null) {
+                final int pos = offset + e.range.row * stride;
+                buffer[offset + c.row * stride + c.column] = (char) ('0' + checkDigit(buffer, pos + e.range.column, pos + e.range.columnTo, 0) % 10);
+            }
+        }
+        final MrzRange c = layout.compositeCheckDigit;
+        if (c != null) {
+            int sum = 0;
+            int weight = 0;
+            for (int i = 0; i < layout.compositeSize(); i++) {
+                final MrzRange r = layout.getComposite(i);
+                final int pos = offset + r.row * stride;
+                sum += checkDigit(buffer, pos + r.column, pos + r.columnTo, weight);
+                weight = (weight + r.length()) % 3;
+            }
+            buffer[offset + c.row * stride + c.column] = (char) ('0' + sum % 10);
+        }
+        return size;
+    }
+
+    /**
+     * Encodes given record into the buffer as ASCII bytes, one byte per character.
+     * @param record the record, not null.
+     * @param buffer the target buffer, with at least {@link #length(MrzFormat)} bytes remaining.
+     * @return number of bytes written.
+     * @throws BufferOverflowException if the record does not fit; nothing is written then.
+     * @throws IllegalArgumentException if a mandatory field is missing or the names cannot be shortened enough.
+     */
+    public int encode(MrzRecord record, ByteBuffer buffer) {
+        final int size = length(record.format);
+        if (buffer.remaining() < size) {
+            throw new BufferOverflowException();
+        }
+        if (chars == null || chars.length < size) {
+            chars = new char[size];
+        }
+        encode(record, chars, 0);
+        for (int i = 0; i < size; i++) {
+            buffer.put((byte) chars[i]);
+        }
+        return size;
+    }
+
+    /**
+     * Encodes given record into a new string.
+     * @param record the record, not null.
+     * @return the MRZ record, rows separated by \n.
+     */
+    public String encode(MrzRecord record) {
+        final char[] buffer = new char[length(record.format)];
+        encode(record, buffer, 0);
+        return new String(buffer);
+    }
+
+    /**
+     * Computes the weighted sum of the check digit of given characters.
+     * @param weight index of the weight of the first character, 0..2.
+     */
+    private static int checkDigit(char[] buffer, int from, int to, int weight) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            final int value = MrzParser.getCharacterValue(buffer[i]);
+            result += weight == 0 ? 7 * value : weight == 1 ? 3 * value : value;
+            weight = weight == 2 ? 0 : weight + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Writes the name in the form of SURNAME&lt;&lt;GIVEN&lt;NAMES, shortened as per Doc 9303 Part 3 Vol 1 Section 6.7:
+     * the given names are cut from the last one, then the surnames, each down to its first character. Unused characters
+     * are filled with '&lt;'. See {@link MrzParser#nameToMrz(String, String, int)}.
+     */
+    void writeName(String surname, String givenNames, char[] buffer, int offset, int length) {
+        if (MrzParser.isBlank(surname)) {
+            throw new IllegalArgumentException("Parameter surname: invalid value " + surname + ": blank");
+        }
+        if (MrzParser.isBlank(givenNames)) {
+            throw new IllegalArgumentException("Parameter givenNames: invalid value " + givenNames + ": blank");
+        }
+        count = 0;
+        int used = split(surname, 0);
+        final int surnames = count;
+        split(givenNames, used);
+        // every part takes its length plus one separator
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            size += lengths[i] + 1;
+        }
+        int current = count - 1;
+        while (size > length) {
+            final int partLength = lengths[current];
+            if (size - partLength + 1 <= length) {
+                lengths[current] = partLength - (size - length);
+                size = length;
+            } else {
+                lengths[current] = Math.min(partLength, 1);
+                size -= partLength - lengths[current];
+                current--;
+                if (current < 0) {
+                    throw new IllegalArgumentException("Cannot truncate name " + surname + " " + givenNames + ": length too small: " + length);
+                }
+            }
+        }
+        int pos = offset;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                buffer[pos++] = MrzParser.FILLER;
+            }
+            if (i == surnames) {
+                buffer[pos++] = MrzParser.FILLER;
+            }
+            System.arraycopy(parts, starts[i], buffer, pos, lengths[i]);
+            pos += lengths[i];
+        }
+        if (surnames == count) {
+            buffer[pos++] = MrzParser.FILLER;
+        }
+        Arrays.fill(buffer, pos, offset + length, MrzParser.FILLER);
+    }
+
+    /**
+     * Splits a name into whitespace-separated parts, ", " counting as whitespace, and transliterates every part.
+     * @param name the name, not blank.
+     * @param used number of characters of {@link #parts} already taken.
+     * @return number of characters of {@link #parts} taken after the split.
+     */
+    private int split(String name, int used) {
+        int from = 0;
+        int to = name.length();
+        while (from < to && isWhitespace(name, from)) {
+            from++;
+        }
+        while (to > from && isWhitespace(name, to - 1)) {
+            to--;
+        }
+        int i = from;
+        while (i < to) {
+            int end = i;
+            while (end < to && !isSeparator(name, end)) {
+                end++;
+            }
+            if (end > i) {
+                final int capacity = (end - i) * MrzTransliterator.MAX_EXPANSION;
+                if (used + capacity > parts.length) {
+                    parts = Arrays.copyOf(parts, Math.max(parts.length * 2, used + capacity));
+                }
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    lengths = Arrays.copyOf(lengths, count * 2);
+                }
+                starts[count] = used;
+                lengths[count] = MrzTransliterator.transliterate(name, i, end, parts, used, capacity);
+                used += lengths[count];
+                count++;
+            }
+            i = end + 1;
+        }
+        return used;
+    }
+
+    /**
+     * @return true if the character is trimmed from the ends of a name: a control character, space or a comma before a space.
+     */
+    private static boolean isWhitespace(String name, int index) {
+        final char c = name.charAt(index);
+        return c <= ' ' || (c == ',' && index + 1 < name.length() && name.charAt(index + 1) == ' ');
+    }
+
+    /**
+     * @return true if the character separates two name parts.
+     */
+    private static boolean isSeparator(String name, int index) {
+        final char c = name.charAt(index);
+        return c == ' ' || c == '\n' || c == '\t' || c == '\f' || c == '\r'
+                || (c == ',' && index + 1 < name.length() && name.charAt(index + 1) == ' ');
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+/**
+ * Lists the record fields which may be described by a {@link MrzLayout}.
+ */
+public enum MrzField {
+
+    /**
+     * Issuing country, see {@link MrzRecord#issuingCountry}.
+     */
+    ISSUING_COUNTRY(Type.STRING),
+    /**
+     * Document number, see {@link MrzRecord#documentNumber}.
+     */
+    DOCUMENT_NUMBER(Type.STRING),
+    /**
+     * Full name in the form of SURNAME&lt;&lt;GIVEN&lt;NAMES, sets both {@link MrzRecord#surname} and {@link MrzRecord#givenNames}.
+     */
+    NAME(Type.NAME),
+    /**
+     * Surname alone, for formats which store it apart from the given names.
+     */
+    SURNAME(Type.STRING),
+    /**
+     * Given names alone, for formats which store them apart from the surname.
+     */
+    GIVEN_NAMES(Type.STRING),
+    /**
+     * Nationality, see {@link MrzRecord#nationality}.
+     */
+    NATIONALITY(Type.STRING),
+    /**
+     * Date of birth, see {@link MrzRecord#dateOfBirth}.
+     */
+    DATE_OF_BIRTH(Type.DATE),
+    /**
+     * Sex, see {@link MrzRecord#sex}.
+     */
+    SEX(Type.SEX),
+    /**
+     * Expiration date, see {@link MrzRecord#expirationDate}.
+     */
+    EXPIRATION_DATE(Type.DATE),
+    /**
+     * Optional data at the discretion of the issuing State.
+     */
+    OPTIONAL(Type.STRING),
+    /**
+     * Second optional data field, used by TD1.
+     */
+    OPTIONAL2(Type.STRING),
+    /**
+     * Personal number, used by passports.
+     */
+    PERSONAL_NUMBER(Type.STRING);
+
+    /**
+     * How the field value is decoded.
+     */
+    public enum Type {
+        /**
+         * Decoded by {@link MrzParser#parseString(MrzRange)}.
+         */
+        STRING,
+        /**
+         * Decoded by {@link MrzParser#parseName(MrzRange)}.
+         */
+        NAME,
+        /**
+         * Decoded by {@link MrzParser#parseDate(MrzRange)}.
+         */
+        DATE,
+        /**
+         * Decoded by {@link MrzParser#parseSex(int, int)}.
+         */
+        SEX
+    }
+
+    /**
+     * How the field value is decoded.
+     */
+    public final Type type;
+
+    private MrzField(Type type) {
+        this.type = type;
+    }
+}
@@ -0,0 +1,357 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Extracts MRZ records from large text files, e.g. OCR dumps or log exports where the MRZ lines are mixed with other text.
+ * <p/>
+ * A line holds an MRZ row when it contains a run of <code>[A-Z0-9&lt;]</code> characters whose length equals the number of
+ * columns of a {@link MrzFormat}; the first such run of a line is taken. Consecutive lines with rows of the same length form
+ * a block, which is cut into records of as many rows as the format of that length has.
+ * <p/>
+ * The file is memory-mapped in windows and split into chunks scanned in parallel. A block belongs to the chunk where it starts:
+ * the worker of that chunk follows the block past the chunk end, while the worker of the next chunk skips it. Only the
+ * characters of a found record are copied, into a buffer reused by the worker, so the heap use does not depend on the file size.
+ * <p/>
+ * The file is expected in an ASCII-compatible encoding, e.g. UTF-8 or ISO-8859-1.
+ */
+public final class MrzFileScanner {
+
+    /**
+     * Receives the records found by the scanner. The methods are called concurrently from the worker threads and in no
+     * particular order, the offsets may be used to restore the file order.
+     */
+    public interface Sink {
+        /**
+         * A record was found and parsed.
+         * @param offset the file offset of the first row of the record.
+         * @param record the record, not null.
+         */
+        void onRecord(long offset, MrzRecord record);
+
+        /**
+         * A record was found but failed to parse.
+         * @param offset the file offset of the first row of the record.
+         * @param error the failure, not null.
+         */
+        void onError(long offset, RuntimeException error);
+    }
+
+    private static final long DEFAULT_CHUNK_SIZE = 64L << 20;
+    /**
+     * Size of the mapped windows.
+     */
+    private static final int WINDOW_SIZE = 16 << 20;
+    /**
+     * A window is mapped this many bytes before the requested position, so that looking at the previous line does not remap.
+     */
+    private static final int LOOK_BEHIND = 4096;
+
+    private static final boolean[] MRZ_CHARS = new boolean[256];
+    /**
+     * Number of rows of the format with given number of columns, 0 if there is no such format.
+     */
+    private static final int[] ROWS = new int[45];
+
+    static {
+        for (char c = 'A'; c <= 'Z'; c++) {
+            MRZ_CHARS[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            MRZ_CHARS[c] = true;
+        }
+        MRZ_CHARS[MrzParser.FILLER] = true;
+        for (MrzFormat f : MrzFormat.values()) {
+            ROWS[f.columns] = Math.max(ROWS[f.columns], f.rows);
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final long chunkSize;
+
+    /**
+     * Creates new scanner with its own pool using all available processors.
+     */
+    public MrzFileScanner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates new scanner with its own pool.
+     * @param parallelism the number of worker threads, positive.
+     */
+    public MrzFileScanner(int parallelism) {
+        this(new ForkJoinPool(parallelism), true, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates new scanner running on given pool. The pool is not shut down by {@link #shutdown()}.
+     * @param pool the pool, not null.
+     * @param chunkSize the number of bytes scanned by one task, positive.
+     */
+    public MrzFileScanner(ForkJoinPool pool, long chunkSize) {
+        this(pool, false, chunkSize);
+    }
+
+    private MrzFileScanner(ForkJoinPool pool, boolean ownsPool, long chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Parameter chunkSize: invalid value " + chunkSize + ": must be positive");
+        }
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Scans given file and passes all found records to the sink. Returns when the whole file was scanned.
+     * @param file the file to scan, not null.
+     * @param sink receives the records, must be thread-safe.
+     * @return the number of records found, including those which failed to parse.
+     * @throws IOException if the file cannot be read.
+     */
+    public long scan(File file, Sink sink) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final long size = channel.size();
+            final List<Chunk> chunks = new ArrayList<Chunk>();
+            for (long from = 0; from < size; from += chunkSize) {
+                chunks.add(new Chunk(channel, size, from, Math.min(size, from + chunkSize), sink));
+            }
+            pool.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(chunks);
+                }
+            });
+            long count = 0;
+            for (Chunk chunk : chunks) {
+                if (chunk.failure != null) {
+                    throw chunk.failure;
+                }
+                count += chunk.count;
+            }
+            return count;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Shuts down the pool, if it was created by this scanner.
+     */
+    public void shutdown() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Scans the blocks starting in <code>from</code> .. <code>to - 1</code>.
+     */
+    private static final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final FileChannel channel;
+        private final long size;
+        private final long from;
+        private final long to;
+        private final Sink sink;
+        long count;
+        IOException failure;
+
+        // the current window
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long windowEnd;
+        // the result of findRow()
+        private long lineEnd;
+        private long rowOffset;
+        private int rowLength;
+        // rows of the record being collected
+        private final long[] rowOffsets = new long[3];
+        private final char[] record = new char[3 * 45];
+
+        Chunk(FileChannel channel, long size, long from, long to, Sink sink) {
+            this.channel = channel;
+            this.size = size;
+            this.from = from;
+            this.to = to;
+            this.sink = sink;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                scan();
+            } catch (IOException ex) {
+                failure = ex;
+            } finally {
+                window = null;
+            }
+        }
+
+        private void scan() throws IOException {
+            long pos = lineStart(from);
+            if (pos > 0 && pos < size) {
+                // skip the block which started in the previous chunk
+                findRow(previousLineStart(pos));
+                final int previous = rowOffset >= 0 ? rowLength : 0;
+                findRow(pos);
+                while (rowOffset >= 0 && rowLength == previous) {
+                    pos = lineEnd + 1;
+                    if (pos >= size) {
+                        break;
+                    }
+                    findRow(pos);
+                }
+            }
+            int blockLength = 0;
+            int pending = 0;
+            while (pos < size) {
+                findRow(pos);
+                final boolean row = rowOffset >= 0;
+                if (pos >= to && !(row && rowLength == blockLength)) {
+                    break;
+                }
+                if (!row) {
+                    blockLength = 0;
+                    pending = 0;
+                } else {
+                    if (rowLength != blockLength) {
+                        blockLength = rowLength;
+                        pending = 0;
+                    }
+                    rowOffsets[pending++] = rowOffset;
+                    if (pending == ROWS[blockLength]) {
+                        emit(blockLength, pending);
+                        pending = 0;
+                    }
+                }
+                pos = lineEnd + 1;
+            }
+        }
+
+        private void emit(int columns, int rows) throws IOException {
+            int length = 0;
+            for (int r = 0; r < rows; r++) {
+                if (r > 0) {
+                    record[length++] = '\n';
+                }
+                final long offset = rowOffsets[r];
+                for (int c = 0; c < columns; c++) {
+                    record[length++] = (char) get(offset + c);
+                }
+            }
+            count++;
+            final MrzRecord parsed;
+            try {
+                parsed = MrzParser.parse(record, 0, length);
+            } catch (RuntimeException ex) {
+                sink.onError(rowOffsets[0], ex);
+                return;
+            }
+            sink.onRecord(rowOffsets[0], parsed);
+        }
+
+        /**
+         * Finds the first MRZ row of the line starting at given position. Sets {@link #lineEnd} to the position of the line
+         * terminator or the file size, {@link #rowOffset} to the position of the row or -1 and {@link #rowLength}.
+         */
+        private void findRow(long start) throws IOException {
+            rowOffset = -1;
+            long runStart = -1;
+            long p = start;
+            for (; p < size; p++) {
+                final int b = get(p);
+                if (b == '\n') {
+                    break;
+                }
+                if (MRZ_CHARS[b]) {
+                    if (runStart < 0) {
+                        runStart = p;
+                    }
+                } else if (runStart >= 0) {
+                    checkRun(runStart, p);
+                    runStart = -1;
+                }
+            }
+            if (runStart >= 0) {
+                checkRun(runStart, p);
+            }
+            lineEnd = p;
+        }
+
+        private void checkRun(long start, long end) {
+            final long length = end - start;
+            if (rowOffset < 0 && length < ROWS.length && ROWS[(int) length] > 0) {
+                rowOffset = start;
+                rowLength = (int) length;
+            }
+        }
+
+        /**
+         * @return the start of the first line starting at or after given position, may be the file size.
+         */
+        private long lineStart(long pos) throws IOException {
+            if (pos == 0) {
+                return 0;
+            }
+            long p = pos - 1;
+            while (p < size && get(p) != '\n') {
+                p++;
+            }
+            return p + 1;
+        }
+
+        /**
+         * @return the start of the line preceding the line which starts at given position.
+         */
+        private long previousLineStart(long pos) throws IOException {
+            long p = pos - 2;
+            while (p >= 0 && get(p) != '\n') {
+                p--;
+            }
+            return p + 1;
+        }
+
+        private int get(long pos) throws IOException {
+            if (pos < windowStart || pos >= windowEnd) {
+                windowStart = Math.max(0, pos - LOOK_BEHIND);
+                windowEnd = Math.min(size, windowStart + WINDOW_SIZE);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+            }
+            return window.get((int) (pos - windowStart)) & 0xFF;
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzDate;
+import com.hellsayenci.mrzscanner.mrz.types.MrzDocumentCode;
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+import com.hellsayenci.mrzscanner.mrz.types.MrzSex;
+
+import java.util.Arrays;
+
+/**
+ * Immutable description of where the fields and check digits of a {@link com.hellsayenci.mrzscanner.mrz.types.MrzFormat} are located.
+ * <p/>
+ * Every format owns a single layout, created once. Parsing a record walks the layout entries in order, so no ranges are
+ * created per parse and a new format is described by data instead of code.
+ */
+public final class MrzLayout {
+
+    /**
+     * A single field of the layout.
+     */
+    public static final class Entry {
+        /**
+         * The field, not null.
+         */
+        public final MrzField field;
+        /**
+         * Characters of the field, not null.
+         */
+        public final MrzRange range;
+        /**
+         * Position of the check digit of this field, null if the field has no check digit.
+         */
+        public final MrzRange checkDigit;
+
+        private Entry(MrzField field, MrzRange range, MrzRange checkDigit) {
+            this.field = field;
+            this.range = range;
+            this.checkDigit = checkDigit;
+        }
+
+        @Override
+        public String toString() {
+            return field + "@" + range + (checkDigit == null ? "" : "+" + checkDigit);
+        }
+    }
+
+    /**
+     * Describes an unchecked field.
+     * @param field the field.
+     * @param column 0-based index of first character of the field.
+     * @param columnTo 0-based index of a character after last character of the field.
+     * @param row 0-based row.
+     * @return the layout entry.
+     */
+    public static Entry field(MrzField field, int column, int columnTo, int row) {
+        return new Entry(field, new MrzRange(column, columnTo, row), null);
+    }
+
+    /**
+     * Describes a field followed by its check digit, which is placed right after the last character of the field.
+     * @param field the field.
+     * @param column 0-based index of first character of the field.
+     * @param columnTo 0-based index of a character after last character of the field, also the column of the check digit.
+     * @param row 0-based row.
+     * @return the layout entry.
+     */
+    public static Entry checked(MrzField field, int column, int columnTo, int row) {
+        return new Entry(field, new MrzRange(column, columnTo, row), new MrzRange(columnTo, columnTo + 1, row));
+    }
+
+    /**
+     * Character class of an A-Z letter, see {@link #classOf(char)}.
+     */
+    public static final byte CLASS_ALPHA = 1;
+    /**
+     * Character class of a digit.
+     */
+    public static final byte CLASS_DIGIT = 2;
+    /**
+     * Character class of the filler.
+     */
+    public static final byte CLASS_FILLER = 4;
+    /**
+     * Character class of a sex: M, F, X and the filler.
+     */
+    public static final byte CLASS_SEX = 8;
+
+    /**
+     * The classes of every character below 128.
+     */
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CLASSES[c] = CLASS_ALPHA;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] = CLASS_DIGIT;
+        }
+        CLASSES['M'] |= CLASS_SEX;
+        CLASSES['F'] |= CLASS_SEX;
+        CLASSES['X'] |= CLASS_SEX;
+        CLASSES[MrzParser.FILLER] = CLASS_FILLER | CLASS_SEX;
+    }
+
+    /**
+     * Returns the classes of given character.
+     * @param c the character.
+     * @return bit mask of the <code>CLASS_*</code> constants the character belongs to, 0 if it is not a MRZ character.
+     */
+    public static int classOf(char c) {
+        return c < CLASSES.length ? CLASSES[c] : 0;
+    }
+
+    /**
+     * The document code, the first two characters of every format.
+     */
+    private static final MrzRange DOCUMENT_CODE = new MrzRange(0, 2, 0);
+
+    /**
+     * The fields, in the order they are parsed.
+     */
+    private final Entry[] entries;
+    /**
+     * Index of the entry of every field, by the field ordinal; -1 if the layout has no such field.
+     */
+    private final int[] indexes;
+    /**
+     * Position of the composite check digit, null if the format has none.
+     */
+    public final MrzRange compositeCheckDigit;
+    /**
+     * Ranges covered by the composite check digit, concatenated in this order. Empty if the format has no composite check digit.
+     */
+    private final MrzRange[] composite;
+
+    /**
+     * Creates new layout.
+     * @param entries the fields, in the order they are parsed.
+     * @param compositeCheckDigit position of the composite check digit, null if the format has none.
+     * @param composite ranges covered by the composite check digit.
+     */
+    public MrzLayout(Entry[] entries, MrzRange compositeCheckDigit, MrzRange... composite) {
+        if ((compositeCheckDigit == null) != (composite.length == 0)) {
+            throw new IllegalArgumentException("Parameter composite: must be given together with the composite check digit");
+        }
+        this.entries = entries.clone();
+        indexes = new int[MrzField.values().length];
+        Arrays.fill(indexes, -1);
+        for (int i = 0; i < entries.length; i++) {
+            indexes[entries[i].field.ordinal()] = i;
+        }
+        this.compositeCheckDigit = compositeCheckDigit;
+        this.composite = composite.clone();
+    }
+
+    /**
+     * Returns number of fields of this layout.
+     * @return number of entries.
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Returns field of given index.
+     * @param index 0-based index, in parse order.
+     * @return the entry, not null.
+     */
+    public Entry get(int index) {
+        return entries[index];
+    }
+
+    /**
+     * Returns the index of given field.
+     * @param field the field, not null.
+     * @return 0-based index of the entry of the field, -1 if this layout has no such field.
+     */
+    public int indexOf(MrzField field) {
+        return indexes[field.ordinal()];
+    }
+
+    /**
+     * Returns a range covered by the composite check digit.
+     * @param index 0-based index of the range.
+     * @return the range, not null.
+     */
+    public MrzRange getComposite(int index) {
+        return composite[index];
+    }
+
+    /**
+     * Returns number of ranges covered by the composite check digit.
+     * @return number of ranges, 0 if the format has no composite check digit.
+     */
+    public int compositeSize() {
+        return composite.length;
+    }
+
+    /**
+     * Checks that the fields covered by a check digit, the composite one included, hold only valid MRZ characters, so that
+     * an invalid character is reported as a {@link MrzParseException} rather than when its check digit is computed.
+     * @param parser the parser of the MRZ, not null.
+     * @throws MrzParseException at the first invalid character.
+     */
+    void checkValidCharacters(MrzParser parser) {
+        for (final Entry e : entries) {
+            if (e.checkDigit != null) {
+                parser.checkValidCharacters(e.range);
+            }
+        }
+        for (final MrzRange r : composite) {
+            parser.checkValidCharacters(r);
+        }
+    }
+
+    /**
+     * Decodes all fields of this layout into given record and verifies their check digits.
+     * @param parser the parser of the MRZ, not null.
+     * @param record the record to fill, not null.
+     * @throws MrzParseException when a problem occurs.
+     */
+    void parse(MrzParser parser, MrzRecord record) {
+        checkValidCharacters(parser);
+        for (final Entry e : entries) {
+            final MrzRange r = e.range;
+            boolean validDate = true;
+            switch (e.field.type) {
+                case NAME:
+                    record.setName(parser.parseName(r));
+                    break;
+                case SEX:
+                    record.sex = parser.parseSex(r.column, r.row);
+                    break;
+                case DATE:
+                    // dates of birth are in the past, expiration dates mostly in the future
+                    if (e.field == MrzField.DATE_OF_BIRTH) {
+                        record.dateOfBirth = parser.parseDate(r, MrzDate.Century.PAST);
+                        validDate = record.dateOfBirth.isDateValid();
+                    } else {
+                        record.expirationDate = parser.parseDate(r, MrzDate.Century.FUTURE);
+                        validDate = record.expirationDate.isDateValid();
+                    }
+                    break;
+                default:
+                    record.setField(e.field, parser.parseString(r));
+                    break;
+            }
+            if (e.checkDigit != null) {
+                record.setValid(e.field, parser.checkDigit(e.checkDigit.column, e.checkDigit.row, r, e.field.name()) && validDate);
+            }
+        }
+        if (compositeCheckDigit != null) {
+            record.validComposite = checkComposite(parser);
+        }
+    }
+
+    /**
+     * Verifies the composite check digit.
+     * @param parser the parser of the MRZ, not null.
+     * @return true if the composite check digit is valid or this layout has none.
+     */
+    boolean checkComposite(MrzParser parser) {
+        return compositeCheckDigit == null || parser.checkDigit(compositeCheckDigit.column, compositeCheckDigit.row, composite, "composite");
+    }
+
+    /**
+     * Runs all checks of the layout and collects the failures in the result, without throwing.
+     * @param parser the MRZ, not null.
+     * @param result receives the failures, already reset.
+     */
+    void validate(MrzParser parser, MrzValidationResult result) {
+        final MrzFormat format = parser.format;
+        boolean invalidCharacters = false;
+        for (int row = 0; row < format.rows; row++) {
+            for (int col = 0; col < format.columns; col++) {
+                if (!MrzParser.isValid(parser.charAt(col, row))) {
+                    result.failCharacter(getFieldAt(col, row), result.characterRange(col, row), isParsed(col, row));
+                    invalidCharacters = true;
+                }
+            }
+        }
+        if (!MrzDocumentCode.isValid(parser.charAt(0, 0), parser.charAt(1, 0))) {
+            result.fail(null, DOCUMENT_CODE, MrzValidationResult.Error.DOCUMENT_CODE);
+        }
+        for (final Entry e : entries) {
+            final MrzRange r = e.range;
+            if (result.getRange(e.field) != null) {
+                // invalid characters, nothing more to check
+                continue;
+            }
+            switch (e.field.type) {
+                case SEX:
+                    if (!MrzSex.isValid(parser.charAt(r.column, r.row))) {
+                        result.fail(e.field, r, MrzValidationResult.Error.INVALID_SEX);
+                    }
+                    break;
+                case DATE:
+                    final int year = parser.parseTwoDigits(r.column, r.row);
+                    final int month = parser.parseTwoDigits(r.column + 2, r.row);
+                    final int day = parser.parseTwoDigits(r.column + 4, r.row);
+                    final MrzDate.Century century = e.field == MrzField.DATE_OF_BIRTH ? MrzDate.Century.PAST : MrzDate.Century.FUTURE;
+                    if (!MrzDate.isDateValid(year, month, day, century)) {
+                        result.fail(e.field, r, MrzValidationResult.Error.INVALID_DATE);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (e.checkDigit != null && !parser.isCheckDigit(e.checkDigit.column, e.checkDigit.row, parser.computeCheckDigit(r.row, r.column, r.columnTo))) {
+                result.fail(e.field, r, MrzValidationResult.Error.CHECK_DIGIT);
+            }
+        }
+        if (compositeCheckDigit != null && !invalidCharacters
+                && !parser.isCheckDigit(compositeCheckDigit.column, compositeCheckDigit.row, parser.computeCheckDigit(composite))) {
+            result.failComposite(compositeCheckDigit);
+        }
+    }
+
+    /**
+     * @return the field covering given position, including its check digit; null if there is no such field.
+     */
+    private MrzField getFieldAt(int col, int row) {
+        for (final Entry e : entries) {
+            if (contains(e.range, col, row) || (e.checkDigit != null && contains(e.checkDigit, col, row))) {
+                return e.field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if {@link #parse(MrzParser, MrzRecord)} reads the character at given position as more than a check digit:
+     * it is decoded as a string, a name or the sex, or covered by a check digit, so that an invalid character fails the parse.
+     */
+    private boolean isParsed(int col, int row) {
+        for (final Entry e : entries) {
+            // dates are decoded digit by digit, any other character reads as an invalid date
+            if (contains(e.range, col, row) && (e.field.type != MrzField.Type.DATE || e.checkDigit != null)) {
+                return true;
+            }
+        }
+        for (final MrzRange r : composite) {
+            if (contains(r, col, row)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(MrzRange range, int col, int row) {
+        return range.row == row && col >= range.column && col < range.columnTo;
+    }
+
+    /**
+     * Verifies all check digits of this layout, without decoding any field.
+     * @param parser the parser of the MRZ, not null.
+     * @return true if all check digits are valid, false otherwise.
+     */
+    boolean isValid(MrzParser parser) {
+        for (final Entry e : entries) {
+            final MrzRange c = e.checkDigit;
+            if (c != null && !parser.isCheckDigit(c.column, c.row, parser.computeCheckDigit(e.range.row, e.range.column, e.range.columnTo))) {
+                return false;
+            }
+        }
+        return compositeCheckDigit == null
+                || parser.isCheckDigit(compositeCheckDigit.column, compositeCheckDigit.row, parser.computeCheckDigit(composite));
+    }
+
+    /**
+     * Creates the mask of character classes allowed at every position: letters and fillers in the document code, country codes
+     * and names, digits in dates, digits and fillers in check digits, the sex at its position and any MRZ character elsewhere.
+     * @param rows number of rows of the format.
+     * @param columns number of columns of the format.
+     * @return the mask of every position, indexed by row * columns + column; a character fits its position when
+     * <code>(classOf(c) &amp; mask) != 0</code>.
+     */
+    public byte[] createClassMask(int rows, int columns) {
+        final byte[] mask = new byte[rows * columns];
+        Arrays.fill(mask, (byte) (CLASS_ALPHA | CLASS_DIGIT | CLASS_FILLER));
+        fill(mask, columns, DOCUMENT_CODE, CLASS_ALPHA | CLASS_FILLER);
+        for (final Entry e : entries) {
+            switch (e.field) {
+                case ISSUING_COUNTRY:
+                case NATIONALITY:
+                case NAME:
+                case SURNAME:
+                case GIVEN_NAMES:
+                    fill(mask, columns, e.range, CLASS_ALPHA | CLASS_FILLER);
+                    break;
+                case DATE_OF_BIRTH:
+                case EXPIRATION_DATE:
+                    fill(mask, columns, e.range, CLASS_DIGIT);
+                    break;
+                case SEX:
+                    fill(mask, columns, e.range, CLASS_SEX);
+                    break;
+                default:
+                    break;
+            }
+            if (e.checkDigit != null) {
+                fill(mask, columns, e.checkDigit, CLASS_DIGIT | CLASS_FILLER);
+            }
+        }
+        if (compositeCheckDigit != null) {
+            fill(mask, columns, compositeCheckDigit, CLASS_DIGIT | CLASS_FILLER);
+        }
+        return mask;
+    }
+
+    private static void fill(byte[] mask, int columns, MrzRange range, int classes) {
+        Arrays.fill(mask, range.row * columns + range.column, range.row * columns + range.columnTo, (byte) classes);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("MrzLayout{");
+        for (Entry e : entries) {
+            sb.append(e).append(", ");
+        }
+        sb.append("composite=").append(compositeCheckDigit).append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,218 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Structured OCR output: the recognized lines, every line a list of symbols with its bounding box, confidence and alternative
+ * readings. Unlike plain text it tells which characters the OCR engine was unsure about and what else they might be, which
+ * lets {@link MrzCorrector} repair them against the check digits.
+ * <p/>
+ * Confidences are 0..1. Boxes are in pixels of the recognized image, the right and bottom edges exclusive. The result is
+ * immutable.
+ */
+public final class MrzOcrResult {
+
+    /**
+     * A single recognized symbol.
+     */
+    public static final class Symbol {
+        /**
+         * The text of the symbol, usually a single character, not null.
+         */
+        public final String text;
+        public final int left;
+        public final int top;
+        public final int right;
+        public final int bottom;
+        /**
+         * Confidence of the reading, 0..1.
+         */
+        public final float confidence;
+        /**
+         * Other readings of the symbol, most confident first; never contains {@link #text}, not null.
+         */
+        public final String[] alternatives;
+        /**
+         * Confidence of every alternative, 0..1.
+         */
+        public final float[] alternativeConfidences;
+
+        /**
+         * Creates new symbol.
+         * @param alternatives other readings of the symbol, most confident first, not null.
+         * @param alternativeConfidences confidence of every alternative, not null, of the same length as alternatives.
+         */
+        public Symbol(String text, int left, int top, int right, int bottom, float confidence, String[] alternatives, float[] alternativeConfidences) {
+            if (alternatives.length != alternativeConfidences.length) {
+                throw new IllegalArgumentException("Parameter alternativeConfidences: invalid value " + alternativeConfidences.length + ": must have " + alternatives.length + " elements");
+            }
+            this.text = text;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+            this.confidence = confidence;
+            this.alternatives = alternatives;
+            this.alternativeConfidences = alternativeConfidences;
+        }
+
+        /**
+         * Returns the most confident alternative single-character reading accepted by given filter.
+         * @param accepted the characters to choose from.
+         * @return the alternative, or 0 if there is none.
+         */
+        public char getAlternative(String accepted) {
+            for (String a : alternatives) {
+                if (a.length() == 1 && accepted.indexOf(Character.toUpperCase(a.charAt(0))) >= 0) {
+                    return Character.toUpperCase(a.charAt(0));
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Symbol{" + text + ", confidence=" + confidence + ", box=" + left + "," + top + "," + right + "," + bottom + "}";
+        }
+    }
+
+    /**
+     * A recognized line of text.
+     */
+    public static final class Line {
+        /**
+         * The symbols, left to right, not null.
+         */
+        public final List<Symbol> symbols;
+        /**
+         * Bounding box of all symbols; all 0 if there are none.
+         */
+        public final int left;
+        public final int top;
+        public final int right;
+        public final int bottom;
+        /**
+         * The lowest confidence of all symbols, 0 if there are none.
+         */
+        public final float confidence;
+
+        /**
+         * Creates new line.
+         * @param symbols the symbols, left to right, not null.
+         */
+        public Line(List<Symbol> symbols) {
+            this.symbols = Collections.unmodifiableList(new ArrayList<Symbol>(symbols));
+            int l = Integer.MAX_VALUE, t = Integer.MAX_VALUE, r = Integer.MIN_VALUE, b = Integer.MIN_VALUE;
+            float c = 1f;
+            for (Symbol s : symbols) {
+                l = Math.min(l, s.left);
+                t = Math.min(t, s.top);
+                r = Math.max(r, s.right);
+                b = Math.max(b, s.bottom);
+                c = Math.min(c, s.confidence);
+            }
+            final boolean empty = symbols.isEmpty();
+            left = empty ? 0 : l;
+            top = empty ? 0 : t;
+            right = empty ? 0 : r;
+            bottom = empty ? 0 : b;
+            confidence = empty ? 0f : c;
+        }
+
+        /**
+         * @return the text of all symbols.
+         */
+        public String getText() {
+            final StringBuilder sb = new StringBuilder(symbols.size());
+            for (Symbol s : symbols) {
+                sb.append(s.text);
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return "Line{" + getText() + ", confidence=" + confidence + ", box=" + left + "," + top + "," + right + "," + bottom + "}";
+        }
+    }
+
+    /**
+     * The lines, top to bottom, not null.
+     */
+    public final List<Line> lines;
+
+    /**
+     * Creates new result.
+     * @param lines the lines, top to bottom, not null.
+     */
+    public MrzOcrResult(List<Line> lines) {
+        this.lines = Collections.unmodifiableList(new ArrayList<Line>(lines));
+    }
+
+    /**
+     * @return the text of all lines, separated by \n.
+     */
+    public String getText() {
+        final StringBuilder sb = new StringBuilder();
+        for (int l = 0; l < lines.size(); l++) {
+            if (l > 0) {
+                sb.append('\n');
+            }
+            for (Symbol s : lines.get(l).symbols) {
+                sb.append(s.text);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the symbol every character of {@link #getText()} was read from.
+     * @return array of the length of the text; null at the line separators.
+     */
+    public Symbol[] getTextSymbols() {
+        int length = Math.max(0, lines.size() - 1);
+        for (Line line : lines) {
+            for (Symbol s : line.symbols) {
+                length += s.text.length();
+            }
+        }
+        final Symbol[] result = new Symbol[length];
+        int pos = 0;
+        for (int l = 0; l < lines.size(); l++) {
+            if (l > 0) {
+                pos++;
+            }
+            for (Symbol s : lines.get(l).symbols) {
+                for (int i = 0; i < s.text.length(); i++) {
+                    result[pos++] = s;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "MrzOcrResult{" + lines.size() + " lines}";
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, thread-safe cache in front of {@link MrzParser#parse(CharSequence)}, for callers which see the same MRZ text
+ * over and over, e.g. a camera held still over a document or deduplication of stored scans.
+ * <p/>
+ * Entries are keyed by the MRZ text with trailing \n characters removed, which the parser ignores anyway; the key hash is a
+ * polynomial hash computed over the characters in place, so looking up a hit copies nothing. Failures are cached as well:
+ * the same {@link RuntimeException} instance is rethrown for the same text. When full, the least recently used entry is evicted.
+ * <p/>
+ * Every caller gets its own {@link MrzRecord#copy() copy} of the cached record and may modify it.
+ */
+public final class MrzParseCache {
+
+    private final Map<Key, Object> cache;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates new cache.
+     * @param capacity the maximum number of cached records, at least 1.
+     */
+    public MrzParseCache(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Parameter capacity: invalid value " + capacity + ": must be at least 1");
+        }
+        cache = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Parses given MRZ, or returns the result of a previous parse of the same text.
+     * @param mrz the MRZ to parse, not null.
+     * @return the record, a copy owned by the caller.
+     * @throws RuntimeException the exception thrown by the parser, e.g. {@link MrzParseException}, also when cached.
+     */
+    public MrzRecord parse(CharSequence mrz) {
+        final Key probe = new Key(mrz);
+        Object result;
+        synchronized (this) {
+            result = cache.get(probe);
+            if (result != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        if (result == null) {
+            // parse outside of the lock; a concurrent miss of the same text just parses it twice
+            try {
+                result = MrzParser.parse(probe.text);
+            } catch (RuntimeException ex) {
+                result = ex;
+            }
+            final Key key = new Key(probe.text.toString(), probe.hash);
+            synchronized (this) {
+                cache.put(key, result);
+            }
+        }
+        if (result instanceof RuntimeException) {
+            throw (RuntimeException) result;
+        }
+        return ((MrzRecord) result).copy();
+    }
+
+    /**
+     * @return number of parses answered from the cache.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of parses which had to run the parser.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of cached records, including failures.
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Removes all cached records and resets the counters.
+     */
+    public synchronized void clear() {
+        cache.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MrzParseCache{size=" + cache.size() + ", hits=" + hits + ", misses=" + misses + "}";
+    }
+
+    /**
+     * The normalized MRZ text with its hash.
+     */
+    private static final class Key {
+        final CharSequence text;
+        final int hash;
+
+        Key(CharSequence mrz) {
+            int length = mrz.length();
+            while (length > 0 && mrz.charAt(length - 1) == '\n') {
+                length--;
+            }
+            text = length == mrz.length() ? mrz : mrz.subSequence(0, length);
+            int h = 0;
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + text.charAt(i);
+            }
+            hash = h;
+        }
+
+        Key(String text, int hash) {
+            this.text = text;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            if (hash != other.hash || text.length() != other.text.length()) {
+                return false;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) != other.text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
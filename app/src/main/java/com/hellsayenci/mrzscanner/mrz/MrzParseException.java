@@ -41,9 +41,17 @@ public class MrzParseException extends RuntimeException {
     public final MrzFormat format;
 
     public MrzParseException(String message, String mrz, MrzRange range, MrzFormat format) {
-        super("Failed to parse MRZ " + format + " " + mrz + " at " + range + ": " + message);
+        super(message);
         this.mrz = mrz;
         this.format = format;
         this.range = range;
     }
+
+    /**
+     * The message includes the whole MRZ, so it is only built when asked for.
+     */
+    @Override
+    public String getMessage() {
+        return "Failed to parse MRZ " + format + " " + mrz + " at " + range + ": " + super.getMessage();
+    }
 }
@@ -24,39 +24,96 @@ import com.hellsayenci.mrzscanner.mrz.types.MrzSex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.text.Normalizer;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.CharBuffer;
+import java.util.Arrays;
 
 /**
  * Parses the MRZ records.
  * <p/>
+ * The parser reads all fields in place from the underlying {@link CharSequence}: rows are addressed by their offset in the
+ * character sequence, so no row strings nor intermediate substrings are created. Only the final field values are allocated.
+ * <p/>
  * All parse methods throws {@link MrzParseException} unless stated otherwise.
  * @author Martin Vysny
  */
 public class MrzParser {
 
     /**
-     * The MRZ record, not null.
+     * The MRZ record, not null. Rows are separated by \n. Read in place, never copied.
+     */
+    public final CharSequence input;
+    /**
+     * The MRZ record.
+     * @deprecated only set by {@link #MrzParser(String)}, null otherwise; use {@link #input}.
      */
+    @Deprecated
     public final String mrz;
     /**
      * The MRZ record separated into rows.
+     * @deprecated only set by {@link #MrzParser(String)}, null otherwise; use {@link #charAt(int, int)} or
+     * {@link #rawValue(MrzRange...)}.
      */
+    @Deprecated
     public final String[] rows;
     /**
      * MRZ record format.
      */
     public final MrzFormat format;
+    /**
+     * Offset between the first characters of two consecutive rows: number of columns plus the \n separator.
+     */
+    private final int rowStride;
 
     /**
-     * Creates new parser which parses given MRZ record.
+     * Creates new parser which parses given MRZ record. Also fills the deprecated {@link #mrz} and {@link #rows} fields, so
+     * it splits the record into rows; {@link #MrzParser(CharSequence)} does not.
      * @param mrz the MRZ record, not null.
      */
     public MrzParser(String mrz) {
+        this(mrz, MrzFormat.get(mrz), mrz, mrz.split("\n"));
+    }
+
+    /**
+     * Creates new parser which parses given MRZ record in place.
+     * @param mrz the MRZ record, not null.
+     */
+    public MrzParser(CharSequence mrz) {
+        this(mrz, MrzFormat.get(mrz));
+    }
+
+    /**
+     * Creates new parser of a MRZ record whose format has already been detected.
+     */
+    MrzParser(CharSequence mrz, MrzFormat format) {
+        this(mrz, format, null, null);
+    }
+
+    private MrzParser(CharSequence input, MrzFormat format, String mrz, String[] rows) {
+        this.input = input;
         this.mrz = mrz;
-        this.rows = mrz.split("\n");
-        this.format = MrzFormat.get(mrz);
+        this.rows = rows;
+        this.format = format;
+        this.rowStride = format.columns + 1;
+    }
+
+    /**
+     * Creates new parser which parses given MRZ record. The array is not copied.
+     * @param mrz the buffer holding the MRZ record, rows separated by \n, not null.
+     * @param offset index of the first MRZ character in the buffer.
+     * @param length number of characters of the MRZ record.
+     */
+    public MrzParser(char[] mrz, int offset, int length) {
+        this((CharSequence) CharBuffer.wrap(mrz, offset, length));
+    }
+
+    /**
+     * Returns the MRZ character at given position.
+     * @param col the 0-based column.
+     * @param row the 0-based row.
+     * @return the character.
+     */
+    public char charAt(int col, int row) {
+        return input.charAt(row * rowStride + col);
     }
 
     /**
@@ -67,23 +124,18 @@ public class MrzParser {
      */
     public String[] parseName(MrzRange range) {
         checkValidCharacters(range);
-        String str = rawValue(range);
-        while (str.endsWith("<")) {
-            str = str.substring(0, str.length() - 1);
-        }
-        final String[] names = str.split("<<");
-        String surname = "";
-        String givenNames = "";
-        surname = parseString(new MrzRange(range.column, range.column + names[0].length(), range.row));
-        if(names.length==1){
-            givenNames = parseString(new MrzRange(range.column, range.column + names[0].length(), range.row));
-            surname = "";
+        final int end = trimFillers(range.row, range.column, range.columnTo);
+        int separator = -1;
+        for (int i = range.column; i < end - 1; i++) {
+            if (charAt(i, range.row) == FILLER && charAt(i + 1, range.row) == FILLER) {
+                separator = i;
+                break;
+            }
         }
-        else if(names.length>1){
-            surname = parseString(new MrzRange(range.column, range.column + names[0].length(), range.row));
-            givenNames = parseString(new MrzRange(range.column + names[0].length() + 2, range.column + str.length(), range.row));
+        if (separator < 0) {
+            return new String[]{"", toValue(range.row, range.column, end)};
         }
-        return new String[]{surname, givenNames};
+        return new String[]{toValue(range.row, range.column, separator), toValue(range.row, separator + 2, end)};
     }
 
     /**
@@ -92,9 +144,14 @@ public class MrzParser {
      * @return raw value, never null, may be empty.
      */
     public String rawValue(MrzRange... range) {
-        final StringBuilder sb = new StringBuilder();
+        int length = 0;
         for (MrzRange r : range) {
-            sb.append(rows[r.row].substring(r.column, r.columnTo));
+            length += r.length();
+        }
+        final StringBuilder sb = new StringBuilder(length);
+        for (MrzRange r : range) {
+            final int offset = r.row * rowStride;
+            sb.append(input, offset + r.column, offset + r.columnTo);
         }
         return sb.toString();
     }
@@ -104,11 +161,10 @@ public class MrzParser {
      * @param range the range to check.
      */
     public void checkValidCharacters(MrzRange range) {
-        final String str = rawValue(range);
-        for (int i = 0; i < str.length(); i++) {
-            final char c = str.charAt(i);
-            if (c != FILLER && (c < '0' || c > '9') && (c < 'A' || c > 'Z')) {
-                throw new MrzParseException("Invalid character in MRZ record: " + c, mrz, new MrzRange(range.column + i, range.column + i + 1, range.row), format);
+        for (int i = range.column; i < range.columnTo; i++) {
+            final char c = charAt(i, range.row);
+            if (!isValid(c)) {
+                throw new MrzParseException("Invalid character in MRZ record: " + c, input.toString(), new MrzRange(i, i + 1, range.row), format);
             }
         }
     }
@@ -120,11 +176,58 @@ public class MrzParser {
      */
     public String parseString(MrzRange range) {
         checkValidCharacters(range);
-        String str = rawValue(range);
-        while (str.endsWith("<")) {
-            str = str.substring(0, str.length() - 1);
+        return toValue(range.row, range.column, trimFillers(range.row, range.column, range.columnTo));
+    }
+
+    /**
+     * Finds the end of given row span with all trailing fillers removed.
+     * @return 0-based index of a column after the last non-filler character, or <code>from</code> if there is none.
+     */
+    private int trimFillers(int row, int from, int to) {
+        while (to > from && charAt(to - 1, row) == FILLER) {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * Converts given row span to a string value, replacing &lt;&lt; with ", " and &lt; with space. Both replacements
+     * keep the length, so the value is built directly in a single array.
+     */
+    private String toValue(int row, int from, int to) {
+        final char[] value = new char[to - from];
+        final int offset = row * rowStride;
+        for (int i = from; i < to; i++) {
+            final char c = input.charAt(offset + i);
+            if (c != FILLER) {
+                value[i - from] = c;
+            } else if (i + 1 < to && input.charAt(offset + i + 1) == FILLER) {
+                value[i - from] = ',';
+                value[++i - from] = ' ';
+            } else {
+                value[i - from] = ' ';
+            }
+        }
+        return new String(value);
+    }
+
+    /**
+     * Computes MRZ check digit for given ranges, read in place. If multiple ranges are specified, the check digit is computed
+     * over their concatenation.
+     * @param range the ranges, not null.
+     * @return check digit in range of 0..9, inclusive.
+     */
+    public int computeCheckDigit(MrzRange... range) {
+        int result = 0;
+        int weight = 0;
+        for (MrzRange r : range) {
+            final int offset = r.row * rowStride;
+            for (int i = r.column; i < r.columnTo; i++) {
+                result += getCharacterValue(input.charAt(offset + i)) * MRZ_WEIGHTS[weight];
+                weight = weight == MRZ_WEIGHTS.length - 1 ? 0 : weight + 1;
+            }
         }
-        return str.replace("" + FILLER + FILLER, ", ").replace(FILLER, ' ');
+        return result % 10;
     }
 
     /**
@@ -136,7 +239,19 @@ public class MrzParser {
      * @return true if check digit is valid, false if not
      */
     public boolean checkDigit(int col, int row, MrzRange strRange, String fieldName) {
-        return checkDigit(col, row, rawValue(strRange), fieldName);
+        return checkDigit(col, row, computeCheckDigit(strRange), fieldName);
+    }
+
+    /**
+     * Verifies the check digit computed over several concatenated ranges, such as the composite check digit.
+     * @param col the 0-based column of the check digit.
+     * @param row the 0-based column of the check digit.
+     * @param strRanges the ranges for which the check digit is computed.
+     * @param fieldName (optional) field name. Used only when validity check fails.
+     * @return true if check digit is valid, false if not
+     */
+    public boolean checkDigit(int col, int row, MrzRange[] strRanges, String fieldName) {
+        return checkDigit(col, row, computeCheckDigit(strRanges), fieldName);
     }
 
     /**
@@ -148,22 +263,53 @@ public class MrzParser {
      * @return true if check digit is valid, false if not
      */
     public boolean checkDigit(int col, int row, String str, String fieldName) {
+        return checkDigit(col, row, computeCheckDigit(str), fieldName);
+    }
 
-        /**
-         * If the check digit validation fails, this will contain the location.
-         */
-        MrzRange invalidCheckdigit = null;
+    private boolean checkDigit(int col, int row, int computed, String fieldName) {
+        if (!isCheckDigit(col, row, computed)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Check digit verification failed for {}: expected {} but got {}", fieldName, computed, charAt(col, row));
+            }
+            return false;
+        }
+        return true;
+    }
 
-        final char digit = (char) (computeCheckDigit(str) + '0');
-        char checkDigit = rows[row].charAt(col);
-        if (checkDigit == FILLER) {
-            checkDigit = '0';
+    /**
+     * Verifies all check digits of this record without decoding any field, so that nothing is allocated.
+     * Missing checks of a format (for example the composite check digit of visas) are skipped.
+     * @return true if all check digits are valid, false otherwise.
+     */
+    public boolean isValid() {
+        return format.layout.isValid(this);
+    }
+
+    /**
+     * Computes MRZ check digit for given row span, read in place.
+     */
+    int computeCheckDigit(int row, int from, int to) {
+        final int offset = row * rowStride;
+        int result = 0;
+        int i = from;
+        for (; i + 2 < to; i += 3) {
+            result += 7 * getCharacterValue(input.charAt(offset + i)) + 3 * getCharacterValue(input.charAt(offset + i + 1)) + getCharacterValue(input.charAt(offset + i + 2));
         }
-        if (digit != checkDigit) {
-            invalidCheckdigit = new MrzRange(col, col + 1, row);
-            System.out.println("Check digit verification failed for " + fieldName + ": expected " + digit + " but got " + checkDigit);
+        if (i < to) {
+            result += 7 * getCharacterValue(input.charAt(offset + i));
         }
-        return invalidCheckdigit==null;
+        if (i + 1 < to) {
+            result += 3 * getCharacterValue(input.charAt(offset + i + 1));
+        }
+        return result % 10;
+    }
+
+    /**
+     * Checks that the character at given position matches the computed check digit. A filler is accepted in place of '0'.
+     */
+    boolean isCheckDigit(int col, int row, int computed) {
+        final char c = charAt(col, row);
+        return c == '0' + computed || (computed == 0 && c == FILLER);
     }
 
     private static Logger log = LoggerFactory.getLogger(MrzParser.class);
@@ -175,45 +321,46 @@ public class MrzParser {
      * @throws IllegalArgumentException if the range is not 6 characters long.
      */
     public MrzDate parseDate(MrzRange range) {
+        return parseDate(range, MrzDate.Century.SLIDING);
+    }
+
+    /**
+     * Parses MRZ date.
+     * @param range the range containing the date, in the YYMMDD format. The range must be 6 characters long.
+     * @param century resolves the century of the year, not null.
+     * @return parsed date
+     * @throws IllegalArgumentException if the range is not 6 characters long.
+     */
+    public MrzDate parseDate(MrzRange range, MrzDate.Century century) {
         if (range.length() != 6) {
             throw new IllegalArgumentException("Parameter range: invalid value " + range + ": must be 6 characters long");
         }
-        MrzRange r;
-        r = new MrzRange(range.column, range.column + 2, range.row);
-        int year;
-        try {
-            year = Integer.parseInt(rawValue(r));
-        } catch (NumberFormatException ex) {
-            year = -1;
-            log.debug("Failed to parse MRZ date year " + rawValue(range) + ": " + ex, mrz, r);
-        }
+        final int year = parseTwoDigits(range.column, range.row);
         if (year < 0 || year > 99) {
-            log.debug("Invalid year value " + year + ": must be 0..99");
-        }
-        r = new MrzRange(range.column + 2, range.column + 4, range.row);
-        int month;
-        try {
-            month = Integer.parseInt(rawValue(r));
-        } catch (NumberFormatException ex) {
-            month = -1;
-            log.debug("Failed to parse MRZ date month " + rawValue(range) + ": " + ex, mrz, r);
+            log.debug("Invalid year value {}: must be 0..99", year);
         }
+        final int month = parseTwoDigits(range.column + 2, range.row);
         if (month < 1 || month > 12) {
-            log.debug("Invalid month value " + month + ": must be 1..12");
-        }
-        r = new MrzRange(range.column + 4, range.column + 6, range.row);
-        int day;
-        try {
-            day = Integer.parseInt(rawValue(r));
-        } catch (NumberFormatException ex) {
-            day = -1;
-            log.debug("Failed to parse MRZ date month " + rawValue(range) + ": " + ex, mrz, r);
+            log.debug("Invalid month value {}: must be 1..12", month);
         }
+        final int day = parseTwoDigits(range.column + 4, range.row);
         if (day < 1 || day > 31) {
-            log.debug("Invalid day value " + day + ": must be 1..31");
+            log.debug("Invalid day value {}: must be 1..31", day);
         }
-        return new MrzDate(year, month, day, rawValue(range));
+        return new MrzDate(year, month, day, rawValue(range), century);
+    }
 
+    /**
+     * Parses a two-digit number in place.
+     * @return the number, -1 if any of the characters is not a digit.
+     */
+    int parseTwoDigits(int col, int row) {
+        final int tens = charAt(col, row) - '0';
+        final int ones = charAt(col + 1, row) - '0';
+        if (tens < 0 || tens > 9 || ones < 0 || ones > 9) {
+            return -1;
+        }
+        return tens * 10 + ones;
     }
 
     /**
@@ -223,7 +370,7 @@ public class MrzParser {
      * @return sex, never null.
      */
     public MrzSex parseSex(int col, int row) {
-        return MrzSex.fromMrz(rows[row].charAt(col));
+        return MrzSex.fromMrz(charAt(col, row));
     }
     private static final int[] MRZ_WEIGHTS = new int[]{7, 3, 1};
 
@@ -232,21 +379,42 @@ public class MrzParser {
      * @param c the character.
      * @return true if the character is valid, false otherwise.
      */
-    private static boolean isValid(char c) {
+    static boolean isValid(char c) {
         return ((c == FILLER) || (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z'));
     }
 
-    private static int getCharacterValue(char c) {
-        if (c == FILLER) {
-            return 0;
-        }
-        if (c >= '0' && c <= '9') {
-            return c - '0';
+    /**
+     * Check digit value of every character of the 0..255 range, indexed by the character. Characters invalid in MRZ
+     * have the {@link #INVALID_VALUE} bit set, so that a single lookup both values and validates a character.
+     */
+    static final int[] CHARACTER_VALUES = new int[256];
+
+    /**
+     * Set in {@link #CHARACTER_VALUES} for characters invalid in MRZ. Large enough that a weighted sum of valid
+     * characters never reaches it.
+     */
+    static final int INVALID_VALUE = 0x10000;
+
+    static {
+        for (int c = 0; c < CHARACTER_VALUES.length; c++) {
+            if (c == MrzParser.FILLER) {
+                CHARACTER_VALUES[c] = 0;
+            } else if (c >= '0' && c <= '9') {
+                CHARACTER_VALUES[c] = c - '0';
+            } else if (c >= 'A' && c <= 'Z') {
+                CHARACTER_VALUES[c] = c - 'A' + 10;
+            } else {
+                CHARACTER_VALUES[c] = INVALID_VALUE;
+            }
         }
-        if (c >= 'A' && c <= 'Z') {
-            return c - 'A' + 10;
+    }
+
+    static int getCharacterValue(char c) {
+        final int value = c < CHARACTER_VALUES.length ? CHARACTER_VALUES[c] : INVALID_VALUE;
+        if (value == INVALID_VALUE) {
+            throw new RuntimeException("Invalid character in MRZ record: " + c);
         }
-        throw new RuntimeException("Invalid character in MRZ record: " + c);
+        return value;
     }
 
     /**
@@ -255,9 +423,18 @@ public class MrzParser {
      * @return check digit in range of 0..9, inclusive. See <a href="http://www2.icao.int/en/MRTD/Downloads/Doc%209303/Doc%209303%20English/Doc%209303%20Part%203%20Vol%201.pdf">MRTD documentation</a> part 15 for details.
      */
     public static int computeCheckDigit(String str) {
+        final int length = str.length();
         int result = 0;
-        for (int i = 0; i < str.length(); i++) {
-            result += getCharacterValue(str.charAt(i)) * MRZ_WEIGHTS[i % MRZ_WEIGHTS.length];
+        int i = 0;
+        // the 7-3-1 weights repeat every three characters
+        for (; i + 2 < length; i += 3) {
+            result += 7 * getCharacterValue(str.charAt(i)) + 3 * getCharacterValue(str.charAt(i + 1)) + getCharacterValue(str.charAt(i + 2));
+        }
+        if (i < length) {
+            result += 7 * getCharacterValue(str.charAt(i));
+        }
+        if (i + 1 < length) {
+            result += 3 * getCharacterValue(str.charAt(i + 1));
         }
         return result % 10;
     }
@@ -276,37 +453,52 @@ public class MrzParser {
      * @param mrz MRZ to parse.
      * @return record class.
      */
-    public static MrzRecord parse(String mrz) {
-        final MrzRecord result = MrzFormat.get(mrz).newRecord();
-        result.fromMrz(mrz);
-        return result;
+    public static MrzRecord parse(CharSequence mrz) {
+        return parse(new MrzParser(mrz));
     }
 
+    /**
+     * Factory method, which parses the MRZ held in given buffer and returns appropriate record class. The buffer is read in place.
+     * @param mrz the buffer holding the MRZ record, rows separated by \n.
+     * @param offset index of the first MRZ character in the buffer.
+     * @param length number of characters of the MRZ record.
+     * @return record class.
+     */
+    public static MrzRecord parse(char[] mrz, int offset, int length) {
+        return parse(new MrzParser(mrz, offset, length));
+    }
 
-    private static final Map<String, String> EXPAND_CHARACTERS = new HashMap<String, String>();
+    /**
+     * Validates given MRZ record without parsing it: detects the format, then checks all characters, dates, the sex and all
+     * check digits. Never throws on invalid input and does not allocate on the failure path, so it is cheap enough to run on
+     * every camera frame before deciding to {@link #parse(CharSequence)}.
+     * @param mrz the MRZ record, rows separated by \n, not null.
+     * @param result receives the outcome, reset first. May be reused for many records.
+     * @return true if the record is valid, the same as {@link MrzValidationResult#isValid()}.
+     */
+    public static boolean validate(CharSequence mrz, MrzValidationResult result) {
+        final MrzFormat format = MrzFormat.find(mrz);
+        result.reset(format);
+        if (format == null) {
+            result.fail(null, null, MrzValidationResult.Error.UNKNOWN_FORMAT);
+            return false;
+        }
+        format.layout.validate(new MrzParser(mrz, format), result);
+        return result.isValid();
+    }
 
-    static {
-        EXPAND_CHARACTERS.put("\u00C4", "AE"); // Ä
-        EXPAND_CHARACTERS.put("\u00E4", "AE"); // ä
-        EXPAND_CHARACTERS.put("\u00C5", "AA"); // Å
-        EXPAND_CHARACTERS.put("\u00E5", "AA"); // å
-        EXPAND_CHARACTERS.put("\u00C6", "AE"); // Æ
-        EXPAND_CHARACTERS.put("\u00E6", "AE"); // æ
-        EXPAND_CHARACTERS.put("\u0132", "IJ"); // Ĳ
-        EXPAND_CHARACTERS.put("\u0133", "IJ"); // ĳ
-        EXPAND_CHARACTERS.put("\u00D6", "OE"); // Ö
-        EXPAND_CHARACTERS.put("\u00F6", "OE"); // ö
-        EXPAND_CHARACTERS.put("\u00D8", "OE"); // Ø
-        EXPAND_CHARACTERS.put("\u00F8", "OE"); // ø
-        EXPAND_CHARACTERS.put("\u00DC", "UE"); // Ü
-        EXPAND_CHARACTERS.put("\u00FC", "UE"); // ü
-        EXPAND_CHARACTERS.put("\u00DF", "SS"); // ß
+    private static MrzRecord parse(MrzParser parser) {
+        final MrzRecord result = parser.format.newRecord();
+        result.fromMrz(parser);
+        return result;
     }
 
+
     /**
      * Converts given string to a MRZ string: removes all accents, converts the string to upper-case and replaces all spaces and invalid characters with '&lt;'.
+     * The string is converted in a single pass by {@link MrzTransliterator}, which also transliterates Greek and Cyrillic.
      * <p/>
-     * Several characters are expanded:
+     * Several characters are expanded, e.g.:
      * <table border="1">
      * <tr><th>Character</th><th>Expand to</th></tr>
      * <tr><td>Ä</td><td>AE</td></tr>
@@ -334,28 +526,16 @@ public class MrzParser {
         if (string == null) {
             string = "";
         }
-        for (final Map.Entry<String, String> e : EXPAND_CHARACTERS.entrySet()) {
-            string = string.replace(e.getKey(), e.getValue());
+        final char[] buffer = new char[length >= 0 ? length : string.length() * MrzTransliterator.MAX_EXPANSION];
+        final int written = MrzTransliterator.transliterate(string, buffer, 0, buffer.length);
+        if (length < 0) {
+            return new String(buffer, 0, written);
         }
-        string = string.replace("’", "");
-        string = string.replace("'", "");
-        string = deaccent(string).toUpperCase();
-        if (length >= 0 && string.length() > length) {
-            string = string.substring(0, length);
-        }
-        final StringBuilder sb = new StringBuilder(string);
-        for (int i = 0; i < sb.length(); i++) {
-            if (!isValid(sb.charAt(i))) {
-                sb.setCharAt(i, FILLER);
-            }
-        }
-        while (sb.length() < length) {
-            sb.append(FILLER);
-        }
-        return sb.toString();
+        Arrays.fill(buffer, written, length, FILLER);
+        return new String(buffer);
     }
 
-    private static boolean isBlank(String str) {
+    static boolean isBlank(String str) {
         return str == null || str.trim().length() == 0;
     }
 
@@ -376,77 +556,13 @@ public class MrzParser {
         if (length <= 0) {
             throw new IllegalArgumentException("Parameter length: invalid value " + length + ": not positive");
         }
-        surname = surname.replace(", ", " ");
-        givenNames = givenNames.replace(", ", " ");
-        final String[] surnames = surname.trim().split("[ \n\t\f\r]+");
-        final String[] given = givenNames.trim().split("[ \n\t\f\r]+");
-        for (int i = 0; i < surnames.length; i++) {
-            surnames[i] = toMrz(surnames[i], -1);
-        }
-        for (int i = 0; i < given.length; i++) {
-            given[i] = toMrz(given[i], -1);
-        }
-        // truncate
-        int nameSize = getNameSize(surnames, given);
-        String[] currentlyTruncating = given;
-        int currentlyTruncatingIndex = given.length - 1;
-        while (nameSize > length) {
-            final String ct = currentlyTruncating[currentlyTruncatingIndex];
-            final int ctsize = ct.length();
-            if (nameSize - ctsize + 1 <= length) {
-                currentlyTruncating[currentlyTruncatingIndex] = ct.substring(0, ctsize - (nameSize - length));
-            } else {
-                currentlyTruncating[currentlyTruncatingIndex] = ct.substring(0, 1);
-                currentlyTruncatingIndex--;
-                if (currentlyTruncatingIndex < 0) {
-                    if (currentlyTruncating == surnames) {
-                        throw new IllegalArgumentException("Cannot truncate name " + surname + " " + givenNames + ": length too small: " + length + "; truncated to " + toName(surnames, given));
-                    }
-                    currentlyTruncating = surnames;
-                    currentlyTruncatingIndex = currentlyTruncating.length - 1;
-                }
-            }
-            nameSize = getNameSize(surnames, given);
-        }
-        return toMrz(toName(surnames, given), length);
+        final char[] buffer = new char[length];
+        new MrzEncoder().writeName(surname, givenNames, buffer, 0, length);
+        return new String(buffer);
     }
+
     /**
      * The filler character, '&lt;'.
      */
     public static final char FILLER = '<';
-
-    private static String toName(String[] surnames, String[] given) {
-        final StringBuilder sb = new StringBuilder();
-        boolean first = true;
-        for (String s : surnames) {
-            if (first) {
-                first = false;
-            } else {
-                sb.append(FILLER);
-            }
-            sb.append(s);
-        }
-        sb.append(FILLER);
-        for (String s : given) {
-            sb.append(FILLER);
-            sb.append(s);
-        }
-        return sb.toString();
-    }
-
-    private static int getNameSize(final String[] surnames, final String[] given) {
-        int result = 0;
-        for (String s : surnames) {
-            result += s.length() + 1;
-        }
-        for (String s : given) {
-            result += s.length() + 1;
-        }
-        return result;
-    }
-
-    private static String deaccent(String str) {
-        String n = Normalizer.normalize(str, Normalizer.Form.NFD);
-        return n.replaceAll("[^\\p{ASCII}]", "").toLowerCase();
-    }
 }
@@ -29,7 +29,7 @@ import java.io.Serializable;
  * An abstract MRZ record, contains basic information present in all MRZ record types.
  * @author Martin Vysny
  */
-public abstract class MrzRecord implements Serializable {
+public abstract class MrzRecord implements Serializable, Cloneable {
 
 
     /**
@@ -127,15 +127,116 @@ public abstract class MrzRecord implements Serializable {
      * @throws MrzParseException when a problem occurs.
      */
     public void fromMrz(String mrz) throws MrzParseException {
-        if (format != MrzFormat.get(mrz)) {
-            throw new MrzParseException("invalid format: " + MrzFormat.get(mrz), mrz, new MrzRange(0, 0, 0), format);
+        fromMrz(new MrzParser((CharSequence) mrz));
+    }
+
+    /**
+     * Parses the MRZ record held by given parser. All fields are read in place from the parser.
+     * @param parser the parser of the mrz record, not null.
+     * @throws MrzParseException when a problem occurs.
+     */
+    public void fromMrz(MrzParser parser) throws MrzParseException {
+        if (format != parser.format) {
+            throw new MrzParseException("invalid format: " + parser.format, parser.input.toString(), new MrzRange(0, 0, 0), format);
+        }
+        code = MrzDocumentCode.parse(parser.input);
+        code1 = parser.charAt(0, 0);
+        code2 = parser.charAt(1, 0);
+        format.layout.parse(parser, this);
+    }
+
+    /**
+     * Sets a string field decoded by the format layout. Records with additional fields override this method.
+     * @param field the field, of {@link MrzField.Type#STRING} type.
+     * @param value the decoded value.
+     * @throws IllegalArgumentException if this record has no such field.
+     */
+    protected void setField(MrzField field, String value) {
+        switch (field) {
+            case ISSUING_COUNTRY:
+                issuingCountry = value;
+                break;
+            case DOCUMENT_NUMBER:
+                documentNumber = value;
+                break;
+            case SURNAME:
+                surname = value;
+                break;
+            case GIVEN_NAMES:
+                givenNames = value;
+                break;
+            case NATIONALITY:
+                nationality = value;
+                break;
+            default:
+                throw new IllegalArgumentException("Parameter field: invalid value " + field + ": not supported by " + format);
+        }
+    }
+
+    /**
+     * Returns a string field, the counterpart of {@link #setField(MrzField, String)}.
+     * @param field the field, of {@link MrzField.Type#STRING} type.
+     * @return the value, may be null.
+     * @throws IllegalArgumentException if this record has no such field.
+     */
+    protected String getField(MrzField field) {
+        switch (field) {
+            case ISSUING_COUNTRY:
+                return issuingCountry;
+            case DOCUMENT_NUMBER:
+                return documentNumber;
+            case SURNAME:
+                return surname;
+            case GIVEN_NAMES:
+                return givenNames;
+            case NATIONALITY:
+                return nationality;
+            default:
+                throw new IllegalArgumentException("Parameter field: invalid value " + field + ": not supported by " + format);
+        }
+    }
+
+    /**
+     * Sets the check digit result of a field. Records with additional checked fields override this method.
+     * @param field the checked field.
+     * @param valid true if the check digit of the field is valid.
+     * @throws IllegalArgumentException if this record has no such checked field.
+     */
+    protected void setValid(MrzField field, boolean valid) {
+        switch (field) {
+            case DOCUMENT_NUMBER:
+                validDocumentNumber = valid;
+                break;
+            case DATE_OF_BIRTH:
+                validDateOfBirth = valid;
+                break;
+            case EXPIRATION_DATE:
+                validExpirationDate = valid;
+                break;
+            default:
+                throw new IllegalArgumentException("Parameter field: invalid value " + field + ": not checked by " + format);
         }
-        code = MrzDocumentCode.parse(mrz);
-        code1 = mrz.charAt(0);
-        code2 = mrz.charAt(1);
-        issuingCountry = new MrzParser(mrz).parseString(new MrzRange(2, 5, 0));
     }
     
+    /**
+     * Returns the check digit result of a field, the counterpart of {@link #setValid(MrzField, boolean)}.
+     * @param field the checked field.
+     * @return true if the check digit of the field is valid.
+     * @throws IllegalArgumentException if this record has no such checked field.
+     */
+    protected boolean isValid(MrzField field) {
+        switch (field) {
+            case DOCUMENT_NUMBER:
+                return validDocumentNumber;
+            case DATE_OF_BIRTH:
+                return validDateOfBirth;
+            case EXPIRATION_DATE:
+                return validExpirationDate;
+            default:
+                throw new IllegalArgumentException("Parameter field: invalid value " + field + ": not checked by " + format);
+        }
+    }
+
     /**
      * Helper method to set the full name. Changes both {@link #surname} and {@link #givenNames}.
      * @param name expected array of length 2, in the form of [surname, first_name]. Must not be null.
@@ -146,8 +247,22 @@ public abstract class MrzRecord implements Serializable {
     }
     
     /**
-     * Serializes this record to a valid MRZ record.
+     * Serializes this record to a valid MRZ record. Use a {@link MrzEncoder} to encode many records into reusable buffers.
      * @return a valid MRZ record, not null, separated by \n
      */
-    public abstract String toMrz();
+    public String toMrz() {
+        return new MrzEncoder().encode(this);
+    }
+
+    /**
+     * Copies this record. The fields hold immutable values, so the copy shares them and may be modified independently.
+     * @return a copy of this record, of the same class.
+     */
+    public MrzRecord copy() {
+        try {
+            return (MrzRecord) clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
 }
@@ -0,0 +1,344 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzDate;
+import com.hellsayenci.mrzscanner.mrz.types.MrzDocumentCode;
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+import com.hellsayenci.mrzscanner.mrz.types.MrzSex;
+
+/**
+ * A lightweight, read-only view of a MRZ record over its raw characters.
+ * <p/>
+ * All check digits are verified when the view is created, without decoding any field; a field is decoded by the
+ * {@link MrzLayout} of the format only when it is first accessed, then kept. Callers which only need a few fields, e.g. the
+ * document number and the dates to look up a document or to build a BAC key, thus skip most of the allocations of
+ * {@link MrzParser#parse(CharSequence)}. Use {@link #toRecord()} to get a regular {@link MrzRecord}.
+ * <p/>
+ * The characters are not copied and must not change while the view is in use. The view is not thread-safe.
+ */
+public final class MrzRecordView {
+
+    private final MrzParser parser;
+    private final MrzLayout layout;
+    /**
+     * The check digit results, one bit per entry of the layout.
+     */
+    private final int valid;
+    private final boolean validComposite;
+    /**
+     * Decoded fields by layout entry index, created on first access.
+     */
+    private Object[] values;
+    private MrzDocumentCode code;
+
+    /**
+     * Creates new view of given MRZ record and verifies its check digits.
+     * @param mrz the MRZ record, rows separated by \n, not null.
+     * @throws MrzParseException if the format is not known or a checked field holds invalid characters.
+     */
+    public MrzRecordView(CharSequence mrz) {
+        this(new MrzParser(mrz));
+    }
+
+    /**
+     * Creates new view of the MRZ record held in given buffer. The buffer is not copied.
+     * @param mrz the buffer holding the MRZ record, rows separated by \n.
+     * @param offset index of the first MRZ character in the buffer.
+     * @param length number of characters of the MRZ record.
+     * @throws MrzParseException if the format is not known or a checked field holds invalid characters.
+     */
+    public MrzRecordView(char[] mrz, int offset, int length) {
+        this(new MrzParser(mrz, offset, length));
+    }
+
+    private MrzRecordView(MrzParser parser) {
+        this.parser = parser;
+        this.layout = parser.format.layout;
+        layout.checkValidCharacters(parser);
+        int valid = 0;
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            if (e.checkDigit != null) {
+                final MrzRange r = e.range;
+                boolean result = parser.checkDigit(e.checkDigit.column, e.checkDigit.row, r, e.field.name());
+                if (result && e.field.type == MrzField.Type.DATE) {
+                    result = MrzDate.isDateValid(parser.parseTwoDigits(r.column, r.row), parser.parseTwoDigits(r.column + 2, r.row),
+                            parser.parseTwoDigits(r.column + 4, r.row), getCentury(e.field));
+                }
+                if (result) {
+                    valid |= 1 << i;
+                }
+            }
+        }
+        this.valid = valid;
+        validComposite = layout.checkComposite(parser);
+    }
+
+    private static MrzDate.Century getCentury(MrzField field) {
+        // dates of birth are in the past, expiration dates mostly in the future
+        return field == MrzField.DATE_OF_BIRTH ? MrzDate.Century.PAST : MrzDate.Century.FUTURE;
+    }
+
+    /**
+     * @return the detected format, not null.
+     */
+    public MrzFormat getFormat() {
+        return parser.format;
+    }
+
+    /**
+     * @return the raw MRZ characters, not copied.
+     */
+    public CharSequence getMrz() {
+        return parser.input;
+    }
+
+    /**
+     * Checks the check digit of given field, see {@link MrzRecord#validDocumentNumber} and others.
+     * @param field the checked field.
+     * @return true if the check digit is valid; dates must also be valid dates.
+     * @throws IllegalArgumentException if the format does not check given field.
+     */
+    public boolean isValid(MrzField field) {
+        final int index = layout.indexOf(field);
+        if (index < 0 || layout.get(index).checkDigit == null) {
+            throw new IllegalArgumentException("Parameter field: invalid value " + field + ": not checked by " + parser.format);
+        }
+        return (valid & (1 << index)) != 0;
+    }
+
+    /**
+     * @return true if the composite check digit is valid, or the format has none. See {@link MrzRecord#validComposite}.
+     */
+    public boolean isValidComposite() {
+        return validComposite;
+    }
+
+    /**
+     * @return true if all check digits of the record are valid.
+     */
+    public boolean isValid() {
+        for (int i = 0; i < layout.size(); i++) {
+            if (layout.get(i).checkDigit != null && (valid & (1 << i)) == 0) {
+                return false;
+            }
+        }
+        return validComposite;
+    }
+
+    /**
+     * @return the document code, see {@link MrzRecord#code}.
+     */
+    public MrzDocumentCode getCode() {
+        if (code == null) {
+            code = MrzDocumentCode.parse(parser.input);
+        }
+        return code;
+    }
+
+    /**
+     * @return the first character of the document code, see {@link MrzRecord#code1}.
+     */
+    public char getCode1() {
+        return parser.charAt(0, 0);
+    }
+
+    /**
+     * @return the second character of the document code, see {@link MrzRecord#code2}.
+     */
+    public char getCode2() {
+        return parser.charAt(1, 0);
+    }
+
+    /**
+     * @return the issuing country, see {@link MrzRecord#issuingCountry}.
+     */
+    public String getIssuingCountry() {
+        return getString(MrzField.ISSUING_COUNTRY);
+    }
+
+    /**
+     * @return the document number, see {@link MrzRecord#documentNumber}.
+     */
+    public String getDocumentNumber() {
+        return getString(MrzField.DOCUMENT_NUMBER);
+    }
+
+    /**
+     * @return the nationality, see {@link MrzRecord#nationality}.
+     */
+    public String getNationality() {
+        return getString(MrzField.NATIONALITY);
+    }
+
+    /**
+     * @return the surname, see {@link MrzRecord#surname}.
+     */
+    public String getSurname() {
+        final String[] name = getName();
+        return name != null ? name[0] : getString(MrzField.SURNAME);
+    }
+
+    /**
+     * @return the given names, see {@link MrzRecord#givenNames}.
+     */
+    public String getGivenNames() {
+        final String[] name = getName();
+        return name != null ? name[1] : getString(MrzField.GIVEN_NAMES);
+    }
+
+    /**
+     * @return the date of birth, see {@link MrzRecord#dateOfBirth}.
+     */
+    public MrzDate getDateOfBirth() {
+        return (MrzDate) get(MrzField.DATE_OF_BIRTH);
+    }
+
+    /**
+     * @return the expiration date, see {@link MrzRecord#expirationDate}; null if the format has none.
+     */
+    public MrzDate getExpirationDate() {
+        return (MrzDate) get(MrzField.EXPIRATION_DATE);
+    }
+
+    /**
+     * @return the sex, see {@link MrzRecord#sex}.
+     */
+    public MrzSex getSex() {
+        return (MrzSex) get(MrzField.SEX);
+    }
+
+    /**
+     * Returns a string field, e.g. {@link MrzField#OPTIONAL} or {@link MrzField#PERSONAL_NUMBER}.
+     * @param field the field, of {@link MrzField.Type#STRING} type.
+     * @return the decoded value, null if the format has no such field.
+     * @throws MrzParseException if the field holds invalid characters.
+     */
+    public String getString(MrzField field) {
+        if (field.type != MrzField.Type.STRING) {
+            throw new IllegalArgumentException("Parameter field: invalid value " + field + ": not a string field");
+        }
+        return (String) get(field);
+    }
+
+    /**
+     * Copies the raw characters of given field followed by its check digit, if any, without decoding the field. Useful e.g.
+     * to build a BAC key from the document number and the dates.
+     * @param field the field.
+     * @param buffer the target buffer.
+     * @param offset index of the first character to write.
+     * @return number of characters written, 0 if the format has no such field.
+     */
+    public int getRaw(MrzField field, char[] buffer, int offset) {
+        final int index = layout.indexOf(field);
+        if (index < 0) {
+            return 0;
+        }
+        final MrzLayout.Entry e = layout.get(index);
+        final MrzRange r = e.range;
+        final int to = e.checkDigit != null ? e.checkDigit.columnTo : r.columnTo;
+        for (int i = r.column; i < to; i++) {
+            buffer[offset++] = parser.charAt(i, r.row);
+        }
+        return to - r.column;
+    }
+
+    private String[] getName() {
+        return (String[]) get(MrzField.NAME);
+    }
+
+    /**
+     * Decodes given field on first access.
+     * @return the value, null if the format has no such field.
+     */
+    private Object get(MrzField field) {
+        final int index = layout.indexOf(field);
+        if (index < 0) {
+            return null;
+        }
+        if (values == null) {
+            values = new Object[layout.size()];
+        }
+        Object value = values[index];
+        if (value == null) {
+            final MrzRange r = layout.get(index).range;
+            switch (field.type) {
+                case NAME:
+                    value = parser.parseName(r);
+                    break;
+                case SEX:
+                    value = parser.parseSex(r.column, r.row);
+                    break;
+                case DATE:
+                    value = parser.parseDate(r, getCentury(field));
+                    break;
+                default:
+                    value = parser.parseString(r);
+                    break;
+            }
+            values[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Converts this view to a regular record. Fields not accessed yet are decoded now; the check digits are not verified again.
+     * @return new record with all fields set, not null.
+     * @throws MrzParseException if a field holds invalid characters.
+     */
+    public MrzRecord toRecord() {
+        final MrzRecord record = parser.format.newRecord();
+        record.code = getCode();
+        record.code1 = getCode1();
+        record.code2 = getCode2();
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            final Object value = get(e.field);
+            switch (e.field.type) {
+                case NAME:
+                    record.setName((String[]) value);
+                    break;
+                case SEX:
+                    record.sex = (MrzSex) value;
+                    break;
+                case DATE:
+                    if (e.field == MrzField.DATE_OF_BIRTH) {
+                        record.dateOfBirth = (MrzDate) value;
+                    } else {
+                        record.expirationDate = (MrzDate) value;
+                    }
+                    break;
+                default:
+                    record.setField(e.field, (String) value);
+                    break;
+            }
+            if (e.checkDigit != null) {
+                record.setValid(e.field, (valid & (1 << i)) != 0);
+            }
+        }
+        record.validComposite = validComposite;
+        return record;
+    }
+
+    @Override
+    public String toString() {
+        return "MrzRecordView{" + parser.format + ", documentNumber=" + getDocumentNumber() + ", valid=" + isValid() + '}';
+    }
+}
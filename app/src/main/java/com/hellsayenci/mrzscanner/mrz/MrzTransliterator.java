@@ -0,0 +1,270 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Transliterates text into MRZ characters, as per the transliteration tables of Doc 9303 Part 3 of the MRZ specification.
+ * <p/>
+ * Every character below U+0500, i.e. Latin-1, Latin Extended-A and B, Greek and Cyrillic, is converted through a table
+ * computed once when the class is loaded: letters are upper-cased and stripped of accents, some are expanded, e.g.
+ * <code>Ä</code> to <code>AE</code> or <code>Щ</code> to <code>SHCH</code>, apostrophes are removed and all other characters
+ * become the {@link MrzParser#FILLER}, except non-ASCII symbols and spaces, which are removed. Characters above the table are
+ * decomposed by {@link Normalizer} one at a time: a base letter within the table, such as the Greek letter of a precomposed
+ * polytonic one, is converted through the table, other ASCII letters and digits are kept and the rest is removed.
+ */
+public final class MrzTransliterator {
+
+    private MrzTransliterator() {
+    }
+
+    /**
+     * The longest expansion of a single character.
+     */
+    public static final int MAX_EXPANSION = 4;
+
+    private static final int TABLE_SIZE = 0x0500;
+    /**
+     * MRZ characters for every character below {@link #TABLE_SIZE}. An empty string means that the character is removed.
+     */
+    private static final String[] TABLE = new String[TABLE_SIZE];
+
+    static {
+        final Map<Character, String> special = new HashMap<Character, String>();
+        // Latin
+        special.put('\'', "");
+        special.put('\u00C4', "AE"); // Ä
+        special.put('\u00C5', "AA"); // Å
+        special.put('\u00C6', "AE"); // Æ
+        special.put('\u00D0', "D"); // Ð
+        special.put('\u00D6', "OE"); // Ö
+        special.put('\u00D8', "OE"); // Ø
+        special.put('\u00DC', "UE"); // Ü
+        special.put('\u00DE', "TH"); // Þ
+        special.put('\u00DF', "SS"); // ß
+        special.put('\u0110', "D"); // Đ
+        special.put('\u0126', "H"); // Ħ
+        special.put('\u0131', "I"); // ı
+        special.put('\u0132', "IJ"); // Ĳ
+        special.put('\u0138', "K"); // ĸ
+        special.put('\u013F', "L"); // Ŀ
+        special.put('\u0141', "L"); // Ł
+        special.put('\u0149', "N"); // ŉ
+        special.put('\u014A', "N"); // Ŋ
+        special.put('\u0152', "OE"); // Œ
+        special.put('\u0166', "T"); // Ŧ
+        special.put('\u017F', "S"); // ſ
+        special.put('\u0180', "B"); // ƀ
+        special.put('\u0189', "D"); // Ɖ
+        special.put('\u0191', "F"); // Ƒ
+        special.put('\u0197', "I"); // Ɨ
+        special.put('\u01B5', "Z"); // Ƶ
+        special.put('\u01C4', "DZ"); // Ǆ
+        special.put('\u01C5', "DZ"); // ǅ
+        special.put('\u01C7', "LJ"); // Ǉ
+        special.put('\u01C8', "LJ"); // ǈ
+        special.put('\u01CA', "NJ"); // Ǌ
+        special.put('\u01CB', "NJ"); // ǋ
+        special.put('\u01F1', "DZ"); // Ǳ
+        special.put('\u01F2', "DZ"); // ǲ
+        special.put('\u0243', "B"); // Ƀ
+        special.put('\u0244', "U"); // Ʉ
+        // Greek
+        special.put('\u0391', "A"); // Α
+        special.put('\u0392', "V"); // Β
+        special.put('\u0393', "G"); // Γ
+        special.put('\u0394', "D"); // Δ
+        special.put('\u0395', "E"); // Ε
+        special.put('\u0396', "Z"); // Ζ
+        special.put('\u0397', "I"); // Η
+        special.put('\u0398', "TH"); // Θ
+        special.put('\u0399', "I"); // Ι
+        special.put('\u039A', "K"); // Κ
+        special.put('\u039B', "L"); // Λ
+        special.put('\u039C', "M"); // Μ
+        special.put('\u039D', "N"); // Ν
+        special.put('\u039E', "X"); // Ξ
+        special.put('\u039F', "O"); // Ο
+        special.put('\u03A0', "P"); // Π
+        special.put('\u03A1', "R"); // Ρ
+        special.put('\u03A3', "S"); // Σ
+        special.put('\u03A4', "T"); // Τ
+        special.put('\u03A5', "Y"); // Υ
+        special.put('\u03A6', "F"); // Φ
+        special.put('\u03A7', "CH"); // Χ
+        special.put('\u03A8', "PS"); // Ψ
+        special.put('\u03A9', "O"); // Ω
+        // Cyrillic
+        special.put('\u0402', "D"); // Ђ
+        special.put('\u0404', "IE"); // Є
+        special.put('\u0405', "DZ"); // Ѕ
+        special.put('\u0406', "I"); // І
+        special.put('\u0408', "J"); // Ј
+        special.put('\u0409', "LJ"); // Љ
+        special.put('\u040A', "NJ"); // Њ
+        special.put('\u040B', "C"); // Ћ
+        special.put('\u040F', "DZ"); // Џ
+        special.put('\u0410', "A"); // А
+        special.put('\u0411', "B"); // Б
+        special.put('\u0412', "V"); // В
+        special.put('\u0413', "G"); // Г
+        special.put('\u0414', "D"); // Д
+        special.put('\u0415', "E"); // Е
+        special.put('\u0416', "ZH"); // Ж
+        special.put('\u0417', "Z"); // З
+        special.put('\u0418', "I"); // И
+        special.put('\u0419', "I"); // Й
+        special.put('\u041A', "K"); // К
+        special.put('\u041B', "L"); // Л
+        special.put('\u041C', "M"); // М
+        special.put('\u041D', "N"); // Н
+        special.put('\u041E', "O"); // О
+        special.put('\u041F', "P"); // П
+        special.put('\u0420', "R"); // Р
+        special.put('\u0421', "S"); // С
+        special.put('\u0422', "T"); // Т
+        special.put('\u0423', "U"); // У
+        special.put('\u0424', "F"); // Ф
+        special.put('\u0425', "KH"); // Х
+        special.put('\u0426', "TS"); // Ц
+        special.put('\u0427', "CH"); // Ч
+        special.put('\u0428', "SH"); // Ш
+        special.put('\u0429', "SHCH"); // Щ
+        special.put('\u042A', "IE"); // Ъ
+        special.put('\u042B', "Y"); // Ы
+        special.put('\u042C', ""); // Ь
+        special.put('\u042D', "E"); // Э
+        special.put('\u042E', "IU"); // Ю
+        special.put('\u042F', "IA"); // Я
+        special.put('\u0490', "G"); // Ґ
+        special.put('\u0492', "G"); // Ғ
+        special.put('\u049A', "Q"); // Қ
+        special.put('\u04A2', "N"); // Ң
+        special.put('\u04AE', "U"); // Ү
+        special.put('\u04B0', "U"); // Ұ
+        special.put('\u04BA', "H"); // Һ
+        special.put('\u04D8', "A"); // Ә
+        special.put('\u04E8', "O"); // Ө
+
+        for (char c = 0; c < TABLE_SIZE; c++) {
+            TABLE[c] = compute(c, special);
+        }
+    }
+
+    private static String compute(char c, Map<Character, String> special) {
+        String result = special.get(c);
+        if (result == null) {
+            result = special.get(Character.toUpperCase(c));
+        }
+        if (result != null) {
+            return result;
+        }
+        // strip the accents; a decomposed letter which is special itself, e.g. Greek or Cyrillic, is looked up again
+        final String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        final char base = decomposed.charAt(0);
+        if (base != c && base >= 0x80) {
+            return compute(base, special);
+        }
+        return ascii(decomposed);
+    }
+
+    /**
+     * Keeps only the ASCII characters of given string: letters are upper-cased, digits are kept, all other characters
+     * become the filler.
+     */
+    private static String ascii(String str) {
+        final StringBuilder sb = new StringBuilder(str.length());
+        for (int i = 0; i < str.length(); i++) {
+            final char c = str.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                sb.append((char) (c - 'a' + 'A'));
+            } else if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                sb.append(c);
+            } else if (c < 0x80) {
+                sb.append(MrzParser.FILLER);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Transliterates given text into the buffer, in a single pass. Stops when the buffer is full: an expansion which does not
+     * fit completely is truncated.
+     * @param text the text, not null.
+     * @param buffer the target buffer, not null.
+     * @param offset where to write the first character.
+     * @param length the maximum number of characters to write.
+     * @return the number of characters written, at most <code>length</code>.
+     */
+    public static int transliterate(CharSequence text, char[] buffer, int offset, int length) {
+        return transliterate(text, 0, text.length(), buffer, offset, length);
+    }
+
+    /**
+     * Transliterates a part of given text into the buffer, see {@link #transliterate(CharSequence, char[], int, int)}.
+     * @param text the text, not null.
+     * @param start index of the first character of the text to transliterate.
+     * @param stop index after the last character of the text to transliterate.
+     * @param buffer the target buffer, not null.
+     * @param offset where to write the first character.
+     * @param length the maximum number of characters to write.
+     * @return the number of characters written, at most <code>length</code>.
+     */
+    public static int transliterate(CharSequence text, int start, int stop, char[] buffer, int offset, int length) {
+        int pos = offset;
+        final int end = offset + length;
+        for (int i = start; i < stop && pos < end; i++) {
+            final char c = text.charAt(i);
+            if (c >= TABLE_SIZE) {
+                pos = decompose(c, buffer, pos, end);
+                continue;
+            }
+            final String mrz = TABLE[c];
+            for (int j = 0; j < mrz.length() && pos < end; j++) {
+                buffer[pos++] = mrz.charAt(j);
+            }
+        }
+        return pos - offset;
+    }
+
+    /**
+     * Writes the canonical decomposition of given character: characters of the decomposition within the table, but outside
+     * ASCII, are converted through the table, ASCII letters and digits are kept, all other characters are removed.
+     */
+    private static int decompose(char c, char[] buffer, int pos, int end) {
+        final String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        for (int i = 0; i < decomposed.length() && pos < end; i++) {
+            final char d = decomposed.charAt(i);
+            if (d >= 'a' && d <= 'z') {
+                buffer[pos++] = (char) (d - 'a' + 'A');
+            } else if ((d >= 'A' && d <= 'Z') || (d >= '0' && d <= '9')) {
+                buffer[pos++] = d;
+            } else if (d >= 0x80 && d < TABLE_SIZE) {
+                final String mrz = TABLE[d];
+                for (int j = 0; j < mrz.length() && pos < end; j++) {
+                    buffer[pos++] = mrz.charAt(j);
+                }
+            }
+        }
+        return pos;
+    }
+}
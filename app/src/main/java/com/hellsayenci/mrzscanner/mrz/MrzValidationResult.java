@@ -0,0 +1,228 @@
+/**
+ * Java parser for the MRZ records, as specified by the ICAO organization.
+ * Copyright (C) 2011 Innovatrics s.r.o.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+/**
+ * Outcome of {@link MrzParser#validate(CharSequence, MrzValidationResult)}: which checks failed, where and why.
+ * <p/>
+ * All problems of a MRZ are collected in one pass. Failing is as cheap as passing: nothing is thrown and no strings are
+ * built, and the ranges reported are either taken from the {@link MrzLayout} or cached in the result. The result is meant to be
+ * reused for many validations, e.g. one per camera frame, but is not thread-safe.
+ */
+public final class MrzValidationResult {
+
+    /**
+     * The first problem found.
+     */
+    public enum Error {
+        /**
+         * The MRZ is valid.
+         */
+        NONE,
+        /**
+         * The number of rows and columns does not match any {@link MrzFormat}.
+         */
+        UNKNOWN_FORMAT,
+        /**
+         * The document code is not supported, see {@link com.hellsayenci.mrzscanner.mrz.types.MrzDocumentCode}.
+         */
+        DOCUMENT_CODE,
+        /**
+         * A character is not one of A-Z, 0-9 and &lt;.
+         */
+        INVALID_CHARACTER,
+        /**
+         * The sex is not one of M, F, X and &lt;.
+         */
+        INVALID_SEX,
+        /**
+         * A date is not a calendar date.
+         */
+        INVALID_DATE,
+        /**
+         * A check digit does not match.
+         */
+        CHECK_DIGIT
+    }
+
+    /**
+     * Bit of {@link #getFailed()} set when the composite check digit does not match.
+     */
+    public static final int COMPOSITE = 1 << 31;
+
+    private static final int MAX_COLUMNS = 44;
+
+    private MrzFormat format;
+    private Error error = Error.NONE;
+    private boolean wellFormed = true;
+    private int failed;
+    private MrzRange range;
+    private final MrzRange[] fieldRanges = new MrzRange[MrzField.values().length];
+    /**
+     * Single character ranges, created on the first use.
+     */
+    private final MrzRange[] characterRanges = new MrzRange[3 * MAX_COLUMNS];
+
+    /**
+     * Clears the result before a new validation.
+     * @param format the detected format, null if unknown.
+     */
+    void reset(MrzFormat format) {
+        this.format = format;
+        error = Error.NONE;
+        wellFormed = true;
+        failed = 0;
+        range = null;
+        for (int i = 0; i < fieldRanges.length; i++) {
+            fieldRanges[i] = null;
+        }
+    }
+
+    /**
+     * Records a failed check.
+     * @param field the field which failed, null if the problem is outside of all fields.
+     * @param range the problematic range.
+     * @param error the problem.
+     */
+    void fail(MrzField field, MrzRange range, Error error) {
+        if (field != null) {
+            failed |= 1 << field.ordinal();
+            if (fieldRanges[field.ordinal()] == null) {
+                fieldRanges[field.ordinal()] = range;
+            }
+        }
+        record(range, error);
+    }
+
+    /**
+     * Records an invalid character.
+     * @param field the field of the character, null if it is outside of all fields.
+     * @param range the character.
+     * @param parsed true if the parser reads the character, so that it fails on it; see {@link #isWellFormed()}.
+     */
+    void failCharacter(MrzField field, MrzRange range, boolean parsed) {
+        fail(field, range, Error.INVALID_CHARACTER);
+        if (parsed) {
+            wellFormed = false;
+        }
+    }
+
+    /**
+     * Records a failed composite check digit.
+     */
+    void failComposite(MrzRange range) {
+        failed |= COMPOSITE;
+        record(range, Error.CHECK_DIGIT);
+    }
+
+    private void record(MrzRange range, Error error) {
+        if (this.error == Error.NONE) {
+            this.error = error;
+            this.range = range;
+        }
+        if (error == Error.UNKNOWN_FORMAT || error == Error.DOCUMENT_CODE || error == Error.INVALID_SEX) {
+            wellFormed = false;
+        }
+    }
+
+    /**
+     * @return a range covering the single character at given position.
+     */
+    MrzRange characterRange(int col, int row) {
+        final int index = row * MAX_COLUMNS + col;
+        MrzRange result = characterRanges[index];
+        if (result == null) {
+            result = new MrzRange(col, col + 1, row);
+            characterRanges[index] = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the detected format, null if the format is not known.
+     */
+    public MrzFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the first problem found, {@link Error#NONE} if the MRZ is valid.
+     */
+    public Error getError() {
+        return error;
+    }
+
+    /**
+     * @return the range of the first problem found, null if the MRZ is valid or the format is not known.
+     */
+    public MrzRange getRange() {
+        return range;
+    }
+
+    /**
+     * @return true if all checks passed.
+     */
+    public boolean isValid() {
+        return error == Error.NONE;
+    }
+
+    /**
+     * Tells whether the MRZ can be parsed by {@link MrzParser#parse(CharSequence)}: the format and the document code are known,
+     * the sex is valid, and so is every character the parser reads, i.e. every character of a string or name field, of a
+     * checked date and of the ranges of the composite check digit. Invalid characters elsewhere, such as in a check digit
+     * itself or between fields, check digits and dates may still fail, which the parser reports in the record.
+     * @return true if the MRZ can be parsed.
+     */
+    public boolean isWellFormed() {
+        return wellFormed;
+    }
+
+    /**
+     * Returns the failed checks: bit <code>1 &lt;&lt; field.ordinal()</code> is set for every {@link MrzField} which failed,
+     * and {@link #COMPOSITE} when the composite check digit does not match.
+     * @return the bitmask, 0 if the MRZ is valid.
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @param field the field, not null.
+     * @return true if any check of given field failed.
+     */
+    public boolean isFailed(MrzField field) {
+        return (failed & (1 << field.ordinal())) != 0;
+    }
+
+    /**
+     * @param field the field, not null.
+     * @return the first bad range of given field: the invalid character, the whole field for a bad date or check digit;
+     * null if the field is valid.
+     */
+    public MrzRange getRange(MrzField field) {
+        return fieldRanges[field.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        return "MrzValidationResult{" + format + ", " + error + " at " + range + ", failed=" + Integer.toHexString(failed) + "}";
+    }
+}
@@ -18,8 +18,7 @@
  */
 package com.hellsayenci.mrzscanner.mrz.records;
 
-import com.hellsayenci.mrzscanner.mrz.MrzParser;
-import com.hellsayenci.mrzscanner.mrz.MrzRange;
+import com.hellsayenci.mrzscanner.mrz.MrzField;
 import com.hellsayenci.mrzscanner.mrz.MrzRecord;
 import com.hellsayenci.mrzscanner.mrz.types.MrzDocumentCode;
 import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
@@ -50,47 +49,21 @@ public class FrenchIdCard extends MrzRecord {
     public String optional;
 
     @Override
-    public void fromMrz(String mrz) {
-        super.fromMrz(mrz);
-        final MrzParser p = new MrzParser(mrz);
-        //Special because surname and firstname not on the same line
-        String[] name = new String[]{"", ""};
-        name[0] = p.parseString(new MrzRange(5, 30, 0));
-        name[1] = p.parseString(new MrzRange(13, 27, 1));
-        setName(name);
-        nationality = p.parseString(new MrzRange(2, 5, 0));
-        optional = p.parseString(new MrzRange(30, 36, 0));
-        documentNumber = p.parseString(new MrzRange(0, 12, 1));
-        validDocumentNumber = p.checkDigit(12, 1, new MrzRange(0, 12, 1), "document number");
-        dateOfBirth = p.parseDate(new MrzRange(27, 33, 1));
-        validDateOfBirth = p.checkDigit(33, 1, new MrzRange(27, 33, 1), "date of birth") && dateOfBirth.isDateValid();
-        sex = p.parseSex(34, 1);
-        final String finalChecksum = mrz.toString().replace("\n","").substring(0, 36 + 35);
-        validComposite = p.checkDigit(35, 1, finalChecksum, "final checksum");
-        // TODO expirationDate is missing
+    protected void setField(MrzField field, String value) {
+        if (field == MrzField.OPTIONAL) {
+            optional = value;
+        } else {
+            super.setField(field, value);
+        }
     }
 
     @Override
-    public String toString() {
-        return "FrenchIdCard{" + super.toString() + ", optional=" + optional + '}';
+    protected String getField(MrzField field) {
+        return field == MrzField.OPTIONAL ? optional : super.getField(field);
     }
 
     @Override
-    public String toMrz() {
-        final StringBuilder sb = new StringBuilder("IDFRA");
-        // first row
-        sb.append(MrzParser.toMrz(surname, 25));
-        sb.append(MrzParser.toMrz(optional, 6));
-        sb.append('\n');
-        // second row
-        sb.append(MrzParser.toMrz(documentNumber, 12));
-        sb.append(MrzParser.computeCheckDigitChar(MrzParser.toMrz(documentNumber, 12)));
-        sb.append(MrzParser.toMrz(givenNames, 14));
-        sb.append(dateOfBirth.toMrz());
-        sb.append(MrzParser.computeCheckDigitChar(dateOfBirth.toMrz()));
-        sb.append(sex.mrz);
-        sb.append(MrzParser.computeCheckDigitChar(sb.toString().replace("\n","")));
-        sb.append('\n');
-        return sb.toString();
+    public String toString() {
+        return "FrenchIdCard{" + super.toString() + ", optional=" + optional + '}';
     }
 }
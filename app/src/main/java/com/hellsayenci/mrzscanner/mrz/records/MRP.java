@@ -18,8 +18,7 @@
  */
 package com.hellsayenci.mrzscanner.mrz.records;
 
-import com.hellsayenci.mrzscanner.mrz.MrzParser;
-import com.hellsayenci.mrzscanner.mrz.MrzRange;
+import com.hellsayenci.mrzscanner.mrz.MrzField;
 import com.hellsayenci.mrzscanner.mrz.MrzRecord;
 import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
 
@@ -41,48 +40,35 @@ public class MRP extends MrzRecord {
     public boolean validPersonalNumber;
 
     @Override
-    public void fromMrz(String mrz) {
-        super.fromMrz(mrz);
-        final MrzParser parser = new MrzParser(mrz);
-        setName(parser.parseName(new MrzRange(5, 44, 0)));
-        documentNumber = parser.parseString(new MrzRange(0, 9, 1));
-        validDocumentNumber = parser.checkDigit(9, 1, new MrzRange(0, 9, 1), "passport number");
-        nationality = parser.parseString(new MrzRange(10, 13, 1));
-        dateOfBirth = parser.parseDate(new MrzRange(13, 19, 1));
-        validDateOfBirth = parser.checkDigit(19, 1, new MrzRange(13, 19, 1), "date of birth") && dateOfBirth.isDateValid();
-        sex = parser.parseSex(20, 1);
-        expirationDate = parser.parseDate(new MrzRange(21, 27, 1));
-        validExpirationDate = parser.checkDigit(27, 1, new MrzRange(21, 27, 1), "expiration date") && expirationDate.isDateValid();
-        personalNumber = parser.parseString(new MrzRange(28, 42, 1));
-        validPersonalNumber = parser.checkDigit(42, 1, new MrzRange(28, 42, 1), "personal number");
-        validComposite = parser.checkDigit(43, 1, parser.rawValue(new MrzRange(0, 10, 1), new MrzRange(13, 20, 1), new MrzRange(21, 43, 1)), "mrz");
+    protected void setField(MrzField field, String value) {
+        if (field == MrzField.PERSONAL_NUMBER) {
+            personalNumber = value;
+        } else {
+            super.setField(field, value);
+        }
     }
 
     @Override
-    public String toString() {
-        return "MRP{" + super.toString() + ", personalNumber=" + personalNumber + '}';
+    protected String getField(MrzField field) {
+        return field == MrzField.PERSONAL_NUMBER ? personalNumber : super.getField(field);
+    }
+
+    @Override
+    protected void setValid(MrzField field, boolean valid) {
+        if (field == MrzField.PERSONAL_NUMBER) {
+            validPersonalNumber = valid;
+        } else {
+            super.setValid(field, valid);
+        }
     }
 
     @Override
-    public String toMrz() {
-        // first line
-        final StringBuilder sb = new StringBuilder();
-        sb.append(code1);
-        sb.append(code2);
-        sb.append(MrzParser.toMrz(issuingCountry, 3));
-        sb.append(MrzParser.nameToMrz(surname, givenNames, 39));
-        sb.append('\n');
-        // second line
-        final String docNum = MrzParser.toMrz(documentNumber, 9) + MrzParser.computeCheckDigitChar(MrzParser.toMrz(documentNumber, 9));
-        sb.append(docNum);
-        sb.append(MrzParser.toMrz(nationality, 3));
-        final String dob = dateOfBirth.toMrz() + MrzParser.computeCheckDigitChar(dateOfBirth.toMrz());
-        sb.append(dob);
-        sb.append(sex.mrz);
-        final String edpn = expirationDate.toMrz() + MrzParser.computeCheckDigitChar(expirationDate.toMrz()) + MrzParser.toMrz(personalNumber, 14) + MrzParser.computeCheckDigitChar(MrzParser.toMrz(personalNumber, 14));
-        sb.append(edpn);
-        sb.append(MrzParser.computeCheckDigitChar(docNum + dob + edpn));
-        sb.append('\n');
-        return sb.toString();
+    protected boolean isValid(MrzField field) {
+        return field == MrzField.PERSONAL_NUMBER ? validPersonalNumber : super.isValid(field);
+    }
+
+    @Override
+    public String toString() {
+        return "MRP{" + super.toString() + ", personalNumber=" + personalNumber + '}';
     }
 }
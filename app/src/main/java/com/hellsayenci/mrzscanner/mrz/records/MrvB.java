@@ -18,8 +18,7 @@
  */
 package com.hellsayenci.mrzscanner.mrz.records;
 
-import com.hellsayenci.mrzscanner.mrz.MrzParser;
-import com.hellsayenci.mrzscanner.mrz.MrzRange;
+import com.hellsayenci.mrzscanner.mrz.MrzField;
 import com.hellsayenci.mrzscanner.mrz.MrzRecord;
 import com.hellsayenci.mrzscanner.mrz.types.MrzDocumentCode;
 import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
@@ -44,44 +43,21 @@ public class MrvB extends MrzRecord {
     public String optional;
 
     @Override
-    public void fromMrz(String mrz) {
-        super.fromMrz(mrz);
-        final MrzParser parser = new MrzParser(mrz);
-        setName(parser.parseName(new MrzRange(5, 36, 0)));
-        documentNumber = parser.parseString(new MrzRange(0, 9, 1));
-        validDocumentNumber = parser.checkDigit(9, 1, new MrzRange(0, 9, 1), "passport number");
-        nationality = parser.parseString(new MrzRange(10, 13, 1));
-        dateOfBirth = parser.parseDate(new MrzRange(13, 19, 1));
-        validDateOfBirth = parser.checkDigit(19, 1, new MrzRange(13, 19, 1), "date of birth") && dateOfBirth.isDateValid();
-        sex = parser.parseSex(20, 1);
-        expirationDate = parser.parseDate(new MrzRange(21, 27, 1));
-        validExpirationDate = parser.checkDigit(27, 1, new MrzRange(21, 27, 1), "expiration date") && expirationDate.isDateValid();
-        optional = parser.parseString(new MrzRange(28, 36, 1));
-        // TODO validComposite missing? (full MRZ line)
+    protected void setField(MrzField field, String value) {
+        if (field == MrzField.OPTIONAL) {
+            optional = value;
+        } else {
+            super.setField(field, value);
+        }
     }
 
     @Override
-    public String toString() {
-        return "MRV-B{" + super.toString() + ", optional=" + optional + '}';
+    protected String getField(MrzField field) {
+        return field == MrzField.OPTIONAL ? optional : super.getField(field);
     }
 
     @Override
-    public String toMrz() {
-        final StringBuilder sb = new StringBuilder("V<");
-        sb.append(MrzParser.toMrz(issuingCountry, 3));
-        sb.append(MrzParser.nameToMrz(surname, givenNames, 31));
-        sb.append('\n');
-        // second line
-        sb.append(MrzParser.toMrz(documentNumber, 9));
-        sb.append(MrzParser.computeCheckDigitChar(MrzParser.toMrz(documentNumber, 9)));
-        sb.append(MrzParser.toMrz(nationality, 3));
-        sb.append(dateOfBirth.toMrz());
-        sb.append(MrzParser.computeCheckDigitChar(dateOfBirth.toMrz()));
-        sb.append(sex.mrz);
-        sb.append(expirationDate.toMrz());
-        sb.append(MrzParser.computeCheckDigitChar(expirationDate.toMrz()));
-        sb.append(MrzParser.toMrz(optional, 8));
-        sb.append('\n');
-        return sb.toString();
+    public String toString() {
+        return "MRV-B{" + super.toString() + ", optional=" + optional + '}';
     }
 }
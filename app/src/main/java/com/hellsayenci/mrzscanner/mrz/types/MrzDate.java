@@ -22,25 +22,46 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 /**
  * Holds a MRZ date type.
+ * <p/>
+ * The MRZ only holds the last two digits of the year; the century is resolved when the date is created, by a {@link Century}
+ * policy, and the full date is kept packed as a single <code>yyyymmdd</code> integer. Formatting and date arithmetic work on
+ * plain integers: no {@link java.text.DateFormat}, {@link java.util.Calendar} nor locale is involved, so instances are safe to
+ * use from any thread.
  *
  * @author Martin Vysny
  */
 public class MrzDate implements Serializable, Comparable<MrzDate> {
     private static final long serialVersionUID = 1L;
-    private static final SimpleDateFormat outputFormat = new SimpleDateFormat("yyyy-MM-dd");
 
     private static Logger log = LoggerFactory.getLogger(MrzDate.class);
 
+    /**
+     * Resolves the century of a two-digit year, relative to the current date.
+     */
+    public enum Century {
+        /**
+         * The latest date which is not in the future. Used for dates of birth.
+         */
+        PAST,
+        /**
+         * The year within 49 years before and 50 years after the current year. Used for expiration dates, which are mostly in
+         * the near future but may have passed.
+         */
+        FUTURE,
+        /**
+         * The date within 80 years before and 20 years after the current date, as {@link java.text.SimpleDateFormat} resolves
+         * two-digit years.
+         */
+        SLIDING
+    }
+
     /**
      * Year, 00-99.
      * <p/>
-     * Note: I am unable to find a specification of conversion of this value to a full year value.
+     * Note: I am unable to find a specification of conversion of this value to a full year value; see {@link #fullYear}.
      */
     public final int year;
     /**
@@ -51,6 +72,14 @@ public class MrzDate implements Serializable, Comparable<MrzDate> {
      * Day, 1-31.
      */
     public final int day;
+    /**
+     * The year including the century, resolved by the {@link Century} policy, e.g. 1974. -1 if {@link #year} is not 00-99.
+     */
+    public final int fullYear;
+    /**
+     * The date packed as <code>yyyymmdd</code>, -1 if the year is not valid.
+     */
+    private final int packed;
 
     private final String mrz;
 
@@ -60,57 +89,290 @@ public class MrzDate implements Serializable, Comparable<MrzDate> {
     private final boolean isValidDate;
 
     public MrzDate(int year, int month, int day) {
-        this.year = year;
-        this.month = month;
-        this.day = day;
-        isValidDate = check();
-        this.mrz = null;
+        this(year, month, day, null);
     }
 
     public MrzDate(int year, int month, int day, String raw) {
+        this(year, month, day, raw, Century.SLIDING);
+    }
+
+    /**
+     * Creates new date.
+     * @param year year, 00-99.
+     * @param month month, 1-12.
+     * @param day day of month.
+     * @param raw the MRZ characters of the date, may be null.
+     * @param century resolves the century of the year, not null.
+     */
+    public MrzDate(int year, int month, int day, String raw, Century century) {
+        this(year, month, day, raw, resolve(year, month, day, century, today()));
+    }
+
+    /**
+     * Creates new date whose century is already known, e.g. when decoding a stored date.
+     * @param year year, 00-99.
+     * @param month month, 1-12.
+     * @param day day of month.
+     * @param raw the MRZ characters of the date, may be null.
+     * @param fullYear the year including the century, -1 if not known.
+     */
+    public MrzDate(int year, int month, int day, String raw, int fullYear) {
         this.year = year;
         this.month = month;
         this.day = day;
-        isValidDate = check();
+        this.fullYear = fullYear;
+        this.packed = fullYear < 0 ? -1 : fullYear * 10000 + month * 100 + day;
         this.mrz = raw;
+        isValidDate = check();
+    }
+
+    /**
+     * Returns the full year for given two-digit year.
+     * @param today the current date, packed as <code>yyyymmdd</code>.
+     */
+    static int resolve(int year, int month, int day, Century century, int today) {
+        if (year < 0 || year > 99) {
+            return -1;
+        }
+        final int currentYear = today / 10000;
+        final int monthDay = month * 100 + day;
+        int result;
+        switch (century) {
+            case PAST:
+                result = currentYear - (currentYear % 100 - year + 100) % 100;
+                if (result == currentYear && monthDay > today % 10000) {
+                    result -= 100;
+                }
+                return result;
+            case FUTURE:
+                return firstYearFrom(currentYear - 49, year);
+            case SLIDING:
+                result = firstYearFrom(currentYear - 80, year);
+                if (result == currentYear - 80 && monthDay < today % 10000) {
+                    result += 100;
+                }
+                return result;
+            default:
+                throw new IllegalArgumentException("Parameter century: invalid value " + century);
+        }
+    }
+
+    /**
+     * @return the first year not before <code>from</code> ending with given two digits.
+     */
+    private static int firstYearFrom(int from, int year) {
+        return from + (year - from % 100 + 100) % 100;
+    }
+
+    /**
+     * @return the current UTC date, packed as <code>yyyymmdd</code>.
+     */
+    private static int today() {
+        return fromEpochDay((int) (System.currentTimeMillis() / 86400000L));
+    }
+
+    /**
+     * Converts a number of days since 1970-01-01 to a date packed as <code>yyyymmdd</code>.
+     */
+    static int fromEpochDay(int epochDay) {
+        final int z = epochDay + 719468;
+        final int era = (z >= 0 ? z : z - 146096) / 146097;
+        final int dayOfEra = z - era * 146097;
+        final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final int mp = (5 * dayOfYear + 2) / 153;
+        final int d = dayOfYear - (153 * mp + 2) / 5 + 1;
+        final int m = mp < 10 ? mp + 3 : mp - 9;
+        final int y = yearOfEra + era * 400 + (m <= 2 ? 1 : 0);
+        return y * 10000 + m * 100 + d;
+    }
+
+    /**
+     * Returns the date packed as a single integer, e.g. 19740812 for 12 Aug 1974. Packed dates compare as the dates do.
+     * @return the packed date, negative if the year is not valid.
+     */
+    public int toPacked() {
+        return packed;
+    }
+
+    /**
+     * Recreates a date from its packed form.
+     * @param packed the date packed as <code>yyyymmdd</code>, as returned by {@link #toPacked()}, not negative.
+     * @return the date, with the raw MRZ value of <code>yymmdd</code>.
+     */
+    public static MrzDate fromPacked(int packed) {
+        if (packed < 0) {
+            throw new IllegalArgumentException("Parameter packed: invalid value " + packed + ": must not be negative");
+        }
+        final int fullYear = packed / 10000;
+        final int month = packed / 100 % 100;
+        final int day = packed % 100;
+        final char[] raw = new char[6];
+        writeDigits(raw, 0, fullYear % 100, 2);
+        writeDigits(raw, 2, month, 2);
+        writeDigits(raw, 4, day, 2);
+        return new MrzDate(fullYear % 100, month, day, new String(raw), fullYear);
+    }
+
+    /**
+     * Returns the number of days since 1970-01-01, e.g. to compute ages or the days left until expiration.
+     * @return the epoch day, negative for dates before 1970.
+     * @throws IllegalStateException if the date is not valid.
+     */
+    public int toEpochDay() {
+        if (!isValidDate) {
+            throw new IllegalStateException("Invalid date " + toMrz());
+        }
+        final int y = month <= 2 ? fullYear - 1 : fullYear;
+        final int era = (y >= 0 ? y : y - 399) / 400;
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Writes the date in the ISO <code>yyyy-MM-dd</code> format into given buffer.
+     * @param buffer the buffer, not null.
+     * @param offset where to write the first character; 10 characters are written.
+     * @return the number of characters written: 10, or 0 if the year is not valid.
+     */
+    public int toIso(char[] buffer, int offset) {
+        if (fullYear < 0 || month < 0 || day < 0) {
+            return 0;
+        }
+        writeDigits(buffer, offset, fullYear, 4);
+        buffer[offset + 4] = '-';
+        writeDigits(buffer, offset + 5, month, 2);
+        buffer[offset + 7] = '-';
+        writeDigits(buffer, offset + 8, day, 2);
+        return 10;
+    }
+
+    private static void writeDigits(char[] buffer, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
     }
 
+    /**
+     * @return the date in the ISO <code>yyyy-MM-dd</code> format, empty if the year is not valid.
+     */
     @Override
     public String toString() {
-        try {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyMMdd");
-            Date date = dateFormat.parse(this.mrz);
-            return outputFormat.format(date);
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-        return "";
+        final char[] buffer = new char[10];
+        return new String(buffer, 0, toIso(buffer, 0));
     }
 
     public String toMrz() {
         if (mrz != null) {
             return mrz;
-        } else {
-            return String.format("%02d%02d%02d", year, month, day);
         }
+        if (year < 0 || year > 99 || month < 0 || month > 99 || day < 0 || day > 99) {
+            // does not fit in 6 MRZ characters, written as the values are
+            final StringBuilder sb = new StringBuilder(12);
+            appendTwoDigits(sb, year);
+            appendTwoDigits(sb, month);
+            appendTwoDigits(sb, day);
+            return sb.toString();
+        }
+        final char[] buffer = new char[6];
+        writeDigits(buffer, 0, year, 2);
+        writeDigits(buffer, 2, month, 2);
+        writeDigits(buffer, 4, day, 2);
+        return new String(buffer);
+    }
+
+    /**
+     * Appends given value with at least two digits, a single digit padded with a zero.
+     */
+    private static void appendTwoDigits(StringBuilder sb, int value) {
+        if (value >= 0 && value < 10) {
+            sb.append('0');
+        }
+        sb.append(value);
+    }
+
+    /**
+     * Writes the MRZ characters of this date, the same as {@link #toMrz()}.
+     * @param buffer the target buffer, with at least 6 characters from the offset.
+     * @param offset where to write the first character.
+     * @return number of characters written, always 6.
+     * @throws IllegalStateException if the date does not fit in 6 MRZ characters.
+     */
+    public int toMrz(char[] buffer, int offset) {
+        if (mrz == null && year >= 0 && year <= 99 && month >= 0 && month <= 99 && day >= 0 && day <= 99) {
+            writeDigits(buffer, offset, year, 2);
+            writeDigits(buffer, offset + 2, month, 2);
+            writeDigits(buffer, offset + 4, day, 2);
+            return 6;
+        }
+        final String value = toMrz();
+        if (value.length() != 6) {
+            throw new IllegalStateException("Invalid date " + value + ": must be 6 characters long");
+        }
+        value.getChars(0, 6, buffer, offset);
+        return 6;
+    }
+
+    /**
+     * Dates serialized before the century was resolved on creation have no {@link #fullYear} nor {@link #packed} in the
+     * stream, so both read as 0: resolves them again, with the {@link Century#SLIDING} policy those dates were formatted with.
+     */
+    private Object readResolve() {
+        if (fullYear == 0 && packed == 0) {
+            return new MrzDate(year, month, day, mrz, Century.SLIDING);
+        }
+        return this;
     }
 
     private boolean check() {
         if (year < 0 || year > 99) {
-            log.debug("Parameter year: invalid value " + year + ": must be 0..99");
+            log.debug("Parameter year: invalid value {}: must be 0..99", year);
             return false;
         }
         if (month < 1 || month > 12) {
-            log.debug("Parameter month: invalid value " + month + ": must be 1..12");
+            log.debug("Parameter month: invalid value {}: must be 1..12", month);
             return false;
         }
-        if (day < 1 || day > 31) {
-            log.debug("Parameter day: invalid value " + day + ": must be 1..31");
+        final int length = getMonthLength(fullYear, month);
+        if (day < 1 || day > length) {
+            log.debug("Parameter day: invalid value {}: must be 1..{}", day, length);
             return false;
         }
         return true;
     }
 
+    /**
+     * Checks a date without creating it.
+     * @param year year, 00-99.
+     * @param month month, 1-12.
+     * @param day day of month.
+     * @param century resolves the century of the year, which matters for 29 February.
+     * @return true if the date is a calendar date.
+     */
+    public static boolean isDateValid(int year, int month, int day, Century century) {
+        if (year < 0 || year > 99 || month < 1 || month > 12 || day < 1) {
+            return false;
+        }
+        return day <= getMonthLength(resolve(year, month, day, century, today()), month);
+    }
+
+    private static int getMonthLength(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == null) {
@@ -129,6 +391,9 @@ public class MrzDate implements Serializable, Comparable<MrzDate> {
         if (this.day != other.day) {
             return false;
         }
+        if (this.packed != other.packed) {
+            return false;
+        }
         return true;
     }
 
@@ -142,7 +407,7 @@ public class MrzDate implements Serializable, Comparable<MrzDate> {
     }
 
     public int compareTo(MrzDate o) {
-        return Integer.valueOf(year * 10000 + month * 100 + day).compareTo(o.year * 10000 + o.month * 100 + o.day);
+        return packed < o.packed ? -1 : (packed == o.packed ? 0 : 1);
     }
 
     /**
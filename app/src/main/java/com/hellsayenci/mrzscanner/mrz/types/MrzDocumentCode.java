@@ -57,6 +57,30 @@ public enum MrzDocumentCode {
      */
     Migrant;
 
+    /**
+     * Tells whether {@link #parse(CharSequence)} accepts given document code, without throwing.
+     * @param c1 the first character of the MRZ.
+     * @param c2 the second character of the MRZ.
+     * @return true if the document code is supported.
+     */
+    public static boolean isValid(char c1, char c2) {
+        switch (c1) {
+            case 'I':
+                return c2 != 'V';
+            case 'M':
+                return c2 == 'E';
+            case 'A':
+            case 'C':
+            case 'P':
+            case 'R':
+            case 'T':
+            case 'V':
+                return true;
+            default:
+                return false;
+        }
+    }
+
     /**
      * @author Zsombor
      * turning to switch statement due to lots of types
@@ -64,21 +88,31 @@ public enum MrzDocumentCode {
      * @param mrz
      * @return
      */
-    public static MrzDocumentCode parse(String mrz) {
-        final String code = mrz.substring(0, 2);
+    public static MrzDocumentCode parse(CharSequence mrz) {
+        final char c1 = mrz.charAt(0);
+        final char c2 = mrz.charAt(1);
 
         // 2-letter checks
-        switch(code){
-            case "IV":
-                throw new MrzParseException("IV document code is not allowed", mrz, new MrzRange(0, 2, 0), null); // TODO why?
-            case "AC": return CrewMember;
-            case "ME": return Migrant;
-            case "TD": return Migrant; // travel document
-            case "IP": return Passport;
+        switch (c1) {
+            case 'I':
+                if (c2 == 'V') {
+                    throw new MrzParseException("IV document code is not allowed", mrz.toString(), new MrzRange(0, 2, 0), null); // TODO why?
+                }
+                if (c2 == 'P') return Passport;
+                break;
+            case 'A':
+                if (c2 == 'C') return CrewMember;
+                break;
+            case 'M':
+                if (c2 == 'E') return Migrant;
+                break;
+            case 'T':
+                if (c2 == 'D') return Migrant; // travel document
+                break;
         }
 
         // 1-letter checks
-        switch(code.charAt(0)){
+        switch(c1){
             case 'T':   // usually Travel Document
             case 'P': return Passport;
             case 'A': return TypeA;
@@ -89,6 +123,6 @@ public enum MrzDocumentCode {
         }
 
 
-        throw new MrzParseException("Unsupported document code: " + code, mrz, new MrzRange(0, 2, 0), null);
+        throw new MrzParseException("Unsupported document code: " + c1 + c2, mrz.toString(), new MrzRange(0, 2, 0), null);
     }
 }
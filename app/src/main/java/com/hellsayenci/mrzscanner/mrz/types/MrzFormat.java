@@ -18,11 +18,16 @@
  */
 package com.hellsayenci.mrzscanner.mrz.types;
 
+import com.hellsayenci.mrzscanner.mrz.MrzLayout;
 import com.hellsayenci.mrzscanner.mrz.MrzParseException;
 import com.hellsayenci.mrzscanner.mrz.MrzRange;
 import com.hellsayenci.mrzscanner.mrz.MrzRecord;
 import com.hellsayenci.mrzscanner.mrz.records.*;
 
+import static com.hellsayenci.mrzscanner.mrz.MrzField.*;
+import static com.hellsayenci.mrzscanner.mrz.MrzLayout.checked;
+import static com.hellsayenci.mrzscanner.mrz.MrzLayout.field;
+
 /**
  * Lists all supported MRZ formats. Note that the order of the enum constants are important, see for example {@link  #FRENCH_ID}.
  * @author Martin Vysny, Pierrick Martin
@@ -32,19 +37,49 @@ public enum MrzFormat {
     /**
      * MRTD td1 format: A three line long, 30 characters per line format.
      */
-    MRTD_TD1(3, 30, MrtdTd1.class),
+    MRTD_TD1(3, 30, new MrzLayout(new MrzLayout.Entry[]{
+            field(ISSUING_COUNTRY, 2, 5, 0),
+            checked(DOCUMENT_NUMBER, 5, 14, 0),
+            field(OPTIONAL, 15, 30, 0),
+            checked(DATE_OF_BIRTH, 0, 6, 1),
+            field(SEX, 7, 8, 1),
+            checked(EXPIRATION_DATE, 8, 14, 1),
+            field(NATIONALITY, 15, 18, 1),
+            field(OPTIONAL2, 18, 29, 1),
+            field(NAME, 0, 30, 2)},
+            new MrzRange(29, 30, 1), new MrzRange(5, 30, 0), new MrzRange(0, 7, 1), new MrzRange(8, 15, 1), new MrzRange(18, 29, 1))) {
+
+        public MrzRecord newRecord() {
+            return new MrtdTd1();
+        }
+    },
     /**
      * French 2 line/36 characters per line format, used with French ID cards.
      * Need to occur before the {@link #MRTD_TD2} enum constant because of the same values for row/column.
      * See below for the "if" test.
      */
-    FRENCH_ID(2, 36, FrenchIdCard.class) {
+    FRENCH_ID(2, 36, new MrzLayout(new MrzLayout.Entry[]{
+            field(ISSUING_COUNTRY, 2, 5, 0),
+            //Special because surname and firstname not on the same line
+            field(SURNAME, 5, 30, 0),
+            field(GIVEN_NAMES, 13, 27, 1),
+            field(NATIONALITY, 2, 5, 0),
+            field(OPTIONAL, 30, 36, 0),
+            checked(DOCUMENT_NUMBER, 0, 12, 1),
+            checked(DATE_OF_BIRTH, 27, 33, 1),
+            field(SEX, 34, 35, 1)},
+            // TODO expirationDate is missing
+            new MrzRange(35, 36, 1), new MrzRange(0, 36, 0), new MrzRange(0, 35, 1))) {
 
-        public boolean isFormatOf(String[] mrzRows) {
-            if (!super.isFormatOf(mrzRows)) {
+        public boolean isFormatOf(CharSequence mrz, int rows, int columns) {
+            if (!super.isFormatOf(mrz, rows, columns)) {
                 return false;
             }
-            return mrzRows[0].substring(0, 5).equals("IDFRA");
+            return isFrenchId(mrz);
+        }
+
+        public MrzRecord newRecord() {
+            return new FrenchIdCard();
         }
     },
     /**
@@ -52,49 +87,175 @@ public enum MrzFormat {
      * Need to occur before the {@link #MRTD_TD2} enum constant because of the same values for row/column.
      * See below for the "if" test.
      */
-    MRV_VISA_B(2, 36, MrvB.class) {
+    MRV_VISA_B(2, 36, new MrzLayout(new MrzLayout.Entry[]{
+            field(ISSUING_COUNTRY, 2, 5, 0),
+            field(NAME, 5, 36, 0),
+            checked(DOCUMENT_NUMBER, 0, 9, 1),
+            field(NATIONALITY, 10, 13, 1),
+            checked(DATE_OF_BIRTH, 13, 19, 1),
+            field(SEX, 20, 21, 1),
+            checked(EXPIRATION_DATE, 21, 27, 1),
+            field(OPTIONAL, 28, 36, 1)},
+            // TODO validComposite missing? (full MRZ line)
+            null)) {
 
-        public boolean isFormatOf(String[] mrzRows) {
-            if (!super.isFormatOf(mrzRows)) {
+        public boolean isFormatOf(CharSequence mrz, int rows, int columns) {
+            if (!super.isFormatOf(mrz, rows, columns)) {
                 return false;
             }
-            return mrzRows[0].substring(0, 1).equals("V");
-        } 
+            return isVisa(mrz);
+        }
+
+        public MrzRecord newRecord() {
+            return new MrvB();
+        }
     },    
     /**
      * MRTD td2 format: A two line long, 36 characters per line format.
      */
-    MRTD_TD2(2, 36, MrtdTd2.class),
+    MRTD_TD2(2, 36, new MrzLayout(new MrzLayout.Entry[]{
+            field(ISSUING_COUNTRY, 2, 5, 0),
+            field(NAME, 5, 36, 0),
+            checked(DOCUMENT_NUMBER, 0, 9, 1),
+            field(NATIONALITY, 10, 13, 1),
+            checked(DATE_OF_BIRTH, 13, 19, 1),
+            field(SEX, 20, 21, 1),
+            checked(EXPIRATION_DATE, 21, 27, 1),
+            field(OPTIONAL, 28, 35, 1)},
+            new MrzRange(35, 36, 1), new MrzRange(0, 10, 1), new MrzRange(13, 20, 1), new MrzRange(21, 35, 1))) {
+
+        public MrzRecord newRecord() {
+            return new MrtdTd2();
+        }
+    },
     /**
      * MRV type-A format: A two lines long, 44 characters per line format
      * Need to occur before {@link #PASSPORT} constant because of the same values for row/column.
      * See below for the "if" test.
      */
-    MRV_VISA_A(2, 44, MrvA.class) {
+    MRV_VISA_A(2, 44, new MrzLayout(new MrzLayout.Entry[]{
+            field(ISSUING_COUNTRY, 2, 5, 0),
+            field(NAME, 5, 44, 0),
+            checked(DOCUMENT_NUMBER, 0, 9, 1),
+            field(NATIONALITY, 10, 13, 1),
+            checked(DATE_OF_BIRTH, 13, 19, 1),
+            field(SEX, 20, 21, 1),
+            checked(EXPIRATION_DATE, 21, 27, 1),
+            field(OPTIONAL, 28, 44, 1)},
+            // TODO validComposite missing? (final MRZ check digit)
+            null)) {
 
-        public boolean isFormatOf(String[] mrzRows) {
-            if (!super.isFormatOf(mrzRows)) {
+        public boolean isFormatOf(CharSequence mrz, int rows, int columns) {
+            if (!super.isFormatOf(mrz, rows, columns)) {
                 return false;
             }
-            return mrzRows[0].substring(0, 1).equals("V");
+            return isVisa(mrz);
+        }
+
+        public MrzRecord newRecord() {
+            return new MrvA();
         }
     }, 
     /**
      * MRP Passport format: A two line long, 44 characters per line format.
      */
-    PASSPORT(2, 44, MRP.class),
+    PASSPORT(2, 44, new MrzLayout(new MrzLayout.Entry[]{
+            field(ISSUING_COUNTRY, 2, 5, 0),
+            field(NAME, 5, 44, 0),
+            checked(DOCUMENT_NUMBER, 0, 9, 1),
+            field(NATIONALITY, 10, 13, 1),
+            checked(DATE_OF_BIRTH, 13, 19, 1),
+            field(SEX, 20, 21, 1),
+            checked(EXPIRATION_DATE, 21, 27, 1),
+            checked(PERSONAL_NUMBER, 28, 42, 1)},
+            new MrzRange(43, 44, 1), new MrzRange(0, 10, 1), new MrzRange(13, 20, 1), new MrzRange(21, 43, 1))) {
+
+        public MrzRecord newRecord() {
+            return new MRP();
+        }
+    },
     /**
      * Unknown 2 line/34 characters per line format, used with old Slovak ID cards.
      */
-    SLOVAK_ID_234(2, 34, SlovakId2_34.class);
+    SLOVAK_ID_234(2, 34, new MrzLayout(new MrzLayout.Entry[]{
+            field(ISSUING_COUNTRY, 2, 5, 0),
+            field(NAME, 5, 34, 0),
+            checked(DOCUMENT_NUMBER, 0, 9, 1),
+            field(NATIONALITY, 10, 13, 1),
+            checked(DATE_OF_BIRTH, 13, 19, 1),
+            field(SEX, 20, 21, 1),
+            checked(EXPIRATION_DATE, 21, 27, 1),
+            field(OPTIONAL, 28, 34, 1)},
+            // TODO validComposite missing? (final MRZ check digit)
+            null)) {
+
+        public MrzRecord newRecord() {
+            return new SlovakId2_34();
+        }
+    };
     public final int rows;
     public final int columns;
-    private final Class<? extends MrzRecord> recordClass;
+    /**
+     * Positions of the fields and check digits of this format.
+     */
+    public final MrzLayout layout;
 
-    private MrzFormat(int rows, int columns, Class<? extends MrzRecord> recordClass) {
+    /**
+     * The character classes allowed at every position, see {@link MrzLayout#createClassMask(int, int)}.
+     */
+    private final byte[] classMask;
+
+    private MrzFormat(int rows, int columns, MrzLayout layout) {
         this.rows = rows;
         this.columns = columns;
-        this.recordClass = recordClass;
+        this.layout = layout;
+        this.classMask = layout.createClassMask(rows, columns);
+    }
+
+    /**
+     * Checks that every character of given MRZ fits the character class of its position, e.g. digits in dates and check
+     * digits, letters in country codes and names, before any field is parsed.
+     * @param mrz the MRZ of this format, rows separated by \n.
+     * @return true if all characters fit their positions.
+     */
+    public boolean isStructurallyValid(CharSequence mrz) {
+        return countClassMismatches(mrz) == 0;
+    }
+
+    /**
+     * Counts the characters of given MRZ which do not fit the character class of their position.
+     * @param mrz the MRZ of this format, rows separated by \n.
+     * @return number of misplaced characters, 0 if the MRZ is structurally valid.
+     */
+    public int countClassMismatches(CharSequence mrz) {
+        int mismatches = 0;
+        for (int row = 0; row < rows; row++) {
+            final int offset = row * (columns + 1);
+            final int maskOffset = row * columns;
+            for (int col = 0; col < columns; col++) {
+                // 1 exactly when no class matches, without branching
+                mismatches += ((MrzLayout.classOf(mrz.charAt(offset + col)) & classMask[maskOffset + col]) - 1) >>> 31;
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Counts the characters of given MRZ which do not fit the character class of their position.
+     * @param mrz the buffer holding the MRZ of this format, rows separated by a single character.
+     * @param offset index of the first MRZ character in the buffer.
+     * @return number of misplaced characters, 0 if the MRZ is structurally valid.
+     */
+    public int countClassMismatches(char[] mrz, int offset) {
+        int mismatches = 0;
+        for (int row = 0; row < rows; row++) {
+            final int start = offset + row * (columns + 1);
+            final int maskOffset = row * columns;
+            for (int col = 0; col < columns; col++) {
+                mismatches += ((MrzLayout.classOf(mrz[start + col]) & classMask[maskOffset + col]) - 1) >>> 31;
+            }
+        }
+        return mismatches;
     }
 
     /**
@@ -103,39 +264,129 @@ public enum MrzFormat {
      * @return true if given MRZ record is of this type, false otherwise.
      */
     public boolean isFormatOf(String[] mrzRows) {
-        return rows == mrzRows.length && columns == mrzRows[0].length();
+        return isFormatOf(mrzRows[0], mrzRows.length, mrzRows[0].length());
     }
 
     /**
-     * Detects given MRZ format.
-     * @param mrz the MRZ string.
-     * @return the format, never null.
+     * Checks if this format is able to parse given serialized MRZ record.
+     * @param mrz MRZ record, starting with the first row. Only the beginning of the first row is examined.
+     * @param rows number of rows of the MRZ record.
+     * @param columns number of characters per row.
+     * @return true if given MRZ record is of this type, false otherwise.
+     */
+    public boolean isFormatOf(CharSequence mrz, int rows, int columns) {
+        return this.rows == rows && this.columns == columns;
+    }
+
+    /**
+     * The general format of every MRZ size, indexed by number of rows and number of columns; null for unsupported sizes.
+     * Formats which share the size with the general one are told apart by {@link #detect(CharSequence, int, int)}.
+     */
+    private static final MrzFormat[][] BY_SIZE = new MrzFormat[4][45];
+
+    static {
+        // the general format of a size is declared last, after the more specific ones
+        for (MrzFormat f : values()) {
+            BY_SIZE[f.rows][f.columns] = f;
+        }
+    }
+
+    private static boolean isVisa(CharSequence mrz) {
+        return mrz.charAt(0) == 'V';
+    }
+
+    private static boolean isFrenchId(CharSequence mrz) {
+        return mrz.charAt(0) == 'I' && mrz.charAt(1) == 'D' && mrz.charAt(2) == 'F' && mrz.charAt(3) == 'R' && mrz.charAt(4) == 'A';
+    }
+
+    /**
+     * Looks the format up by its size, then tells apart formats of the same size by the first characters.
+     * @return the format, null if the size is not supported.
      */
-    public static final MrzFormat get(String mrz) {
-        final String[] rows = mrz.split("\n");
-        final int cols = rows[0].length();
-        for (int i = 1; i < rows.length; i++) {
-            if (rows[i].length() != cols) {
-                throw new MrzParseException("Different row lengths: 0: " + cols + " and " + i + ": " + rows[i].length(), mrz, new MrzRange(0, 0, 0), null);
+    private static MrzFormat detect(CharSequence mrz, int rows, int columns) {
+        if (rows >= BY_SIZE.length || columns >= BY_SIZE[rows].length) {
+            return null;
+        }
+        final MrzFormat f = BY_SIZE[rows][columns];
+        if (f == MRTD_TD2) {
+            if (isVisa(mrz)) {
+                return MRV_VISA_B;
+            }
+            if (isFrenchId(mrz)) {
+                return FRENCH_ID;
+            }
+        } else if (f == PASSPORT) {
+            if (isVisa(mrz)) {
+                return MRV_VISA_A;
             }
         }
-        for (final MrzFormat f : values()) {
-            if (f.isFormatOf(rows)) {
-                return f;
+        return f;
+    }
+
+    /**
+     * Measures the rows in place.
+     * @return number of rows in the upper 16 bits and number of columns in the lower 16 bits, -1 if the rows differ in length.
+     */
+    private static int measure(CharSequence mrz) {
+        int length = mrz.length();
+        while (length > 0 && mrz.charAt(length - 1) == '\n') {
+            length--;
+        }
+        int cols = 0;
+        int rows = 0;
+        int rowStart = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || mrz.charAt(i) == '\n') {
+                final int rowLength = i - rowStart;
+                if (rows == 0) {
+                    cols = rowLength;
+                } else if (rowLength != cols) {
+                    return -1;
+                }
+                rows++;
+                rowStart = i + 1;
             }
         }
-        throw new MrzParseException("Unknown format / unsupported number of cols/rows: " + cols + "/" + rows.length, mrz, new MrzRange(0, 0, 0), null);
+        return rows > 0xFFFF || cols > 0xFFFF ? -1 : rows << 16 | cols;
     }
 
     /**
-     * Creates new record instance with this type.
-     * @return never null record instance.
+     * Detects given MRZ format without throwing an exception and without allocation.
+     * @param mrz the MRZ string, rows separated by \n. Trailing \n characters are ignored.
+     * @return the format, null if the rows differ in length or no format matches.
      */
-    public final MrzRecord newRecord() {
-        try {
-            return recordClass.newInstance();
-        } catch (Exception ex) {
-            throw new RuntimeException(ex);
+    public static MrzFormat find(CharSequence mrz) {
+        final int size = measure(mrz);
+        return size < 0 ? null : detect(mrz, size >>> 16, size & 0xFFFF);
+    }
+
+    /**
+     * Detects given MRZ format. The rows are measured in place, no row strings are created.
+     * @param mrz the MRZ string, rows separated by \n. Trailing \n characters are ignored.
+     * @return the format, never null.
+     */
+    public static final MrzFormat get(CharSequence mrz) {
+        final int size = measure(mrz);
+        if (size < 0) {
+            final String[] rows = mrz.toString().split("\n");
+            for (int i = 1; i < rows.length; i++) {
+                if (rows[i].length() != rows[0].length()) {
+                    throw new MrzParseException("Different row lengths: 0: " + rows[0].length() + " and " + i + ": " + rows[i].length(), mrz.toString(), new MrzRange(0, 0, 0), null);
+                }
+            }
         }
+        final int rows = size >>> 16;
+        final int cols = size & 0xFFFF;
+        final MrzFormat f = detect(mrz, rows, cols);
+        if (f == null) {
+            throw new MrzParseException("Unknown format / unsupported number of cols/rows: " + cols + "/" + rows, mrz.toString(), new MrzRange(0, 0, 0), null);
+        }
+        return f;
     }
+
+    /**
+     * Creates new record instance with this type.
+     * @return never null record instance.
+     */
+    public abstract MrzRecord newRecord();
 }
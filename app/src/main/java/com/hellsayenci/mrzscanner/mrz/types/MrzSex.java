@@ -37,6 +37,14 @@ public enum MrzSex {
         this.mrz = mrz;
     }
     
+    /**
+     * @param sex the MRZ character.
+     * @return true if {@link #fromMrz(char)} accepts given character.
+     */
+    public static boolean isValid(char sex) {
+        return sex == 'M' || sex == 'F' || sex == 'X' || sex == '<';
+    }
+
     public static MrzSex fromMrz(char sex) {
         switch (sex) {
             case 'M':
@@ -0,0 +1,131 @@
+package com.hellsayenci.mrzscanner;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link FrameQualityGate} on synthetic frames.
+ */
+public class FrameQualityGateTest {
+
+    private static final int WIDTH = 1024;
+    private static final int HEIGHT = 256;
+
+    /**
+     * Renders vertical strokes, 8 pixels apart like the characters of a distant MRZ, over a background with sensor noise.
+     *
+     * @param paper Brightness of the background.
+     * @param ink   Brightness of the strokes.
+     * @param blur  Width of the box blur, 1 for none.
+     */
+    private static LumaImage render(int paper, int ink, int blur, long seed) {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            // text lines separated by empty paper
+            final boolean text = (y / 32) % 2 == 1;
+            for (int x = 0; x < WIDTH; x++) {
+                pixels[y * WIDTH + x] = text && x % 8 < 3 ? ink : paper;
+            }
+        }
+        pixels = blur(pixels, blur, 1, WIDTH);
+        pixels = blur(pixels, blur, WIDTH, HEIGHT);
+        final byte[] data = new byte[WIDTH * HEIGHT];
+        final Random random = new Random(seed);
+        for (int i = 0; i < data.length; i++) {
+            final int v = pixels[i] + (int) (random.nextGaussian() * 4);
+            data[i] = (byte) Math.max(0, Math.min(255, v));
+        }
+        return new LumaImage(data, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Box blur along rows (stride 1) or columns (stride {@link #WIDTH}).
+     */
+    private static int[] blur(int[] pixels, int size, int stride, int length) {
+        final int[] result = new int[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            final int position = (i / stride) % length;
+            int sum = 0;
+            for (int d = 0; d < size; d++) {
+                sum += pixels[i + Math.min(d, length - 1 - position) * stride];
+            }
+            result[i] = sum / size;
+        }
+        return result;
+    }
+
+    private static FrameQualityGate.Quality evaluate(FrameQualityGate gate, LumaImage image) {
+        final FrameQualityGate.Quality quality = new FrameQualityGate.Quality();
+        final boolean passed = gate.evaluate(image, 0, 0, image.width, image.height, quality);
+        assertEquals(passed, quality.passed);
+        return quality;
+    }
+
+    @Test
+    public void testSharpPasses() {
+        final FrameQualityGate.Quality quality = evaluate(new FrameQualityGate(), render(200, 30, 1, 1));
+        assertTrue(quality.toString(), quality.passed);
+        assertTrue(quality.toString(), quality.sharpness >= FrameQualityGate.DEFAULT_MIN_SHARPNESS);
+        assertEquals(0f, quality.saturated, 0f);
+        assertTrue(quality.toString(), quality.contrast > 100);
+        assertTrue(quality.toString(), quality.score() > 0.5f);
+    }
+
+    @Test
+    public void testBlurredRejected() {
+        final FrameQualityGate gate = new FrameQualityGate();
+        final FrameQualityGate.Quality sharp = evaluate(gate, render(200, 30, 1, 2));
+        final FrameQualityGate.Quality blurred = evaluate(gate, render(200, 30, 12, 2));
+        assertFalse(blurred.toString(), blurred.passed);
+        assertTrue(blurred.sharpness < FrameQualityGate.DEFAULT_MIN_SHARPNESS);
+        assertTrue(blurred.score() < sharp.score());
+    }
+
+    @Test
+    public void testGlareRejected() {
+        final LumaImage image = render(200, 30, 1, 3);
+        // a washed out third of the frame
+        for (int y = 0; y < HEIGHT; y++) {
+            Arrays.fill(image.data, y * WIDTH, y * WIDTH + WIDTH / 3, (byte) 255);
+        }
+        final FrameQualityGate.Quality quality = evaluate(new FrameQualityGate(), image);
+        assertFalse(quality.toString(), quality.passed);
+        assertTrue(quality.toString(), quality.saturated > FrameQualityGate.DEFAULT_MAX_SATURATED);
+    }
+
+    @Test
+    public void testLowContrastRejected() {
+        final FrameQualityGate.Quality quality = evaluate(new FrameQualityGate(0, 1, FrameQualityGate.DEFAULT_MIN_CONTRAST), render(60, 40, 1, 4));
+        assertFalse(quality.toString(), quality.passed);
+        assertTrue(quality.toString(), quality.contrast < FrameQualityGate.DEFAULT_MIN_CONTRAST);
+    }
+
+    @Test
+    public void testNoiseIsNotSharpness() {
+        final FrameQualityGate.Quality quality = evaluate(new FrameQualityGate(), render(128, 128, 1, 5));
+        assertFalse(quality.toString(), quality.passed);
+        assertTrue(quality.toString(), quality.sharpness < FrameQualityGate.DEFAULT_MIN_SHARPNESS);
+    }
+
+    @Test
+    public void testRegion() {
+        final FrameQualityGate gate = new FrameQualityGate();
+        final FrameQualityGate.Quality quality = new FrameQualityGate.Quality();
+        final LumaImage image = render(200, 30, 1, 6);
+        // only empty paper
+        assertFalse(gate.evaluate(image, 0, 0, WIDTH, 32, quality));
+        assertTrue(gate.evaluate(image, 100, 32, 900, 64, quality));
+        // too small to score
+        assertFalse(gate.evaluate(image, 0, 0, 2, 2, quality));
+        assertEquals(0f, quality.sharpness, 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreshold() {
+        new FrameQualityGate(0, 1.5f, 0);
+    }
+}
@@ -0,0 +1,113 @@
+package com.hellsayenci.mrzscanner;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link MrzLocator} on rendered frames.
+ */
+public class MrzLocatorTest {
+
+    private static final String[] PASSPORT = {
+            "P<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<<<<<<<<<",
+            "L898902C36UTO7408122F1204159ZE184226B<<<<<10"
+    };
+    private static final String[] TD1 = {
+            "I<UTOD231458907<<<<<<<<<<<<<<<",
+            "7408122F1204159UTO<<<<<<<<<<<6",
+            "ERIKSSON<<ANNA<MARIA<<<<<<<<<<"
+    };
+
+    private static final int PAPER = 200;
+    private static final int INK = 30;
+
+    /**
+     * Renders lines of text in blocky glyphs on a noisy background. Letters and digits are two strokes over the full cap
+     * height; the filler only covers the middle of it, as the chevron of OCR-B does.
+     *
+     * @param left      Left edge of the text.
+     * @param top       Top edge of the first line.
+     * @param advance   Width of a character cell.
+     * @param capHeight Height of letters and digits.
+     * @param pitch     Distance between the tops of the lines.
+     */
+    private static LumaImage render(int width, int height, String[] lines, int left, int top, int advance, int capHeight, int pitch, long seed) {
+        final byte[] data = new byte[width * height];
+        Arrays.fill(data, (byte) PAPER);
+        final int stroke = Math.max(2, advance / 6);
+        for (int i = 0; i < lines.length; i++) {
+            final int y = top + i * pitch;
+            for (int j = 0; j < lines[i].length(); j++) {
+                final int x = left + j * advance;
+                if (lines[i].charAt(j) == '<') {
+                    fill(data, width, height, x + advance / 6, y + capHeight / 5, stroke, capHeight * 3 / 5);
+                    fill(data, width, height, x + advance / 2, y + capHeight / 5, stroke, capHeight * 3 / 5);
+                } else {
+                    fill(data, width, height, x, y, stroke, capHeight);
+                    fill(data, width, height, x + advance * 3 / 5, y, stroke, capHeight);
+                    fill(data, width, height, x, y + capHeight / 2, advance * 3 / 5, stroke);
+                }
+            }
+        }
+        final Random random = new Random(seed);
+        for (int i = 0; i < data.length; i++) {
+            final int v = (data[i] & 0xFF) + (int) (random.nextGaussian() * 8);
+            data[i] = (byte) Math.max(0, Math.min(255, v));
+        }
+        return new LumaImage(data, width, height);
+    }
+
+    private static void fill(byte[] data, int width, int height, int left, int top, int w, int h) {
+        for (int y = Math.max(0, top); y < Math.min(height, top + h); y++) {
+            Arrays.fill(data, y * width + Math.max(0, left), y * width + Math.min(width, left + w), (byte) INK);
+        }
+    }
+
+    private static void assertContains(MrzLocator.Region region, int left, int top, int right, int bottom) {
+        assertNotNull(region);
+        assertTrue(region.toString(), region.left <= left && region.top <= top && region.right >= right && region.bottom >= bottom);
+    }
+
+    @Test
+    public void testPassport() {
+        final LumaImage image = render(1000, 400, PASSPORT, 40, 280, 21, 24, 44, 1);
+        final MrzLocator.Region region = new MrzLocator().locate(image);
+        assertContains(region, 40, 280, 40 + 44 * 21, 280 + 44 + 24);
+        assertEquals(2, region.lines);
+        assertTrue(region.toString(), region.top > 200);
+    }
+
+    @Test
+    public void testTd1() {
+        final LumaImage image = render(1000, 420, TD1, 60, 180, 27, 32, 56, 2);
+        final MrzLocator.Region region = new MrzLocator().locate(image);
+        assertContains(region, 60, 180, 60 + 30 * 27, 180 + 2 * 56 + 32);
+        assertEquals(3, region.lines);
+    }
+
+    @Test
+    public void testTd1AtEveryScale() {
+        // the last line, mostly filler, measures shorter than the others; it must not be cropped
+        final MrzLocator locator = new MrzLocator();
+        for (int capHeight = 24; capHeight <= 38; capHeight += 2) {
+            final int advance = capHeight * 5 / 6;
+            final int pitch = capHeight * 7 / 4;
+            final LumaImage image = render(1000, 420, TD1, 40, 120, advance, capHeight, pitch, capHeight);
+            final MrzLocator.Region region = locator.locate(image);
+            assertContains(region, 40, 120, 40 + 30 * advance, 120 + 2 * pitch + capHeight);
+            assertEquals(3, region.lines);
+        }
+    }
+
+    @Test
+    public void testNoMrz() {
+        final MrzLocator locator = new MrzLocator();
+        assertNull(locator.locate(render(1000, 400, new String[0], 0, 0, 20, 20, 40, 3)));
+        // a single line of text is no MRZ
+        assertNull(locator.locate(render(1000, 400, new String[]{PASSPORT[0]}, 40, 280, 21, 24, 44, 4)));
+    }
+}
@@ -0,0 +1,321 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link MrzBatchValidator} against the check digits computed by {@link MrzParser}.
+ */
+public class MrzBatchValidatorTest {
+
+    /**
+     * Replacements tried at every position: a digit, a letter, the filler and characters which are not MRZ characters.
+     */
+    private static final char[] REPLACEMENTS = {'0', '7', 'X', '<', 'a', ' '};
+
+    /**
+     * @return the failed check digits of the record, in the order of {@link MrzBatchValidator#getCheckDigit(int)}.
+     */
+    private static int expected(MrzFormat format, String mrz) {
+        final String[] rows = mrz.split("\n");
+        final MrzLayout layout = format.layout;
+        int result = 0;
+        int check = 0;
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            if (e.checkDigit != null) {
+                if (!isCheckDigit(rows, e.checkDigit, substring(rows, e.range))) {
+                    result |= 1 << check;
+                }
+                check++;
+            }
+        }
+        if (layout.compositeCheckDigit != null) {
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < layout.compositeSize(); i++) {
+                sb.append(substring(rows, layout.getComposite(i)));
+            }
+            if (!isCheckDigit(rows, layout.compositeCheckDigit, sb.toString())) {
+                result |= 1 << check;
+            }
+        }
+        return result;
+    }
+
+    private static String substring(String[] rows, MrzRange range) {
+        return rows[range.row].substring(range.column, range.columnTo);
+    }
+
+    private static boolean isCheckDigit(String[] rows, MrzRange checkDigit, String covered) {
+        final int computed;
+        try {
+            computed = MrzParser.computeCheckDigit(covered);
+        } catch (RuntimeException ex) {
+            // an invalid character fails the check digit
+            return false;
+        }
+        final char c = rows[checkDigit.row].charAt(checkDigit.column);
+        return c == '0' + computed || (computed == 0 && c == MrzParser.FILLER);
+    }
+
+    /**
+     * @return the specimen and all of its single character corruptions.
+     */
+    private static List<String> corruptions(String mrz) {
+        final List<String> result = new ArrayList<String>();
+        result.add(mrz);
+        for (int i = 0; i < mrz.length(); i++) {
+            if (mrz.charAt(i) == '\n') {
+                continue;
+            }
+            for (char c : REPLACEMENTS) {
+                if (c != mrz.charAt(i)) {
+                    result.add(MrzSpecimens.replace(mrz, i, c));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Packs the records one after another, every row followed by given separator and every record by given gap.
+     */
+    private static String pack(List<String> records, String separator, String gap) {
+        final StringBuilder sb = new StringBuilder();
+        for (String mrz : records) {
+            for (String row : mrz.split("\n")) {
+                sb.append(row).append(separator);
+            }
+            sb.append(gap);
+        }
+        return sb.toString();
+    }
+
+    private static byte[] ascii(String s) {
+        final byte[] result = new byte[s.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) s.charAt(i);
+        }
+        return result;
+    }
+
+    private static int countZeros(int[] results, int count) {
+        int result = 0;
+        for (int i = 0; i < count; i++) {
+            if (results[i] == 0) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testSpecimensValid() {
+        for (String mrz : MrzSpecimens.ALL) {
+            final MrzBatchValidator validator = new MrzBatchValidator(MrzFormat.get(mrz));
+            final int[] results = {-1};
+            assertEquals(1, validator.validate((mrz + "\n").toCharArray(), 0, 1, results));
+            assertEquals(0, results[0]);
+            assertEquals(1, validator.validate(ascii(mrz + "\n"), 0, 1, results));
+            assertEquals(0, results[0]);
+        }
+    }
+
+    @Test
+    public void testCheckDigits() {
+        for (String mrz : MrzSpecimens.ALL) {
+            final MrzFormat format = MrzFormat.get(mrz);
+            final MrzBatchValidator validator = new MrzBatchValidator(format);
+            final MrzLayout layout = format.layout;
+            int check = 0;
+            for (int i = 0; i < layout.size(); i++) {
+                if (layout.get(i).checkDigit != null) {
+                    assertEquals(layout.get(i).checkDigit.toString(), validator.getCheckDigit(check++).toString());
+                }
+            }
+            if (layout.compositeCheckDigit != null) {
+                assertEquals(layout.compositeCheckDigit.toString(), validator.getCheckDigit(check++).toString());
+            }
+            assertEquals(check, validator.getCheckCount());
+        }
+    }
+
+    @Test
+    public void testCorruptions() {
+        for (String mrz : MrzSpecimens.ALL) {
+            final MrzFormat format = MrzFormat.get(mrz);
+            final List<String> records = corruptions(mrz);
+            final MrzBatchValidator validator = new MrzBatchValidator(format);
+            final String packed = pack(records, "\n", "");
+            final int[] chars = new int[records.size()];
+            final int[] bytes = new int[records.size()];
+            final int valid = validator.validate(packed.toCharArray(), 0, records.size(), chars);
+            assertEquals(valid, validator.validate(ascii(packed), 0, records.size(), bytes));
+            assertArrayEquals(chars, bytes);
+            assertEquals(countZeros(chars, records.size()), valid);
+            for (int r = 0; r < records.size(); r++) {
+                final String record = records.get(r);
+                assertEquals(record, expected(format, record), chars[r]);
+                assertRecordFlags(validator, record, chars[r]);
+            }
+        }
+    }
+
+    /**
+     * Compares the result with the check digit flags of the parsed record, if the record still parses.
+     */
+    private static void assertRecordFlags(MrzBatchValidator validator, String mrz, int result) {
+        final MrzRecord record;
+        try {
+            record = MrzParser.parse(mrz);
+        } catch (RuntimeException ex) {
+            // MrzParseException, or an invalid character met while computing a check digit
+            return;
+        }
+        if (record.format != validator.format) {
+            return;
+        }
+        final MrzLayout layout = validator.format.layout;
+        int check = 0;
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            if (e.checkDigit != null) {
+                // the record also flags a checked date which does not exist, e.g. a filler read in the month
+                boolean valid = (result & (1 << check)) == 0;
+                if (e.field == MrzField.DATE_OF_BIRTH) {
+                    valid &= record.dateOfBirth.isDateValid();
+                } else if (e.field == MrzField.EXPIRATION_DATE) {
+                    valid &= record.expirationDate.isDateValid();
+                }
+                assertEquals(mrz + ": " + e.field, valid, record.isValid(e.field));
+                check++;
+            }
+        }
+        if (layout.compositeCheckDigit != null) {
+            assertEquals(mrz + ": composite", (result & (1 << check)) == 0, record.validComposite);
+        }
+    }
+
+    @Test
+    public void testFillerForZero() {
+        // the document number check digit of D23145890 is 7; of D23145893 it is 0
+        final String td1 = MrzSpecimens.of(MrzFormat.MRTD_TD1);
+        final String zero = MrzSpecimens.replace(td1, 13, '3');
+        final int check = MrzParser.computeCheckDigit(zero.substring(5, 14));
+        assertEquals(0, check);
+        final String[] records = {MrzSpecimens.replace(zero, 14, '0'), MrzSpecimens.replace(zero, 14, '<'), MrzSpecimens.replace(zero, 14, 'O')};
+        final MrzBatchValidator validator = new MrzBatchValidator(MrzFormat.MRTD_TD1);
+        final int[] results = new int[3];
+        validator.validate(pack(Arrays.asList(records), "\n", "").toCharArray(), 0, 3, results);
+        // the composite check digit covers the document number check digit, where the filler counts as 0
+        assertEquals(results[0], results[1]);
+        assertEquals(0, results[0] & 1);
+        assertEquals(1, results[2] & 1);
+    }
+
+    @Test
+    public void testInvalidCharacters() {
+        final String passport = MrzSpecimens.of(MrzFormat.PASSPORT);
+        final MrzBatchValidator validator = new MrzBatchValidator(MrzFormat.PASSPORT);
+        final int[] results = new int[1];
+        // document number, within and beyond Latin-1
+        for (char c : new char[]{'a', '\u00C4', '\u0100', '\u4E00', '\uFFFF'}) {
+            final String mrz = MrzSpecimens.replace(passport, 45 + 2, c);
+            assertEquals(0, validator.validate((mrz + "\n").toCharArray(), 0, 1, results));
+            assertEquals(mrz, expected(MrzFormat.PASSPORT, mrz), results[0]);
+            assertTrue(mrz, (results[0] & 1) != 0);
+            if (c < 256) {
+                assertEquals(0, validator.validate(ascii(mrz + "\n"), 0, 1, results));
+                assertEquals(mrz, expected(MrzFormat.PASSPORT, mrz), results[0]);
+            }
+        }
+        // an invalid check digit character itself
+        final String mrz = MrzSpecimens.replace(passport, 45 + 9, '\u0106');
+        assertEquals(0, validator.validate(mrz.toCharArray(), 0, 1, results));
+        assertTrue((results[0] & 1) != 0);
+    }
+
+    @Test
+    public void testStrides() {
+        for (String mrz : MrzSpecimens.ALL) {
+            final MrzFormat format = MrzFormat.get(mrz);
+            final List<String> records = corruptions(mrz);
+            final int[] expected = new int[records.size()];
+            final int valid = new MrzBatchValidator(format).validate(pack(records, "\n", "").toCharArray(), 0, records.size(), expected);
+            // rows ended by CR LF and records separated by an empty line, after a header
+            final String header = "MRZ\r\n";
+            final String packed = header + pack(records, "\r\n", "\r\n");
+            final MrzBatchValidator validator = new MrzBatchValidator(format, format.columns + 2, format.rows * (format.columns + 2) + 2);
+            assertEquals(format.columns + 2, validator.rowStride);
+            final int[] chars = new int[records.size()];
+            final int[] bytes = new int[records.size()];
+            assertEquals(valid, validator.validate(packed.toCharArray(), header.length(), records.size(), chars));
+            assertEquals(valid, validator.validate(ascii(packed), header.length(), records.size(), bytes));
+            assertArrayEquals(expected, chars);
+            assertArrayEquals(expected, bytes);
+        }
+    }
+
+    @Test
+    public void testNoRecords() {
+        final MrzBatchValidator validator = new MrzBatchValidator(MrzFormat.PASSPORT);
+        assertEquals(0, validator.validate(new char[0], 0, 0, new int[0]));
+        assertEquals(0, validator.validate(new byte[0], 0, 0, new int[0]));
+    }
+
+    @Test
+    public void testBufferTooShort() {
+        final String passport = MrzSpecimens.of(MrzFormat.PASSPORT);
+        final MrzBatchValidator validator = new MrzBatchValidator(MrzFormat.PASSPORT);
+        // the last row need not be followed by the separator
+        final char[] exact = (passport + "\n" + passport).toCharArray();
+        assertEquals(2, validator.validate(exact, 0, 2, new int[2]));
+        try {
+            validator.validate(Arrays.copyOf(exact, exact.length - 1), 0, 2, new int[2]);
+            fail();
+        } catch (IndexOutOfBoundsException ex) {
+            // expected
+        }
+        try {
+            validator.validate(exact, 1, 2, new int[2]);
+            fail();
+        } catch (IndexOutOfBoundsException ex) {
+            // expected
+        }
+        try {
+            validator.validate(ascii(passport.substring(1)), 0, 1, new int[1]);
+            fail();
+        } catch (IndexOutOfBoundsException ex) {
+            // expected
+        }
+        try {
+            validator.validate(exact, -1, 1, new int[1]);
+            fail();
+        } catch (IndexOutOfBoundsException ex) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testResultsTooSmall() {
+        final String passport = MrzSpecimens.of(MrzFormat.PASSPORT);
+        new MrzBatchValidator(MrzFormat.PASSPORT).validate(ascii(passport + "\n" + passport), 0, 2, new int[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRowStrideTooSmall() {
+        new MrzBatchValidator(MrzFormat.PASSPORT, 43, 200);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecordsOverlap() {
+        new MrzBatchValidator(MrzFormat.PASSPORT, 45, 88);
+    }
+}
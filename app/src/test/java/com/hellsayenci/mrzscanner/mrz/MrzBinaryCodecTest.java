@@ -0,0 +1,159 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzDate;
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trip tests of {@link MrzBinaryCodec}.
+ */
+public class MrzBinaryCodecTest {
+
+    /**
+     * One specimen of every {@link MrzFormat}.
+     */
+    private static final String[] SPECIMENS = {
+            "I<UTOD231458907<<<<<<<<<<<<<<<\n7408122F1204159UTO<<<<<<<<<<<6\nERIKSSON<<ANNA<MARIA<<<<<<<<<<",
+            "IDFRADOUEL<<<<<<<<<<<<<<<<<<<<932013\n0506932020438CHRISTIANE<<NI2906209F3",
+            "V<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<\nL8988901C4XXX4009078F9612109<<<<<<<<",
+            "I<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<\nD231458907UTO7408122F1204159<<<<<<<6",
+            "V<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<<<<<<<<<\nL8988901C4XXX4009078F96121096ZE184226B<<<<<<",
+            "P<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<<<<<<<<<\nL898902C36UTO7408122F1204159ZE184226B<<<<<10",
+            "I<SVKNOVAK<<JAN<<<<<<<<<<<<<<<<<<<\nAB12345671SVK8001014M2501017<<<<<<"
+    };
+
+    private static MrzRecord roundTrip(MrzRecord record) {
+        final ByteBuffer buffer = ByteBuffer.allocate(MrzBinaryCodec.MAX_RECORD_SIZE);
+        MrzBinaryCodec.write(record, buffer);
+        buffer.flip();
+        final MrzRecord result = MrzBinaryCodec.read(buffer);
+        assertFalse(buffer.hasRemaining());
+        return result;
+    }
+
+    private static void assertRecordEquals(MrzRecord expected, MrzRecord actual) {
+        assertSame(expected.getClass(), actual.getClass());
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.toMrz(), actual.toMrz());
+        assertEquals(expected.validComposite, actual.validComposite);
+        final MrzLayout layout = expected.format.layout;
+        for (int i = 0; i < layout.size(); i++) {
+            final MrzLayout.Entry e = layout.get(i);
+            if (e.checkDigit != null) {
+                assertEquals(e.field.name(), expected.isValid(e.field), actual.isValid(e.field));
+            }
+        }
+        assertDateEquals(expected.dateOfBirth, actual.dateOfBirth);
+        assertDateEquals(expected.expirationDate, actual.expirationDate);
+    }
+
+    private static void assertDateEquals(MrzDate expected, MrzDate actual) {
+        assertEquals(expected, actual);
+        if (expected != null) {
+            assertEquals(expected.toPacked(), actual.toPacked());
+            assertEquals(expected.toMrz(), actual.toMrz());
+        }
+    }
+
+    @Test
+    public void testRoundTripEveryFormat() {
+        final Set<MrzFormat> formats = EnumSet.noneOf(MrzFormat.class);
+        for (String mrz : SPECIMENS) {
+            final MrzRecord record = MrzParser.parse(mrz);
+            formats.add(record.format);
+            assertRecordEquals(record, roundTrip(record));
+        }
+        assertEquals(EnumSet.allOf(MrzFormat.class), formats);
+    }
+
+    @Test
+    public void testRoundTripInvalidFields() {
+        // broken check digits and an impossible expiry date
+        final MrzRecord record = MrzParser.parse("P<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<<<<<<<<<\nL898902C37UTO7408122F1213459ZE184226B<<<<<10");
+        assertFalse(record.validDocumentNumber);
+        assertFalse(record.expirationDate.isDateValid());
+        final MrzRecord result = roundTrip(record);
+        assertRecordEquals(record, result);
+        assertFalse(result.expirationDate.isDateValid());
+    }
+
+    @Test
+    public void testRejectedBeforeWriting() {
+        final MrzRecord record = MrzParser.parse(SPECIMENS[5]);
+        record.surname = "M\u00FCller";
+        final ByteBuffer buffer = ByteBuffer.allocate(MrzBinaryCodec.MAX_RECORD_SIZE);
+        try {
+            MrzBinaryCodec.write(record, buffer);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertEquals(0, buffer.position());
+        }
+        record.surname = "MUELLER";
+        record.code2 = 'd';
+        try {
+            MrzBinaryCodec.write(record, buffer);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertEquals(0, buffer.position());
+        }
+        record.code2 = '<';
+        assertEquals("MUELLER", roundTrip(record).surname);
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        final int count = 10000;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final MrzBinaryCodec.Writer writer = new MrzBinaryCodec.Writer(Channels.newChannel(out), MrzBinaryCodec.MAX_RECORD_SIZE);
+        for (int i = 0; i < count; i++) {
+            writer.write(MrzParser.parse(SPECIMENS[i % SPECIMENS.length]));
+        }
+        writer.close();
+        final MrzBinaryCodec.Reader reader = new MrzBinaryCodec.Reader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(MrzBinaryCodec.VERSION, reader.version);
+        int read = 0;
+        while (reader.hasNext()) {
+            assertRecordEquals(MrzParser.parse(SPECIMENS[read % SPECIMENS.length]), reader.next());
+            read++;
+        }
+        reader.close();
+        assertEquals(count, read);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedStream() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(MrzBinaryCodec.MAX_RECORD_SIZE);
+        MrzBinaryCodec.writeHeader(buffer);
+        MrzBinaryCodec.write(MrzParser.parse(SPECIMENS[5]), buffer);
+        final MrzBinaryCodec.Reader reader = new MrzBinaryCodec.Reader(Channels.newChannel(new ByteArrayInputStream(buffer.array(), 0, buffer.position() - 3)));
+        assertTrue(reader.hasNext());
+        reader.next();
+    }
+
+    @Test
+    public void testSmallerThanSerializable() throws IOException {
+        for (String mrz : SPECIMENS) {
+            final MrzRecord record = MrzParser.parse(mrz);
+            final ByteBuffer buffer = ByteBuffer.allocate(MrzBinaryCodec.MAX_RECORD_SIZE);
+            MrzBinaryCodec.write(record, buffer);
+            assertTrue(buffer.position() < mrz.length());
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final ObjectOutputStream oos = new ObjectOutputStream(out);
+            oos.writeObject(record);
+            oos.close();
+            assertTrue(buffer.position() * 5 < out.size());
+        }
+    }
+}
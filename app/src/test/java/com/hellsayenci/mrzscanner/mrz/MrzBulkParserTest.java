@@ -0,0 +1,115 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link MrzBulkParser}.
+ */
+public class MrzBulkParserTest {
+
+    private static final String INVALID = "NOT AN MRZ";
+
+    /**
+     * @return the specimens over and over, every seventh record invalid.
+     */
+    private static CharSequence[] input(int count) {
+        final CharSequence[] result = new CharSequence[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = i % 7 == 3 ? INVALID : MrzSpecimens.ALL[i % MrzSpecimens.ALL.length];
+        }
+        return result;
+    }
+
+    private static void assertResults(CharSequence[] input, List<MrzBulkParser.Result> results) {
+        assertEquals(input.length, results.size());
+        for (int i = 0; i < input.length; i++) {
+            final MrzBulkParser.Result result = results.get(i);
+            assertEquals(i, result.index);
+            if (input[i] == INVALID) {
+                assertFalse(result.isParsed());
+                assertNull(result.record);
+                assertNotNull(result.error);
+            } else {
+                assertTrue(result.isParsed());
+                assertNull(result.error);
+                assertEquals(MrzParser.parse(input[i]).toString(), result.record.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testInputOrderAcrossSlices() {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final CharSequence[] input = input(1000);
+            // many slices, which finish in any order
+            assertResults(input, new MrzBulkParser(pool, 7).parse(input));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testOwnPool() {
+        final MrzBulkParser parser = new MrzBulkParser(2);
+        try {
+            final CharSequence[] input = input(600);
+            assertResults(input, parser.parse(input));
+        } finally {
+            parser.shutdown();
+        }
+    }
+
+    @Test
+    public void testIterable() {
+        final MrzBulkParser parser = new MrzBulkParser(2);
+        try {
+            final CharSequence[] input = input(20);
+            final List<CharSequence> list = new ArrayList<CharSequence>();
+            for (CharSequence mrz : input) {
+                list.add(mrz);
+            }
+            assertResults(input, parser.parse(list));
+            // not a collection
+            assertResults(input, parser.parse(new Iterable<CharSequence>() {
+                @Override
+                public Iterator<CharSequence> iterator() {
+                    return list.iterator();
+                }
+            }));
+        } finally {
+            parser.shutdown();
+        }
+    }
+
+    @Test
+    public void testNullAndEmpty() {
+        final MrzBulkParser parser = new MrzBulkParser(1);
+        try {
+            assertTrue(parser.parse(new CharSequence[0]).isEmpty());
+            final List<MrzBulkParser.Result> results = parser.parse(new CharSequence[]{null, MrzSpecimens.ALL[0]});
+            assertFalse(results.get(0).isParsed());
+            assertTrue(results.get(0).error instanceof IllegalArgumentException);
+            assertTrue(results.get(1).isParsed());
+        } finally {
+            parser.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSliceSize() {
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            new MrzBulkParser(pool, 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link MrzCandidateExtractor}.
+ */
+public class MrzCandidateExtractorTest {
+
+    private static final String PASSPORT = MrzSpecimens.of(MrzFormat.PASSPORT);
+    private static final String TD1 = MrzSpecimens.of(MrzFormat.MRTD_TD1);
+
+    private final MrzCandidateExtractor extractor = new MrzCandidateExtractor();
+
+    private static void assertBestFirst(List<MrzCandidateExtractor.Candidate> candidates) {
+        for (int i = 1; i < candidates.size(); i++) {
+            assertTrue(candidates.get(i - 1).score >= candidates.get(i).score);
+        }
+    }
+
+    @Test
+    public void testEverySpecimen() {
+        for (String mrz : MrzSpecimens.ALL) {
+            final List<MrzCandidateExtractor.Candidate> candidates = extractor.extract("PASSPORT\nUtopia\n" + mrz + "\n");
+            final MrzCandidateExtractor.Candidate best = candidates.get(0);
+            assertEquals(mrz, best.mrz);
+            assertEquals(MrzFormat.get(mrz), best.format);
+            assertTrue(best.isValid());
+            assertEquals(1f, best.score, 1e-6f);
+            assertEquals(2, best.line);
+            assertNull(best.symbols);
+            assertBestFirst(candidates);
+        }
+    }
+
+    @Test
+    public void testNormalized() {
+        // spaces, lower case, quotation marks read instead of fillers, empty lines
+        final String ocr = "p<utoeriksson \u00AB anna<maria<<<<<<<<<<<<<<<<<<<\n\n L898902C36 UTO7408122F1204159ZE184226B\u2039<<<<10 \n";
+        assertEquals(PASSPORT, extractor.extract(ocr).get(0).mrz);
+    }
+
+    @Test
+    public void testLongerLinesAligned() {
+        final String[] rows = TD1.split("\n");
+        // a stray character before the first row and after the last
+        final String ocr = "|" + rows[0] + "\n" + rows[1] + "\n" + rows[2] + ".";
+        final MrzCandidateExtractor.Candidate best = extractor.extract(ocr).get(0);
+        assertTrue(best.toString(), best.isValid());
+        assertEquals(TD1.substring(0, 62), best.mrz.substring(0, 62));
+    }
+
+    @Test
+    public void testFailedChecksRanked() {
+        final String broken = MrzSpecimens.replace(PASSPORT, 45 + 9, '7');
+        final List<MrzCandidateExtractor.Candidate> candidates = extractor.extract(broken + "\n" + PASSPORT);
+        assertEquals(PASSPORT, candidates.get(0).mrz);
+        boolean found = false;
+        for (MrzCandidateExtractor.Candidate c : candidates) {
+            if (c.mrz.equals(broken)) {
+                assertFalse(c.isValid());
+                assertTrue(c.score < 1f);
+                found = true;
+            }
+        }
+        assertTrue(found);
+        assertBestFirst(candidates);
+    }
+
+    @Test
+    public void testRequestedFormats() {
+        final MrzCandidateExtractor passports = new MrzCandidateExtractor(EnumSet.of(MrzFormat.PASSPORT));
+        assertTrue(passports.extract(TD1).isEmpty());
+        assertEquals(PASSPORT, passports.extract(PASSPORT).get(0).mrz);
+    }
+
+    @Test
+    public void testNothingFound() {
+        assertTrue(extractor.extract("").isEmpty());
+        assertTrue(extractor.extract("Surname\nGiven names\n").isEmpty());
+    }
+
+    @Test
+    public void testSymbols() {
+        final List<MrzOcrResult.Line> lines = new ArrayList<MrzOcrResult.Line>();
+        int top = 0;
+        for (String row : ("REPUBLIC OF UTOPIA\n" + PASSPORT).split("\n")) {
+            final List<MrzOcrResult.Symbol> symbols = new ArrayList<MrzOcrResult.Symbol>();
+            for (int i = 0; i < row.length(); i++) {
+                symbols.add(new MrzOcrResult.Symbol(row.substring(i, i + 1), i * 10, top, i * 10 + 9, top + 20, 0.9f, new String[0], new float[0]));
+            }
+            lines.add(new MrzOcrResult.Line(symbols));
+            top += 30;
+        }
+        final MrzCandidateExtractor.Candidate best = extractor.extract(new MrzOcrResult(lines)).get(0);
+        assertEquals(PASSPORT, best.mrz);
+        assertEquals(PASSPORT.length(), best.symbols.length);
+        for (int i = 0; i < PASSPORT.length(); i++) {
+            if (PASSPORT.charAt(i) == '\n') {
+                assertNull(best.symbols[i]);
+            } else {
+                assertEquals(String.valueOf(PASSPORT.charAt(i)), best.symbols[i].text);
+                assertEquals(i < 45 ? 30 : 60, best.symbols[i].top);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoFormats() {
+        new MrzCandidateExtractor(Collections.<MrzFormat>emptyList());
+    }
+}
@@ -0,0 +1,89 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link MrzConsensus}.
+ */
+public class MrzConsensusTest {
+
+    private static final String PASSPORT = MrzSpecimens.of(MrzFormat.PASSPORT);
+
+    @Test
+    public void testSingleReadingNeverDecides() {
+        final MrzConsensus consensus = new MrzConsensus();
+        assertNull(consensus.offer(PASSPORT));
+        assertEquals(PASSPORT, consensus.offer(PASSPORT));
+        assertEquals(2, consensus.getReadings());
+    }
+
+    @Test
+    public void testFusesReadingsWhichAreAllWrong() {
+        // every reading misreads a different digit of the second row
+        final String[] readings = {
+                MrzSpecimens.replace(PASSPORT, 45 + 2, '8'),
+                MrzSpecimens.replace(PASSPORT, 45 + 16, '2'),
+                MrzSpecimens.replace(PASSPORT, 45 + 22, '7')
+        };
+        final MrzConsensus consensus = new MrzConsensus();
+        for (String reading : readings) {
+            assertFalse(MrzParser.validate(reading, new MrzValidationResult()));
+        }
+        assertNull(consensus.offer(readings[0]));
+        // a tie at two positions
+        assertNull(consensus.offer(readings[1]));
+        assertEquals(PASSPORT, consensus.offer(readings[2]));
+    }
+
+    @Test
+    public void testShiftedRowAligned() {
+        // the second row read with a spurious leading character and its last character lost
+        final String shifted = PASSPORT.substring(0, 45) + "<" + PASSPORT.substring(45, PASSPORT.length() - 1);
+        final MrzConsensus consensus = new MrzConsensus();
+        consensus.offer(PASSPORT);
+        consensus.offer(PASSPORT);
+        // unaligned, half of the positions would differ and start over
+        assertEquals(PASSPORT, consensus.offer(shifted));
+        assertEquals(3, consensus.getReadings());
+    }
+
+    @Test
+    public void testOtherDocumentStartsOver() {
+        final MrzConsensus consensus = new MrzConsensus();
+        consensus.offer(PASSPORT);
+        assertEquals(PASSPORT, consensus.offer(PASSPORT));
+        final String td1 = MrzSpecimens.of(MrzFormat.MRTD_TD1);
+        assertNull(consensus.offer(td1));
+        assertEquals(1, consensus.getReadings());
+        assertEquals(td1, consensus.offer(td1));
+        // same size, but most positions differ
+        final String other = "P<D<<MUSTERMANN<<ERIKA<<<<<<<<<<<<<<<<<<<<<<\nC01X00T478D<<6408125F2702283<<<<<<<<<<<<<<<4";
+        assertNull(consensus.offer(other));
+        assertEquals(1, consensus.getReadings());
+    }
+
+    @Test
+    public void testOlderReadingsFade() {
+        final MrzConsensus consensus = new MrzConsensus(4, MrzConsensus.DEFAULT_MAX_DIFFERENCE);
+        for (int i = 0; i < 5; i++) {
+            consensus.offer(PASSPORT);
+        }
+        assertEquals(2, consensus.getReadings());
+    }
+
+    @Test
+    public void testUnknownSizeIgnored() {
+        final MrzConsensus consensus = new MrzConsensus();
+        assertNull(consensus.offer("P<UTOERIKSSON"));
+        assertEquals(0, consensus.getReadings());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidHistory() {
+        new MrzConsensus(1, MrzConsensus.DEFAULT_MAX_DIFFERENCE);
+    }
+}
@@ -0,0 +1,92 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link MrzCorrector}.
+ */
+public class MrzCorrectorTest {
+
+    private static final String PASSPORT = MrzSpecimens.of(MrzFormat.PASSPORT);
+    /**
+     * Offset of the second row of {@link #PASSPORT}.
+     */
+    private static final int ROW2 = 45;
+
+    private final MrzCorrector corrector = new MrzCorrector();
+
+    @Test
+    public void testValidUnchanged() {
+        for (String mrz : MrzSpecimens.ALL) {
+            final MrzCorrector.Result result = corrector.correct(mrz);
+            assertEquals(mrz, result.mrz);
+            assertEquals(MrzFormat.get(mrz), result.format);
+            assertTrue(result.valid);
+            assertEquals(0, result.corrections);
+            assertEquals(1f, result.confidence, 0f);
+        }
+    }
+
+    @Test
+    public void testCoercedToClass() {
+        // an O in the date of birth, a zero in the issuing country, a 5 in the surname
+        String mrz = MrzSpecimens.replace(PASSPORT, ROW2 + 15, 'O');
+        mrz = MrzSpecimens.replace(mrz, 4, '0');
+        mrz = MrzSpecimens.replace(mrz, 10, '5');
+        final MrzCorrector.Result result = corrector.correct(mrz);
+        assertEquals(PASSPORT, result.mrz);
+        assertTrue(result.valid);
+        assertEquals(3, result.corrections);
+        assertTrue(result.confidence < 1f);
+    }
+
+    @Test
+    public void testLowerCase() {
+        final MrzCorrector.Result result = corrector.correct(PASSPORT.toLowerCase());
+        assertEquals(PASSPORT, result.mrz);
+        assertTrue(result.valid);
+    }
+
+    @Test
+    public void testCheckDigitSearch() {
+        // an 8 read as B in the document number, where both are allowed
+        final String mrz = MrzSpecimens.replace(PASSPORT, ROW2 + 1, 'B');
+        final MrzCorrector.Result result = corrector.correct(mrz);
+        assertEquals(PASSPORT, result.mrz);
+        assertTrue(result.valid);
+        assertEquals(1, result.corrections);
+        assertTrue(result.confidence > 0f && result.confidence < 1f);
+
+        final MrzCorrector.Result classOnly = new MrzCorrector(0).correct(mrz);
+        assertEquals(mrz, classOnly.mrz);
+        assertFalse(classOnly.valid);
+        assertEquals(0f, classOnly.confidence, 0f);
+    }
+
+    @Test
+    public void testLowConfidenceAlternative() {
+        // a 3 read instead of an 8 in the date of birth: still a valid date, and no look-alike
+        final String mrz = MrzSpecimens.replace(PASSPORT, ROW2 + 16, '3');
+        assertFalse(corrector.correct(mrz).valid);
+        final MrzOcrResult.Symbol[] symbols = new MrzOcrResult.Symbol[mrz.length()];
+        symbols[ROW2 + 16] = new MrzOcrResult.Symbol("3", 0, 0, 10, 10, 0.5f, new String[]{"8"}, new float[]{0.4f});
+        final MrzCorrector.Result result = corrector.correct(mrz, symbols);
+        assertEquals(PASSPORT, result.mrz);
+        assertTrue(result.valid);
+        assertEquals(1, result.corrections);
+    }
+
+    @Test
+    public void testUnknownFormat() {
+        assertNull(corrector.correct("P<UTOERIKSSON"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSubstitutions() {
+        new MrzCorrector(-1);
+    }
+}
@@ -0,0 +1,115 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzDate;
+import com.hellsayenci.mrzscanner.mrz.types.MrzDocumentCode;
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+import com.hellsayenci.mrzscanner.mrz.types.MrzSex;
+
+import org.junit.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link MrzEncoder}.
+ */
+public class MrzEncoderTest {
+
+    private final MrzEncoder encoder = new MrzEncoder();
+
+    private static MrzRecord passport(String surname, String givenNames) {
+        final MrzRecord record = MrzFormat.PASSPORT.newRecord();
+        record.code = MrzDocumentCode.Passport;
+        record.code1 = 'P';
+        record.code2 = '<';
+        record.issuingCountry = "UTO";
+        record.nationality = "UTO";
+        record.documentNumber = "L898902C3";
+        record.surname = surname;
+        record.givenNames = givenNames;
+        record.dateOfBirth = new MrzDate(74, 8, 12);
+        record.expirationDate = new MrzDate(12, 4, 15);
+        record.sex = MrzSex.Female;
+        return record;
+    }
+
+    private static void assertValid(String mrz) {
+        final MrzValidationResult result = new MrzValidationResult();
+        assertTrue(mrz + ": " + result.getError(), MrzParser.validate(mrz, result));
+    }
+
+    @Test
+    public void testSpecimens() {
+        for (String mrz : MrzSpecimens.ALL) {
+            // one encoder for all formats
+            assertEquals(mrz + "\n", encoder.encode(MrzParser.parse(mrz)));
+        }
+    }
+
+    @Test
+    public void testSameAsToMrz() {
+        for (String mrz : MrzSpecimens.ALL) {
+            final MrzRecord record = MrzParser.parse(mrz);
+            assertEquals(record.toMrz(), encoder.encode(record));
+        }
+    }
+
+    @Test
+    public void testCheckDigitsComputed() {
+        final String mrz = encoder.encode(passport("M\u00FCller", "Hans Peter"));
+        assertValid(mrz);
+        final MrzRecord record = MrzParser.parse(mrz);
+        assertEquals("MUELLER", record.surname);
+        assertEquals("HANS PETER", record.givenNames);
+    }
+
+    @Test
+    public void testLongNamesShortened() {
+        final String mrz = encoder.encode(passport("Wolfeschlegelsteinhausenbergerdorff", "Hubert Blaine Adolph Charles David"));
+        assertEquals(MrzEncoder.length(MrzFormat.PASSPORT), mrz.length());
+        assertValid(mrz);
+        // the given names cut to initials first, then the surname
+        assertTrue(mrz, mrz.startsWith("P<UTOWOLFESCHLEGELSTEINHAUSENBERG<<H<B<A<C<D\n"));
+    }
+
+    @Test
+    public void testCharArrayOffset() {
+        final String mrz = MrzSpecimens.of(MrzFormat.MRTD_TD1);
+        final int length = MrzEncoder.length(MrzFormat.MRTD_TD1);
+        final char[] buffer = new char[length + 10];
+        Arrays.fill(buffer, '#');
+        assertEquals(length, encoder.encode(MrzParser.parse(mrz), buffer, 5));
+        assertEquals("#####" + mrz + "\n#####", new String(buffer));
+    }
+
+    @Test
+    public void testByteBuffer() {
+        final MrzRecord record = MrzParser.parse(MrzSpecimens.of(MrzFormat.PASSPORT));
+        final ByteBuffer small = ByteBuffer.allocate(MrzEncoder.length(MrzFormat.PASSPORT) - 1);
+        try {
+            encoder.encode(record, small);
+            fail();
+        } catch (BufferOverflowException ex) {
+            assertEquals(0, small.position());
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(200);
+        assertEquals(90, encoder.encode(record, buffer));
+        assertEquals(record.toMrz(), new String(buffer.array(), 0, 90, Charset.forName("US-ASCII")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingDate() {
+        final MrzRecord record = passport("ERIKSSON", "ANNA");
+        record.expirationDate = null;
+        encoder.encode(record);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBufferTooSmall() {
+        encoder.encode(passport("ERIKSSON", "ANNA"), new char[100], 20);
+    }
+}
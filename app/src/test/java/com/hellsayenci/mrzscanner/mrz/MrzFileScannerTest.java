@@ -0,0 +1,124 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link MrzFileScanner}, with chunks ending anywhere in the records.
+ */
+public class MrzFileScannerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Collects the records by offset.
+     */
+    private static final class Collector implements MrzFileScanner.Sink {
+        final Map<Long, String> records = new TreeMap<Long, String>();
+        int errors;
+
+        @Override
+        public synchronized void onRecord(long offset, MrzRecord record) {
+            assertNull(records.put(offset, record.toMrz()));
+        }
+
+        @Override
+        public synchronized void onError(long offset, RuntimeException error) {
+            errors++;
+        }
+    }
+
+    /**
+     * Writes every specimen a few times, mixed with other text, and returns the expected records in file order.
+     */
+    private File write(List<String> expected) throws IOException {
+        final StringBuilder sb = new StringBuilder("MRZ export\n");
+        for (int i = 0; i < 3; i++) {
+            for (String mrz : MrzSpecimens.ALL) {
+                final String[] rows = mrz.split("\n");
+                sb.append("record ").append(i).append(": ").append(rows[0]).append('\n');
+                for (int r = 1; r < rows.length; r++) {
+                    // other text around the row, and Windows line ends
+                    sb.append(rows[r]).append(i == 1 ? " <- end\r\n" : "\n");
+                }
+                sb.append("scanned 2026-10-17, lower-case note\n\n");
+                expected.add(MrzParser.parse(mrz).toMrz());
+            }
+        }
+        final File file = folder.newFile("mrz.txt");
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(sb.toString().getBytes("US-ASCII"));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void testEveryChunkSize() throws IOException {
+        final List<String> expected = new ArrayList<String>();
+        final File file = write(expected);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final Collector whole = new Collector();
+            assertEquals(expected.size(), new MrzFileScanner(pool, file.length()).scan(file, whole));
+            assertEquals(0, whole.errors);
+            assertEquals(expected, new ArrayList<String>(whole.records.values()));
+            for (long chunkSize = 1; chunkSize <= 150; chunkSize++) {
+                final Collector collector = new Collector();
+                assertEquals("chunk size " + chunkSize, expected.size(), new MrzFileScanner(pool, chunkSize).scan(file, collector));
+                assertEquals("chunk size " + chunkSize, whole.records, collector.records);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBlockCutIntoRecords() throws IOException {
+        // two passports without a line between them
+        final String passport = MrzSpecimens.ALL[5];
+        final File file = folder.newFile("block.txt");
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            out.write((passport + "\n" + passport + "\n").getBytes("US-ASCII"));
+        } finally {
+            out.close();
+        }
+        final MrzFileScanner scanner = new MrzFileScanner(2);
+        try {
+            final Collector collector = new Collector();
+            assertEquals(2, scanner.scan(file, collector));
+            assertEquals(2, collector.records.size());
+            assertTrue(collector.records.containsKey(0L));
+            assertTrue(collector.records.containsKey((long) passport.length() + 1));
+        } finally {
+            scanner.shutdown();
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        final MrzFileScanner scanner = new MrzFileScanner(1);
+        try {
+            assertEquals(0, scanner.scan(folder.newFile("empty.txt"), new Collector()));
+        } finally {
+            scanner.shutdown();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the character classes of {@link MrzLayout}, through {@link MrzFormat#countClassMismatches(CharSequence)}.
+ */
+public class MrzLayoutTest {
+
+    private static final String PASSPORT = MrzSpecimens.of(MrzFormat.PASSPORT);
+    /**
+     * Offset of the second row of {@link #PASSPORT}.
+     */
+    private static final int ROW2 = 45;
+
+    @Test
+    public void testClassOf() {
+        assertEquals(MrzLayout.CLASS_ALPHA, MrzLayout.classOf('A'));
+        assertEquals(MrzLayout.CLASS_ALPHA | MrzLayout.CLASS_SEX, MrzLayout.classOf('M'));
+        assertEquals(MrzLayout.CLASS_ALPHA | MrzLayout.CLASS_SEX, MrzLayout.classOf('X'));
+        assertEquals(MrzLayout.CLASS_DIGIT, MrzLayout.classOf('5'));
+        assertEquals(MrzLayout.CLASS_FILLER | MrzLayout.CLASS_SEX, MrzLayout.classOf('<'));
+        assertEquals(0, MrzLayout.classOf('a'));
+        assertEquals(0, MrzLayout.classOf(' '));
+        assertEquals(0, MrzLayout.classOf('\u00C4'));
+    }
+
+    @Test
+    public void testClassMask() {
+        final MrzFormat format = MrzFormat.PASSPORT;
+        final byte[] mask = format.layout.createClassMask(format.rows, format.columns);
+        assertEquals(format.rows * format.columns, mask.length);
+        // document code, name, document number, its check digit, date of birth, sex
+        assertEquals(MrzLayout.CLASS_ALPHA | MrzLayout.CLASS_FILLER, mask[1]);
+        assertEquals(MrzLayout.CLASS_ALPHA | MrzLayout.CLASS_FILLER, mask[20]);
+        assertEquals(MrzLayout.CLASS_ALPHA | MrzLayout.CLASS_DIGIT | MrzLayout.CLASS_FILLER, mask[44]);
+        assertEquals(MrzLayout.CLASS_DIGIT | MrzLayout.CLASS_FILLER, mask[44 + 9]);
+        assertEquals(MrzLayout.CLASS_DIGIT, mask[44 + 13]);
+        assertEquals(MrzLayout.CLASS_SEX, mask[44 + 20]);
+    }
+
+    @Test
+    public void testSpecimensStructurallyValid() {
+        for (String mrz : MrzSpecimens.ALL) {
+            final MrzFormat format = MrzFormat.get(mrz);
+            assertTrue(mrz, format.isStructurallyValid(mrz));
+            final char[] buffer = ("###" + mrz).toCharArray();
+            assertEquals(0, format.countClassMismatches(buffer, 3));
+        }
+    }
+
+    @Test
+    public void testMisplacedCharacters() {
+        final MrzFormat format = MrzFormat.PASSPORT;
+        // a letter in the date of birth, a digit in the issuing country and in the surname
+        assertEquals(1, format.countClassMismatches(MrzSpecimens.replace(PASSPORT, ROW2 + 15, 'O')));
+        assertEquals(1, format.countClassMismatches(MrzSpecimens.replace(PASSPORT, 4, '0')));
+        assertEquals(1, format.countClassMismatches(MrzSpecimens.replace(PASSPORT, 10, '5')));
+        // the filler fits a check digit but not a date
+        assertEquals(0, format.countClassMismatches(MrzSpecimens.replace(PASSPORT, ROW2 + 9, '<')));
+        assertEquals(1, format.countClassMismatches(MrzSpecimens.replace(PASSPORT, ROW2 + 13, '<')));
+        // sex
+        assertEquals(0, format.countClassMismatches(MrzSpecimens.replace(PASSPORT, ROW2 + 20, 'X')));
+        assertEquals(1, format.countClassMismatches(MrzSpecimens.replace(PASSPORT, ROW2 + 20, 'Q')));
+        // not MRZ characters at all
+        assertEquals(2, format.countClassMismatches(MrzSpecimens.replace(MrzSpecimens.replace(PASSPORT, 2, 'u'), ROW2, ' ')));
+        assertFalse(format.isStructurallyValid(MrzSpecimens.replace(PASSPORT, ROW2 + 1, '*')));
+    }
+
+    @Test
+    public void testCharArrayAgreesWithCharSequence() {
+        final MrzFormat format = MrzFormat.MRTD_TD1;
+        final String td1 = MrzSpecimens.of(format);
+        for (int i = 0; i < td1.length(); i++) {
+            if (td1.charAt(i) == '\n') {
+                continue;
+            }
+            for (char c : new char[]{'A', 'M', '7', '<', 'a'}) {
+                final String mrz = MrzSpecimens.replace(td1, i, c);
+                assertEquals(mrz, format.countClassMismatches(mrz), format.countClassMismatches(mrz.toCharArray(), 0));
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link MrzParseCache}.
+ */
+public class MrzParseCacheTest {
+
+    @Test
+    public void testHitReturnsEqualRecord() {
+        final MrzParseCache cache = new MrzParseCache(4);
+        for (String mrz : MrzSpecimens.ALL) {
+            final MrzRecord first = cache.parse(mrz);
+            final MrzRecord second = cache.parse(mrz + "\n");
+            assertSame(first.getClass(), second.getClass());
+            assertEquals(first.toString(), second.toString());
+            assertEquals(first.toMrz(), second.toMrz());
+        }
+        assertEquals(MrzSpecimens.ALL.length, cache.getHits());
+        assertEquals(MrzSpecimens.ALL.length, cache.getMisses());
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void testCallersGetOwnCopy() {
+        final MrzParseCache cache = new MrzParseCache(4);
+        final String mrz = MrzSpecimens.ALL[0];
+        final MrzRecord first = cache.parse(mrz);
+        final String expected = first.toString();
+        first.surname = "CHANGED";
+        first.validComposite = false;
+        final MrzRecord second = cache.parse(mrz);
+        assertNotSame(first, second);
+        assertEquals(expected, second.toString());
+        assertTrue(second.validComposite);
+    }
+
+    @Test
+    public void testFailureCached() {
+        final MrzParseCache cache = new MrzParseCache(4);
+        RuntimeException first = null;
+        try {
+            cache.parse("NOT AN MRZ");
+            fail();
+        } catch (RuntimeException ex) {
+            first = ex;
+        }
+        try {
+            cache.parse("NOT AN MRZ");
+            fail();
+        } catch (RuntimeException ex) {
+            assertSame(first, ex);
+        }
+        assertEquals(1, cache.getHits());
+    }
+}
@@ -0,0 +1,261 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.records.MRP;
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link MrzRecordView} against {@link MrzParser#parse(CharSequence)}.
+ */
+public class MrzRecordViewTest {
+
+    private static final String PASSPORT = MrzSpecimens.of(MrzFormat.PASSPORT);
+
+    /**
+     * Replacements tried at every position: digits, letters, the filler and characters which are not MRZ characters.
+     */
+    private static final char[] REPLACEMENTS = {'0', '7', 'M', 'X', '<', 'a', ' '};
+
+    private static void assertSameRecord(String mrz, MrzRecord expected, MrzRecord actual) {
+        assertEquals(mrz, expected.toString(), actual.toString());
+        assertEquals(mrz, expected.validDocumentNumber, actual.validDocumentNumber);
+        assertEquals(mrz, expected.validDateOfBirth, actual.validDateOfBirth);
+        assertEquals(mrz, expected.validExpirationDate, actual.validExpirationDate);
+        assertEquals(mrz, expected.validComposite, actual.validComposite);
+        if (expected instanceof MRP) {
+            assertEquals(mrz, ((MRP) expected).validPersonalNumber, ((MRP) actual).validPersonalNumber);
+        }
+    }
+
+    /**
+     * @return true if all check digits of the record are valid, dates included.
+     */
+    private static boolean isValid(MrzRecord record) {
+        final MrzLayout layout = record.format.layout;
+        for (int i = 0; i < layout.size(); i++) {
+            if (layout.get(i).checkDigit != null && !record.isValid(layout.get(i).field)) {
+                return false;
+            }
+        }
+        return record.validComposite;
+    }
+
+    /**
+     * @return true if the range lies in a field covered by a check digit, the composite one included.
+     */
+    private static boolean isChecked(MrzLayout layout, MrzRange range) {
+        for (int i = 0; i < layout.size(); i++) {
+            if (layout.get(i).checkDigit != null && contains(layout.get(i).range, range)) {
+                return true;
+            }
+        }
+        for (int i = 0; i < layout.compositeSize(); i++) {
+            if (contains(layout.getComposite(i), range)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(MrzRange outer, MrzRange inner) {
+        return outer.row == inner.row && outer.column <= inner.column && inner.columnTo <= outer.columnTo;
+    }
+
+    /**
+     * Compares the view of the record with the parsed record, or the exceptions thrown by both.
+     */
+    private static void assertSameAsParse(String mrz) {
+        MrzRecord expected = null;
+        RuntimeException expectedError = null;
+        try {
+            expected = MrzParser.parse(mrz);
+        } catch (RuntimeException ex) {
+            expectedError = ex;
+        }
+        final MrzRecordView view;
+        try {
+            view = new MrzRecordView(mrz);
+        } catch (MrzParseException ex) {
+            // the constructor checks only the characters covered by check digits
+            assertTrue(mrz, expectedError instanceof MrzParseException);
+            assertEquals(mrz, expectedError.getMessage(), ex.getMessage());
+            assertEquals(mrz, ((MrzParseException) expectedError).range.toString(), ex.range.toString());
+            assertTrue(mrz, isChecked(ex.format.layout, ex.range));
+            return;
+        }
+        if (expectedError instanceof MrzParseException) {
+            assertFalse(mrz, isChecked(view.getFormat().layout, ((MrzParseException) expectedError).range));
+        }
+        final MrzRecord actual;
+        try {
+            actual = view.toRecord();
+        } catch (RuntimeException ex) {
+            assertNotNull(mrz, expectedError);
+            assertEquals(mrz, expectedError.getClass(), ex.getClass());
+            assertEquals(mrz, expectedError.getMessage(), ex.getMessage());
+            return;
+        }
+        assertNull(mrz, expectedError);
+        assertSameRecord(mrz, expected, actual);
+        assertEquals(mrz, isValid(expected), view.isValid());
+    }
+
+    @Test
+    public void testSpecimens() {
+        for (String mrz : MrzSpecimens.ALL) {
+            final MrzRecordView view = new MrzRecordView(mrz);
+            final MrzRecord expected = MrzParser.parse(mrz);
+            assertEquals(expected.format, view.getFormat());
+            assertTrue(mrz, view.isValid());
+            assertTrue(mrz, view.isValidComposite());
+            assertEquals(expected.code, view.getCode());
+            assertEquals(expected.code1, view.getCode1());
+            assertEquals(expected.code2, view.getCode2());
+            assertEquals(expected.issuingCountry, view.getIssuingCountry());
+            assertEquals(expected.documentNumber, view.getDocumentNumber());
+            assertEquals(expected.nationality, view.getNationality());
+            assertEquals(expected.surname, view.getSurname());
+            assertEquals(expected.givenNames, view.getGivenNames());
+            assertEquals(expected.dateOfBirth, view.getDateOfBirth());
+            assertEquals(expected.expirationDate, view.getExpirationDate());
+            assertEquals(expected.sex, view.getSex());
+            assertSameRecord(mrz, expected, view.toRecord());
+        }
+    }
+
+    @Test
+    public void testCheckDigitCorruptions() {
+        for (String mrz : MrzSpecimens.ALL) {
+            final MrzLayout layout = MrzFormat.get(mrz).layout;
+            final int rowStride = mrz.indexOf('\n') + 1;
+            for (int i = 0; i <= layout.size(); i++) {
+                final MrzRange checkDigit = i < layout.size() ? layout.get(i).checkDigit : layout.compositeCheckDigit;
+                if (checkDigit == null) {
+                    continue;
+                }
+                for (char c = '0'; c <= '9'; c++) {
+                    final String corrupted = MrzSpecimens.replace(mrz, checkDigit.row * rowStride + checkDigit.column, c);
+                    assertSameAsParse(corrupted);
+                    if (i < layout.size() && !corrupted.equals(mrz)) {
+                        assertFalse(corrupted, new MrzRecordView(corrupted).isValid(layout.get(i).field));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCorruptions() {
+        for (String mrz : MrzSpecimens.ALL) {
+            for (int i = 0; i < mrz.length(); i++) {
+                if (mrz.charAt(i) == '\n') {
+                    continue;
+                }
+                for (char c : REPLACEMENTS) {
+                    assertSameAsParse(MrzSpecimens.replace(mrz, i, c));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidCharacterInCheckedField() {
+        // the document number
+        final String mrz = MrzSpecimens.replace(PASSPORT, 45 + 3, 'a');
+        try {
+            new MrzRecordView(mrz);
+            fail();
+        } catch (MrzParseException ex) {
+            assertEquals(new MrzRange(3, 4, 1).toString(), ex.range.toString());
+        }
+        try {
+            MrzParser.parse(mrz);
+            fail();
+        } catch (MrzParseException ex) {
+            assertEquals(new MrzRange(3, 4, 1).toString(), ex.range.toString());
+        }
+    }
+
+    @Test
+    public void testInvalidCharacterInNameDecodedLazily() {
+        final MrzRecordView view = new MrzRecordView(MrzSpecimens.replace(PASSPORT, 10, 'a'));
+        assertEquals("L898902C3", view.getDocumentNumber());
+        try {
+            view.getSurname();
+            fail();
+        } catch (MrzParseException ex) {
+            assertEquals(new MrzRange(10, 11, 0).toString(), ex.range.toString());
+        }
+    }
+
+    @Test
+    public void testIsValid() {
+        final MrzRecordView view = new MrzRecordView(PASSPORT);
+        assertTrue(view.isValid(MrzField.DOCUMENT_NUMBER));
+        assertTrue(view.isValid(MrzField.DATE_OF_BIRTH));
+        assertTrue(view.isValid(MrzField.EXPIRATION_DATE));
+        assertTrue(view.isValid(MrzField.PERSONAL_NUMBER));
+        final MrzRecordView broken = new MrzRecordView(MrzSpecimens.replace(PASSPORT, 45 + 19, '3'));
+        assertTrue(broken.isValid(MrzField.DOCUMENT_NUMBER));
+        assertFalse(broken.isValid(MrzField.DATE_OF_BIRTH));
+        assertFalse(broken.isValidComposite());
+        assertFalse(broken.isValid());
+    }
+
+    @Test
+    public void testIsValidOfUncheckedField() {
+        final MrzRecordView view = new MrzRecordView(PASSPORT);
+        for (MrzField field : new MrzField[]{MrzField.NATIONALITY, MrzField.NAME, MrzField.SEX, MrzField.OPTIONAL}) {
+            try {
+                view.isValid(field);
+                fail(field.toString());
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+        try {
+            // no personal number in TD1
+            new MrzRecordView(MrzSpecimens.of(MrzFormat.MRTD_TD1)).isValid(MrzField.PERSONAL_NUMBER);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testGetRaw() {
+        final MrzRecordView view = new MrzRecordView(PASSPORT);
+        final char[] buffer = new char[20];
+        Arrays.fill(buffer, '#');
+        // the characters followed by the check digit
+        assertEquals(10, view.getRaw(MrzField.DOCUMENT_NUMBER, buffer, 2));
+        assertEquals("##L898902C36########", new String(buffer));
+        assertEquals(7, view.getRaw(MrzField.DATE_OF_BIRTH, buffer, 0));
+        assertEquals("7408122", new String(buffer, 0, 7));
+        // no check digit
+        assertEquals(3, view.getRaw(MrzField.NATIONALITY, buffer, 0));
+        assertEquals("UTO", new String(buffer, 0, 3));
+        // no such field
+        assertEquals(0, new MrzRecordView(MrzSpecimens.of(MrzFormat.MRTD_TD1)).getRaw(MrzField.PERSONAL_NUMBER, buffer, 0));
+    }
+
+    @Test
+    public void testCharArray() {
+        final String td1 = MrzSpecimens.of(MrzFormat.MRTD_TD1);
+        final char[] buffer = ("###" + td1 + "###").toCharArray();
+        final MrzRecordView view = new MrzRecordView(buffer, 3, td1.length());
+        assertEquals(MrzFormat.MRTD_TD1, view.getFormat());
+        assertEquals(td1, view.getMrz().toString());
+        assertSameRecord(td1, MrzParser.parse(td1), view.toRecord());
+    }
+
+    @Test(expected = MrzParseException.class)
+    public void testUnknownFormat() {
+        new MrzRecordView(PASSPORT.substring(1));
+    }
+}
@@ -0,0 +1,46 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+/**
+ * Valid specimen records of every {@link MrzFormat}, shared by the tests.
+ */
+final class MrzSpecimens {
+
+    private MrzSpecimens() {
+    }
+
+    /**
+     * One specimen of every format, in the order of {@link MrzFormat#values()}; all check digits and dates are valid.
+     */
+    static final String[] ALL = {
+            "I<UTOD231458907<<<<<<<<<<<<<<<\n7408122F1204159UTO<<<<<<<<<<<6\nERIKSSON<<ANNA<MARIA<<<<<<<<<<",
+            "IDFRADOUEL<<<<<<<<<<<<<<<<<<<<932013\n0506932020438CHRISTIANE<<NI2906209F3",
+            "V<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<\nL8988901C4XXX4009078F9612109<<<<<<<<",
+            "I<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<\nD231458907UTO7408122F1204159<<<<<<<6",
+            "V<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<<<<<<<<<\nL8988901C4XXX4009078F96121096ZE184226B<<<<<<",
+            "P<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<<<<<<<<<\nL898902C36UTO7408122F1204159ZE184226B<<<<<10",
+            "I<SVKNOVAK<<JAN<<<<<<<<<<<<<<<<<<<\nAB12345671SVK8001014M2501017<<<<<<"
+    };
+
+    /**
+     * @return the specimen of given format.
+     */
+    static String of(MrzFormat format) {
+        for (String mrz : ALL) {
+            if (MrzFormat.get(mrz) == format) {
+                return mrz;
+            }
+        }
+        throw new IllegalArgumentException("Parameter format: invalid value " + format + ": no specimen");
+    }
+
+    /**
+     * @return the record with the character at given index replaced.
+     */
+    static String replace(String mrz, int index, char c) {
+        final char[] chars = mrz.toCharArray();
+        chars[index] = c;
+        return new String(chars);
+    }
+}
@@ -0,0 +1,49 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link MrzTransliterator}, through {@link MrzParser#toMrz(String, int)}.
+ */
+public class MrzTransliteratorTest {
+
+    @Test
+    public void testLatin() {
+        assertEquals("SEDIM<NA<KONARI<<<<<", MrzParser.toMrz("Sed\u00EDm na kon\u00E1ri", 20));
+        assertEquals("MUELLER", MrzParser.toMrz("M\u00FCller", -1));
+        assertEquals("PAT<<MAT", MrzParser.toMrz("Pat, Mat", 8));
+        assertEquals("FOO<", MrzParser.toMrz("foo/bar baz", 4));
+        assertEquals("ONEIL", MrzParser.toMrz("O'Neil", -1));
+        assertEquals("LODZ", MrzParser.toMrz("\u0141\u00F3d\u017A", -1));
+    }
+
+    @Test
+    public void testExpansionTruncated() {
+        assertEquals("SHC", MrzParser.toMrz("\u0429", 3));
+    }
+
+    @Test
+    public void testNoBreakSpaceRemoved() {
+        assertEquals("AB", MrzParser.toMrz("A\u00A0B", -1));
+    }
+
+    @Test
+    public void testGreekAndCyrillic() {
+        assertEquals("ALEXANDROS", MrzParser.toMrz("\u0391\u03BB\u03AD\u03BE\u03B1\u03BD\u03B4\u03C1\u03BF\u03C2", -1));
+        assertEquals("SHCHERBAKOV", MrzParser.toMrz("\u0429\u0435\u0440\u0431\u0430\u043A\u043E\u0432", -1));
+    }
+
+    @Test
+    public void testPrecomposedGreek() {
+        // U+1F08 is Alpha with psili, above the table, its base letter within it
+        assertEquals("ALEXANDROS", MrzParser.toMrz("\u1F08\u03BB\u03AD\u03BE\u03B1\u03BD\u03B4\u03C1\u03BF\u03C2", -1));
+        assertEquals("OR", MrzParser.toMrz("\u1F7C\u1FE5", -1));
+    }
+
+    @Test
+    public void testOtherScriptsRemoved() {
+        assertEquals("AB", MrzParser.toMrz("A\u4E2D\u2019B", -1));
+    }
+}
@@ -0,0 +1,121 @@
+package com.hellsayenci.mrzscanner.mrz;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link MrzParser#validate(CharSequence, MrzValidationResult)}.
+ */
+public class MrzValidationResultTest {
+
+    private final MrzValidationResult result = new MrzValidationResult();
+
+    @Test
+    public void testSpecimensValid() {
+        final Set<MrzFormat> formats = EnumSet.noneOf(MrzFormat.class);
+        for (String mrz : MrzSpecimens.ALL) {
+            assertTrue(mrz + ": " + result, MrzParser.validate(mrz, result));
+            assertTrue(result.isWellFormed());
+            assertEquals(0, result.getFailed());
+            assertNull(result.getRange());
+            assertTrue(new MrzParser((CharSequence) mrz).isValid());
+            formats.add(result.getFormat());
+        }
+        assertEquals(EnumSet.allOf(MrzFormat.class), formats);
+    }
+
+    @Test
+    public void testUnknownFormat() {
+        assertFalse(MrzParser.validate("P<UTO\nL898", result));
+        assertEquals(MrzValidationResult.Error.UNKNOWN_FORMAT, result.getError());
+        assertNull(result.getFormat());
+        assertFalse(result.isWellFormed());
+    }
+
+    @Test
+    public void testCheckDigit() {
+        // the document number check digit of the passport
+        final String mrz = MrzSpecimens.replace(MrzSpecimens.of(MrzFormat.PASSPORT), 45 + 9, '7');
+        assertFalse(MrzParser.validate(mrz, result));
+        assertEquals(MrzValidationResult.Error.CHECK_DIGIT, result.getError());
+        assertTrue(result.isFailed(MrzField.DOCUMENT_NUMBER));
+        assertEquals(new MrzRange(0, 9, 1).toString(), result.getRange(MrzField.DOCUMENT_NUMBER).toString());
+        assertTrue((result.getFailed() & MrzValidationResult.COMPOSITE) != 0);
+        assertTrue(result.isWellFormed());
+        assertFalse(MrzParser.parse(mrz).validDocumentNumber);
+    }
+
+    @Test
+    public void testInvalidDate() {
+        // month 13 of the expiration date, with a matching check digit
+        String mrz = MrzSpecimens.of(MrzFormat.PASSPORT);
+        mrz = mrz.substring(0, 45 + 21) + "121315" + MrzParser.computeCheckDigitChar("121315") + mrz.substring(45 + 28);
+        assertFalse(MrzParser.validate(mrz, result));
+        assertEquals(MrzValidationResult.Error.INVALID_DATE, result.getError());
+        assertTrue(result.isFailed(MrzField.EXPIRATION_DATE));
+        assertTrue(result.isWellFormed());
+    }
+
+    @Test
+    public void testInvalidSex() {
+        final String mrz = MrzSpecimens.replace(MrzSpecimens.of(MrzFormat.PASSPORT), 45 + 20, 'Q');
+        assertFalse(MrzParser.validate(mrz, result));
+        assertEquals(MrzValidationResult.Error.INVALID_SEX, result.getError());
+        assertFalse(result.isWellFormed());
+    }
+
+    @Test
+    public void testResultReused() {
+        assertFalse(MrzParser.validate(MrzSpecimens.replace(MrzSpecimens.ALL[0], 3, 'a'), result));
+        assertTrue(MrzParser.validate(MrzSpecimens.ALL[0], result));
+        assertEquals(0, result.getFailed());
+        assertTrue(result.isWellFormed());
+    }
+
+    /**
+     * Every character of every specimen is replaced in turn, and {@link MrzValidationResult#isWellFormed()} must tell exactly
+     * whether the parser accepts the result.
+     */
+    @Test
+    public void testWellFormedMatchesParse() {
+        final char[] replacements = {'a', '*', ' ', 'Q', 'M', '0', '<'};
+        int parsed = 0;
+        int rejected = 0;
+        for (String specimen : MrzSpecimens.ALL) {
+            for (int i = 0; i < specimen.length(); i++) {
+                if (specimen.charAt(i) == '\n') {
+                    continue;
+                }
+                for (char c : replacements) {
+                    final String mrz = MrzSpecimens.replace(specimen, i, c);
+                    MrzParser.validate(mrz, result);
+                    boolean parses;
+                    try {
+                        MrzParser.parse(mrz);
+                        parses = true;
+                    } catch (RuntimeException ex) {
+                        parses = false;
+                    }
+                    assertEquals(mrz + ": " + result, parses, result.isWellFormed());
+                    if (parses) {
+                        parsed++;
+                        if (!MrzParser.isValid(c)) {
+                            // an invalid character the parser skips is reported all the same
+                            assertEquals(MrzValidationResult.Error.INVALID_CHARACTER, result.getError());
+                        }
+                    } else {
+                        rejected++;
+                    }
+                }
+            }
+        }
+        assertTrue(parsed > 0);
+        assertTrue(rejected > 0);
+    }
+}
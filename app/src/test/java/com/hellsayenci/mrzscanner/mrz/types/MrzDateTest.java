@@ -0,0 +1,134 @@
+package com.hellsayenci.mrzscanner.mrz.types;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the century policies and the date arithmetic of {@link MrzDate}.
+ */
+public class MrzDateTest {
+
+    private static final int TODAY = 20261017;
+
+    @Test
+    public void testPast() {
+        assertEquals(1974, MrzDate.resolve(74, 8, 12, MrzDate.Century.PAST, TODAY));
+        assertEquals(2026, MrzDate.resolve(26, 10, 17, MrzDate.Century.PAST, TODAY));
+        // tomorrow is not a date of birth yet
+        assertEquals(1926, MrzDate.resolve(26, 10, 18, MrzDate.Century.PAST, TODAY));
+        assertEquals(2000, MrzDate.resolve(0, 1, 1, MrzDate.Century.PAST, TODAY));
+    }
+
+    @Test
+    public void testFuture() {
+        assertEquals(2035, MrzDate.resolve(35, 1, 1, MrzDate.Century.FUTURE, TODAY));
+        assertEquals(2012, MrzDate.resolve(12, 4, 15, MrzDate.Century.FUTURE, TODAY));
+        assertEquals(2076, MrzDate.resolve(76, 1, 1, MrzDate.Century.FUTURE, TODAY));
+        assertEquals(1977, MrzDate.resolve(77, 1, 1, MrzDate.Century.FUTURE, TODAY));
+    }
+
+    @Test
+    public void testSliding() {
+        assertEquals(1947, MrzDate.resolve(47, 1, 1, MrzDate.Century.SLIDING, TODAY));
+        assertEquals(2045, MrzDate.resolve(45, 12, 31, MrzDate.Century.SLIDING, TODAY));
+        // exactly 80 years back is the boundary of the window
+        assertEquals(1946, MrzDate.resolve(46, 10, 17, MrzDate.Century.SLIDING, TODAY));
+        assertEquals(2046, MrzDate.resolve(46, 10, 16, MrzDate.Century.SLIDING, TODAY));
+    }
+
+    @Test
+    public void testInvalidYear() {
+        assertEquals(-1, MrzDate.resolve(-1, 1, 1, MrzDate.Century.PAST, TODAY));
+        final MrzDate date = new MrzDate(-1, 1, 1);
+        assertFalse(date.isDateValid());
+        assertEquals(-1, date.toPacked());
+        assertEquals("", date.toString());
+    }
+
+    @Test
+    public void testEpochDay() {
+        assertEquals(19700101, MrzDate.fromEpochDay(0));
+        assertEquals(19691231, MrzDate.fromEpochDay(-1));
+        assertEquals(20000301, MrzDate.fromEpochDay(11017));
+        assertEquals(19000301, MrzDate.fromEpochDay(-25508));
+        for (int day = -60000; day < 60000; day += 7) {
+            final MrzDate date = MrzDate.fromPacked(MrzDate.fromEpochDay(day));
+            assertTrue(date.isDateValid());
+            assertEquals(day, date.toEpochDay());
+        }
+    }
+
+    @Test
+    public void testLeapYears() {
+        assertTrue(MrzDate.fromPacked(20000229).isDateValid());
+        assertFalse(MrzDate.fromPacked(19000229).isDateValid());
+        assertTrue(MrzDate.fromPacked(20240229).isDateValid());
+        assertFalse(MrzDate.fromPacked(20230229).isDateValid());
+        assertFalse(MrzDate.fromPacked(20230431).isDateValid());
+    }
+
+    @Test
+    public void testFormat() {
+        final MrzDate date = MrzDate.fromPacked(19740812);
+        assertEquals("1974-08-12", date.toString());
+        assertEquals("740812", date.toMrz());
+        assertEquals("050607", new MrzDate(5, 6, 7).toMrz());
+        // values which do not fit are written as they are
+        assertEquals("-10102", new MrzDate(-1, 1, 2).toMrz());
+        assertEquals("0113201", new MrzDate(1, 13, 201).toMrz());
+    }
+
+    @Test
+    public void testOrder() {
+        final MrzDate date1999 = MrzDate.fromPacked(19991231);
+        final MrzDate date2001 = MrzDate.fromPacked(20010101);
+        assertTrue(date1999.compareTo(date2001) < 0);
+        assertTrue(date2001.compareTo(date1999) > 0);
+        assertEquals(0, date1999.compareTo(MrzDate.fromPacked(19991231)));
+        assertEquals(date1999, MrzDate.fromPacked(19991231));
+        assertFalse(date1999.equals(MrzDate.fromPacked(20991231)));
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+        final MrzDate date = new MrzDate(74, 8, 12, "740812", MrzDate.Century.PAST);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(date);
+        oos.close();
+        final MrzDate result = (MrzDate) new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())).readObject();
+        assertEquals(date, result);
+        assertEquals(19740812, result.toPacked());
+        assertEquals(0, date.compareTo(result));
+        assertEquals("1974-08-12", result.toString());
+    }
+
+    /**
+     * new MrzDate(74, 8, 12, "740812") serialized by the class before the century was resolved on creation.
+     */
+    private static final String LEGACY_SERIALIZED = "aced00057372002c636f6d2e68656c6c736179656e63692e6d727a7363616e6e65722e6d727a2e74797065732e4d727a"
+            + "4461746500000000000000010200054900036461795a000b697356616c6964446174654900056d6f6e74684900047965"
+            + "61724c00036d727a7400124c6a6176612f6c616e672f537472696e673b78700000000c01000000080000004a74000637"
+            + "3430383132";
+
+    @Test
+    public void testLegacySerialization() throws IOException, ClassNotFoundException {
+        final byte[] bytes = new byte[LEGACY_SERIALIZED.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(LEGACY_SERIALIZED.substring(2 * i, 2 * i + 2), 16);
+        }
+        final MrzDate result = (MrzDate) new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+        assertEquals(1974, result.fullYear);
+        assertEquals(19740812, result.toPacked());
+        assertEquals(new MrzDate(74, 8, 12, "740812"), result);
+        assertEquals("1974-08-12", result.toString());
+        assertTrue(result.isDateValid());
+    }
+}
@@ -0,0 +1,134 @@
+package com.hellsayenci.mrzscanner.mrz.types;
+
+import com.hellsayenci.mrzscanner.mrz.MrzParseException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the format detection of {@link MrzFormat#find(CharSequence)} and {@link MrzFormat#get(CharSequence)}.
+ */
+public class MrzFormatTest {
+
+    /**
+     * @return a MRZ of given size whose first row starts with given prefix, the rest filled with fillers.
+     */
+    private static String mrz(String prefix, int rows, int columns) {
+        final StringBuilder sb = new StringBuilder(prefix);
+        for (int r = 0; r < rows; r++) {
+            while (sb.length() < r * (columns + 1) + columns) {
+                sb.append('<');
+            }
+            if (r < rows - 1) {
+                sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the first characters which select given format among the formats of its size.
+     */
+    private static String prefix(MrzFormat format) {
+        switch (format) {
+            case MRV_VISA_A:
+            case MRV_VISA_B:
+                return "V<UTO";
+            case FRENCH_ID:
+                return "IDFRA";
+            default:
+                return "I<UTO";
+        }
+    }
+
+    private static void assertFormat(MrzFormat expected, String mrz) {
+        assertEquals(mrz, expected, MrzFormat.find(mrz));
+        assertEquals(mrz, expected, MrzFormat.get(mrz));
+        assertEquals(mrz, expected, MrzFormat.get(new StringBuilder(mrz)));
+    }
+
+    private static void assertUnknown(String mrz) {
+        assertNull(mrz, MrzFormat.find(mrz));
+        try {
+            MrzFormat.get(mrz);
+            fail(mrz);
+        } catch (MrzParseException ex) {
+            assertNull(ex.format);
+        }
+    }
+
+    @Test
+    public void testSizes() {
+        assertFormat(MrzFormat.MRTD_TD1, mrz("I<UTO", 3, 30));
+        assertFormat(MrzFormat.MRTD_TD2, mrz("I<UTO", 2, 36));
+        assertFormat(MrzFormat.PASSPORT, mrz("P<UTO", 2, 44));
+        assertFormat(MrzFormat.SLOVAK_ID_234, mrz("I<SVK", 2, 34));
+    }
+
+    @Test
+    public void testSameSizeToldApartByPrefix() {
+        // 2x36
+        assertFormat(MrzFormat.MRV_VISA_B, mrz("V<UTO", 2, 36));
+        assertFormat(MrzFormat.MRV_VISA_B, mrz("VD", 2, 36));
+        assertFormat(MrzFormat.FRENCH_ID, mrz("IDFRA", 2, 36));
+        assertFormat(MrzFormat.MRTD_TD2, mrz("IDFRB", 2, 36));
+        assertFormat(MrzFormat.MRTD_TD2, mrz("IDFR", 2, 36));
+        assertFormat(MrzFormat.MRTD_TD2, mrz("AC<UTO", 2, 36));
+        // 2x44
+        assertFormat(MrzFormat.MRV_VISA_A, mrz("V<UTO", 2, 44));
+        assertFormat(MrzFormat.PASSPORT, mrz("IDFRA", 2, 44));
+        assertFormat(MrzFormat.PASSPORT, mrz("<", 2, 44));
+        // the prefix checks apply only to their size
+        assertFormat(MrzFormat.MRTD_TD1, mrz("V<UTO", 3, 30));
+        assertFormat(MrzFormat.MRTD_TD1, mrz("IDFRA", 3, 30));
+    }
+
+    @Test
+    public void testTrailingNewLinesIgnored() {
+        for (MrzFormat format : MrzFormat.values()) {
+            final String mrz = mrz(prefix(format), format.rows, format.columns);
+            assertFormat(format, mrz);
+            assertFormat(format, mrz + "\n");
+            assertFormat(format, mrz + "\n\n");
+        }
+    }
+
+    @Test
+    public void testUnequalRows() {
+        final String passport = mrz("P<UTO", 2, 44);
+        assertUnknown(passport + "<");
+        assertUnknown(passport.substring(1));
+        assertUnknown(passport.replace("\n", "\n\n"));
+        assertUnknown("\n" + passport);
+        try {
+            MrzFormat.get(passport + "<");
+            fail();
+        } catch (MrzParseException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("Different row lengths"));
+        }
+    }
+
+    @Test
+    public void testUnknownSizes() {
+        assertUnknown(mrz("P<UTO", 2, 40));
+        assertUnknown(mrz("P<UTO", 1, 44));
+        assertUnknown(mrz("I<UTO", 4, 30));
+        assertUnknown(mrz("I<UTO", 3, 36));
+        assertUnknown(mrz("P<UTO", 2, 100));
+        assertUnknown(mrz("I", 3, 5));
+        try {
+            MrzFormat.get(mrz("P<UTO", 2, 40));
+            fail();
+        } catch (MrzParseException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("Unknown format"));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        assertUnknown("");
+        assertUnknown("\n");
+        assertUnknown("\n\n");
+    }
+}
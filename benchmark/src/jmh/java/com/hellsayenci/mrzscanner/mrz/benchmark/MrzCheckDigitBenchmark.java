@@ -0,0 +1,45 @@
+package com.hellsayenci.mrzscanner.mrz.benchmark;
+
+import com.hellsayenci.mrzscanner.mrz.MrzParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MrzParser#computeCheckDigit(String)} over document numbers, dates and composite-length strings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MrzCheckDigitBenchmark {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ<";
+
+    private final String[] values = new String[MrzCorpus.SIZE];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(0);
+        final int[] lengths = {6, 9, 14, 39};
+        for (int i = 0; i < values.length; i++) {
+            final char[] value = new char[lengths[i % lengths.length]];
+            for (int j = 0; j < value.length; j++) {
+                value[j] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            }
+            values[i] = new String(value);
+        }
+    }
+
+    @Benchmark
+    public int computeCheckDigit() {
+        return MrzParser.computeCheckDigit(values[next++ & (MrzCorpus.SIZE - 1)]);
+    }
+}
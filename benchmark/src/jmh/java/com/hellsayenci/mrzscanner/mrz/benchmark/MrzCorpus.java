@@ -0,0 +1,140 @@
+package com.hellsayenci.mrzscanner.mrz.benchmark;
+
+import com.hellsayenci.mrzscanner.mrz.MrzParser;
+import com.hellsayenci.mrzscanner.mrz.MrzRecord;
+import com.hellsayenci.mrzscanner.mrz.records.MRP;
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+
+import java.util.Random;
+
+/**
+ * Benchmark inputs: ICAO specimen records of every {@link MrzFormat} and deterministic OCR-like corruptions of them.
+ */
+final class MrzCorpus {
+
+    /**
+     * Number of records in every corpus; a power of two so that the benchmarks can cycle through it with a mask.
+     */
+    static final int SIZE = 1024;
+
+    private MrzCorpus() {
+    }
+
+    /**
+     * @return a specimen record of given format, rows separated by \n.
+     */
+    static String specimen(MrzFormat format) {
+        switch (format) {
+            case MRTD_TD1:
+                return "I<UTOD231458907<<<<<<<<<<<<<<<\n7408122F1204159UTO<<<<<<<<<<<6\nERIKSSON<<ANNA<MARIA<<<<<<<<<<";
+            case FRENCH_ID:
+                return "IDFRADOUEL<<<<<<<<<<<<<<<<<<<<932013\n0506932020438CHRISTIANE<<NI2906209F3";
+            case MRV_VISA_B:
+                return "V<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<\nL8988901C4XXX4009078F9612109<<<<<<<<";
+            case MRTD_TD2:
+                return "I<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<\nD231458907UTO7408122F1204159<<<<<<<6";
+            case MRV_VISA_A:
+                return "V<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<<<<<<<<<\nL8988901C4XXX4009078F96121096ZE184226B<<<<<<";
+            case PASSPORT:
+                return "P<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<<<<<<<<<\nL898902C36UTO7408122F1204159ZE184226B<<<<<10";
+            case SLOVAK_ID_234:
+                return "I<SVKNOVAK<<JAN<<<<<<<<<<<<<<<<<<<\nAB12345671SVK8001014M2501017<<<<<<";
+            default:
+                throw new IllegalArgumentException("Parameter format: invalid value " + format + ": no specimen");
+        }
+    }
+
+    /**
+     * Checks that the specimens of all formats parse to their format with every check digit valid, so that the uncorrupted
+     * corpus never takes the failed-check path.
+     *
+     * @throws IllegalStateException if a specimen is broken.
+     */
+    static void checkSpecimens() {
+        for (MrzFormat format : MrzFormat.values()) {
+            final MrzRecord record = MrzParser.parse(specimen(format));
+            final boolean valid = record.validDocumentNumber && record.validDateOfBirth && record.validExpirationDate
+                    && record.validComposite && (!(record instanceof MRP) || ((MRP) record).validPersonalNumber);
+            if (record.format != format || !valid) {
+                throw new IllegalStateException("Specimen of " + format + " fails a check: " + record);
+            }
+        }
+    }
+
+    /**
+     * @param format the format of the records.
+     * @param corrupted if false, all records are the specimen; if true, every record has OCR-like errors.
+     * @return {@link #SIZE} records.
+     */
+    static String[] records(MrzFormat format, boolean corrupted) {
+        final String specimen = specimen(format);
+        final Random random = new Random(format.ordinal());
+        final String[] result = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            result[i] = corrupted ? corrupt(specimen, random) : new String(specimen);
+        }
+        return result;
+    }
+
+    /**
+     * Applies one to three typical OCR errors: look-alike characters, a filler read as K, a lowercase letter or a dropped
+     * character, the last one breaking the format detection.
+     */
+    private static String corrupt(String mrz, Random random) {
+        final StringBuilder sb = new StringBuilder(mrz);
+        final int errors = 1 + random.nextInt(3);
+        for (int e = 0; e < errors; e++) {
+            final int i = random.nextInt(sb.length());
+            final char c = sb.charAt(i);
+            if (c == '\n') {
+                continue;
+            }
+            switch (random.nextInt(8)) {
+                case 0:
+                    sb.deleteCharAt(i);
+                    return sb.toString();
+                case 1:
+                    sb.setCharAt(i, Character.toLowerCase(c));
+                    break;
+                case 2:
+                case 3:
+                    if (c == '<') {
+                        sb.setCharAt(i, 'K');
+                        break;
+                    }
+                    // fall through
+                default:
+                    sb.setCharAt(i, lookAlike(c));
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static char lookAlike(char c) {
+        switch (c) {
+            case '0':
+                return 'O';
+            case 'O':
+                return '0';
+            case '1':
+                return 'I';
+            case 'I':
+                return '1';
+            case '5':
+                return 'S';
+            case 'S':
+                return '5';
+            case '8':
+                return 'B';
+            case 'B':
+                return '8';
+            case '2':
+                return 'Z';
+            case '<':
+                return 'C';
+            default:
+                return c == '9' ? '0' : (char) (c + 1);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.hellsayenci.mrzscanner.mrz.benchmark;
+
+import com.hellsayenci.mrzscanner.mrz.types.MrzDate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MrzDate#toString()}, which the app calls for every displayed date.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MrzDateBenchmark {
+
+    private final MrzDate[] dates = new MrzDate[MrzCorpus.SIZE];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(0);
+        for (int i = 0; i < dates.length; i++) {
+            final int year = random.nextInt(100);
+            final int month = 1 + random.nextInt(12);
+            final int day = 1 + random.nextInt(28);
+            // the raw value is what the parser passes, toString() formats it
+            dates[i] = new MrzDate(year, month, day, String.format("%02d%02d%02d", year, month, day));
+        }
+    }
+
+    @Benchmark
+    public String dateToString() {
+        return dates[next++ & (MrzCorpus.SIZE - 1)].toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.hellsayenci.mrzscanner.mrz.benchmark;
+
+import com.hellsayenci.mrzscanner.mrz.MrzEncoder;
+import com.hellsayenci.mrzscanner.mrz.MrzParser;
+import com.hellsayenci.mrzscanner.mrz.MrzRecord;
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MrzRecord#toMrz()} against a reused {@link MrzEncoder} writing into a reused buffer, for every format.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MrzEncodeBenchmark {
+
+    @Param({"MRTD_TD1", "FRENCH_ID", "MRV_VISA_B", "MRTD_TD2", "MRV_VISA_A", "PASSPORT", "SLOVAK_ID_234"})
+    public MrzFormat format;
+
+    private MrzRecord record;
+    private final MrzEncoder encoder = new MrzEncoder();
+    private char[] chars;
+    private ByteBuffer bytes;
+
+    @Setup
+    public void setUp() {
+        record = MrzParser.parse(MrzCorpus.specimen(format));
+        chars = new char[MrzEncoder.length(format)];
+        bytes = ByteBuffer.allocateDirect(MrzEncoder.length(format));
+    }
+
+    @Benchmark
+    public String toMrz() {
+        return record.toMrz();
+    }
+
+    @Benchmark
+    public char[] encodeChars() {
+        encoder.encode(record, chars, 0);
+        return chars;
+    }
+
+    @Benchmark
+    public ByteBuffer encodeBytes() {
+        bytes.clear();
+        encoder.encode(record, bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,69 @@
+package com.hellsayenci.mrzscanner.mrz.benchmark;
+
+import com.hellsayenci.mrzscanner.mrz.MrzField;
+import com.hellsayenci.mrzscanner.mrz.MrzLayout;
+import com.hellsayenci.mrzscanner.mrz.MrzParser;
+import com.hellsayenci.mrzscanner.mrz.MrzRange;
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name handling in both directions: {@link MrzParser#parseName(MrzRange)} when reading, {@link MrzParser#toMrz(String, int)}
+ * and {@link MrzParser#nameToMrz(String, String, int)} when writing, with plain, accented and too long names.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MrzNameBenchmark {
+
+    private static final String[][] NAMES = {
+            {"Eriksson", "Anna Maria"},
+            {"M\u00FCller-L\u00FCdenscheidt", "J\u00FCrgen \u00C5ke"},
+            {"Dvo\u0159\u00E1kov\u00E1", "\u0160\u00E1rka \u013Dubica"},
+            {"De La Fuente Rodr\u00EDguez Y Hern\u00E1ndez", "Mar\u00EDa De Los \u00C1ngeles Guadalupe"},
+    };
+
+    @Param({"MRTD_TD1", "MRV_VISA_B", "MRTD_TD2", "MRV_VISA_A", "PASSPORT", "SLOVAK_ID_234"})
+    public MrzFormat format;
+
+    private MrzParser parser;
+    private MrzRange name;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        parser = new MrzParser((CharSequence) MrzCorpus.specimen(format));
+        for (int i = 0; i < format.layout.size(); i++) {
+            final MrzLayout.Entry entry = format.layout.get(i);
+            if (entry.field == MrzField.NAME) {
+                name = entry.range;
+            }
+        }
+    }
+
+    @Benchmark
+    public String[] parseName() {
+        return parser.parseName(name);
+    }
+
+    @Benchmark
+    public String toMrz() {
+        final String[] n = NAMES[next++ & (NAMES.length - 1)];
+        return MrzParser.toMrz(n[1], name.length());
+    }
+
+    @Benchmark
+    public String nameToMrz() {
+        final String[] n = NAMES[next++ & (NAMES.length - 1)];
+        return MrzParser.nameToMrz(n[0], n[1], name.length());
+    }
+}
@@ -0,0 +1,83 @@
+package com.hellsayenci.mrzscanner.mrz.benchmark;
+
+import com.hellsayenci.mrzscanner.mrz.MrzParser;
+import com.hellsayenci.mrzscanner.mrz.MrzRecordView;
+import com.hellsayenci.mrzscanner.mrz.types.MrzFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MrzParser#parse(CharSequence)} and {@link MrzFormat#get(CharSequence)} of every format, on valid and corrupted records.
+ * Corrupted records which no longer parse measure the cost of the failure path, exception included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MrzParseBenchmark {
+
+    @Param({"MRTD_TD1", "FRENCH_ID", "MRV_VISA_B", "MRTD_TD2", "MRV_VISA_A", "PASSPORT", "SLOVAK_ID_234"})
+    public MrzFormat format;
+
+    @Param({"false", "true"})
+    public boolean corrupted;
+
+    private String[] records;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void checkCorpus() {
+        MrzCorpus.checkSpecimens();
+    }
+
+    @Setup
+    public void setUp() {
+        records = MrzCorpus.records(format, corrupted);
+    }
+
+    private String nextRecord() {
+        return records[next++ & (MrzCorpus.SIZE - 1)];
+    }
+
+    @Benchmark
+    public Object parse() {
+        try {
+            return MrzParser.parse(nextRecord());
+        } catch (RuntimeException ex) {
+            return ex;
+        }
+    }
+
+    /**
+     * The lookup case: only the document number and the dates, through a lazy view.
+     */
+    @Benchmark
+    public void view(Blackhole blackhole) {
+        try {
+            final MrzRecordView view = new MrzRecordView(nextRecord());
+            blackhole.consume(view.getDocumentNumber());
+            blackhole.consume(view.getDateOfBirth());
+            blackhole.consume(view.getExpirationDate());
+        } catch (RuntimeException ex) {
+            blackhole.consume(ex);
+        }
+    }
+
+    @Benchmark
+    public Object formatGet() {
+        try {
+            return MrzFormat.get(nextRecord());
+        } catch (RuntimeException ex) {
+            return ex;
+        }
+    }
+}